@@ -58,6 +58,8 @@ dependencies {
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("com.google.android.material:material:1.11.0")
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
+    // ConcatAdapter
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
     implementation("androidx.activity:activity:1.8.0")
     implementation ("jp.wasabeef:richeditor-android:2.0.0")
     implementation ("de.hdodenhof:circleimageview:3.1.0")
@@ -66,6 +68,7 @@ dependencies {
     implementation("androidx.navigation:navigation-ui:2.7.7")
 
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.mockito:mockito-core:5.11.0")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 
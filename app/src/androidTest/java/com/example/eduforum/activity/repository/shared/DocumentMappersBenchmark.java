@@ -0,0 +1,195 @@
+package com.example.eduforum.activity.repository.shared;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times {@link DocumentMappers} against {@code toObject} on a large result set.
+ * <br></br>
+ * The documents are written with the network disabled, so they only exist in the local cache and are read back from
+ * it: the snapshots are the ones Firestore gives to the repositories, nothing reaches the server. The cache is cleared
+ * at the end, with the pending writes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DocumentMappersBenchmark {
+    private static final String TAG = "DocumentMappersBenchmark";
+    private static final int DOCUMENT_COUNT = 2000;
+    // the maximum number of writes in a batch
+    private static final int BATCH_SIZE = 500;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 15;
+
+    private static FirebaseFirestore db;
+    private static List<DocumentSnapshot> postDocuments;
+    private static List<DocumentSnapshot> commentDocuments;
+
+    @BeforeClass
+    public static void writeDocuments() throws Exception {
+        db = FirebaseFirestore.getInstance();
+        Tasks.await(db.disableNetwork(), 30, TimeUnit.SECONDS);
+        String suffix = UUID.randomUUID().toString();
+        CollectionReference posts = db.collection("BenchmarkPost-" + suffix);
+        CollectionReference comments = db.collection("BenchmarkComment-" + suffix);
+
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            batch.set(posts.document(), postFields(i));
+            batch.set(comments.document(), commentFields(i));
+            if ((i + 1) % (BATCH_SIZE / 2) == 0) {
+                // applied to the cache at once, the task only completes when the server acknowledges it
+                batch.commit();
+                batch = db.batch();
+            }
+        }
+        batch.commit();
+
+        postDocuments = Tasks.await(posts.get(Source.CACHE), 60, TimeUnit.SECONDS).getDocuments();
+        commentDocuments = Tasks.await(comments.get(Source.CACHE), 60, TimeUnit.SECONDS).getDocuments();
+        assertEquals(DOCUMENT_COUNT, postDocuments.size());
+        assertEquals(DOCUMENT_COUNT, commentDocuments.size());
+    }
+
+    @AfterClass
+    public static void clearDocuments() throws Exception {
+        Tasks.await(db.terminate(), 30, TimeUnit.SECONDS);
+        Tasks.await(db.clearPersistence(), 30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void toPost() {
+        long toObjectNanos = medianNanos(() -> {
+            for (DocumentSnapshot document : postDocuments) {
+                Post post = document.toObject(Post.class);
+                post.setPostID(document.getId());
+                post.setAnonymous(document.getBoolean("isAnonymous"));
+            }
+        });
+        long mapperNanos = medianNanos(() -> {
+            for (DocumentSnapshot document : postDocuments) {
+                DocumentMappers.toPost(document);
+            }
+        });
+
+        report("toPost", toObjectNanos, mapperNanos);
+        Post post = DocumentMappers.toPost(postDocuments.get(0));
+        assertEquals(postDocuments.get(0).getId(), post.getPostID());
+        assertNotNull(post.getAnonymous());
+        assertTrue("toPost is slower than toObject", mapperNanos < toObjectNanos);
+    }
+
+    @Test
+    public void toComment() {
+        long toObjectNanos = medianNanos(() -> {
+            for (DocumentSnapshot document : commentDocuments) {
+                Comment comment = document.toObject(Comment.class);
+                comment.setCommentID(document.getId());
+            }
+        });
+        long mapperNanos = medianNanos(() -> {
+            for (DocumentSnapshot document : commentDocuments) {
+                DocumentMappers.toComment(document);
+            }
+        });
+
+        report("toComment", toObjectNanos, mapperNanos);
+        Comment comment = DocumentMappers.toComment(commentDocuments.get(0));
+        assertEquals(commentDocuments.get(0).getId(), comment.getCommentID());
+        assertTrue("toComment is slower than toObject", mapperNanos < toObjectNanos);
+    }
+
+    // median time of a round, a round maps every document once
+    private static long medianNanos(Runnable round) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            round.run();
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long startedAt = System.nanoTime();
+            round.run();
+            times[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+
+    private static void report(String mapper, long toObjectNanos, long mapperNanos) {
+        Log.i(TAG, String.format(Locale.ROOT, "%s, %d documents: toObject %.2fms (%.1fus/doc), mapper %.2fms (%.1fus/doc), %.1fx",
+                mapper, DOCUMENT_COUNT,
+                toObjectNanos / 1e6, toObjectNanos / 1e3 / DOCUMENT_COUNT,
+                mapperNanos / 1e6, mapperNanos / 1e3 / DOCUMENT_COUNT,
+                (double) toObjectNanos / mapperNanos));
+    }
+
+    // the fields of the Post and Comment documents, the integers are read back as Long
+    private static Map<String, Object> postFields(int i) {
+        Map<String, Object> fields = postingFields(i);
+        fields.put("title", "Tiêu đề bài viết " + i);
+        fields.put("isAnonymous", i % 5 == 0);
+        fields.put("totalComment", i % 40);
+        fields.put("taggedUsers", Arrays.asList("user" + (i % 7), "user" + (i % 11)));
+        List<Map<String, Object>> category = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            Map<String, Object> tag = new HashMap<>();
+            tag.put("categoryID", "category" + ((i + c) % 9));
+            tag.put("title", "Chủ đề " + ((i + c) % 9));
+            category.add(tag);
+        }
+        fields.put("category", category);
+        return fields;
+    }
+
+    private static Map<String, Object> commentFields(int i) {
+        Map<String, Object> fields = postingFields(i);
+        fields.put("postID", "post" + (i % 50));
+        fields.put("replyCommentID", i % 3 == 0 ? null : "comment" + (i - 1));
+        fields.put("totalReply", i % 4);
+        return fields;
+    }
+
+    private static Map<String, Object> postingFields(int i) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("communityID", "community" + (i % 5));
+        fields.put("content", "Nội dung số " + i + ", đủ dài để giống một bài viết thật trong cộng đồng.");
+        fields.put("timeCreated", new Timestamp(1729150000L + i, 0));
+        fields.put("lastModified", new Timestamp(1729153600L + i, 0));
+        Map<String, Object> creator = new HashMap<>();
+        creator.put("creatorID", "user" + (i % 100));
+        creator.put("name", "Người dùng " + (i % 100));
+        creator.put("department", "Khoa học máy tính");
+        creator.put("profilePicture", "avatars/user" + (i % 100) + ".jpg");
+        fields.put("creator", creator);
+        fields.put("totalUpVote", i % 30);
+        fields.put("totalDownVote", i % 6);
+        fields.put("voteDifference", i % 30 - i % 6);
+        fields.put("downloadImage", i % 4 == 0 ? Collections.singletonList("images/" + i + ".jpg") : new ArrayList<String>());
+        return fields;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.eduforum.activity.ui.community.adapter;
+
+import android.content.Context;
+import android.os.Debug;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.eduforum.R;
+import com.example.eduforum.activity.model.post_manage.Creator;
+import com.example.eduforum.activity.model.post_manage.PostCategory;
+import com.example.eduforum.activity.ui.community.viewstate.CommentViewState;
+import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
+import com.example.eduforum.databinding.ItemChildCommentBinding;
+import com.example.eduforum.databinding.ItemListCommentBinding;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * A row bound again with the item it shows, e.g. after a diff or when it comes back on screen, must not allocate:
+ * the texts are built once by the view state and the views that show the same value are left as they are.
+ * <br></br>
+ * The creators have no picture, the avatars are loaded by Glide on another thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BindAllocationTest {
+    private Context context;
+    private RecyclerView parent;
+
+    @Before
+    public void setUp() {
+        Context targetContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context = new ContextThemeWrapper(targetContext, R.style.Theme_EduForum);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+        });
+    }
+
+    @Test
+    public void postRowBoundAgainAllocatesNothing() {
+        PostViewState post = new PostViewState("post1", new Creator("user1", "Nguyễn Văn A", "Khoa học máy tính", null),
+                "community1", "Tiêu đề", "Nội dung", false, "17/10/2024 08:30", null, new ArrayList<>(),
+                new ArrayList<>(Collections.singletonList(new PostCategory("category1", "Hỏi đáp"))), 12, 3);
+
+        long[] allocations = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            PostAdapter adapter = new PostAdapter(context, Collections.singletonList(post));
+            PostAdapter.PostViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+            adapter.onBindViewHolder(holder, 0);
+            allocations[0] = countAllocations(() -> adapter.onBindViewHolder(holder, 0));
+        });
+
+        assertEquals(0, allocations[0]);
+    }
+
+    @Test
+    public void commentRowBoundAgainAllocatesNothing() {
+        CommentViewState comment = newComment("comment1", null);
+
+        long[] allocations = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            ItemListCommentBinding binding = ItemListCommentBinding.inflate(LayoutInflater.from(context), parent, false);
+            CommentAdapter.CommentViewHolder holder = new CommentAdapter.CommentViewHolder(binding, null, null, null, null);
+            holder.bind(comment, 1, false);
+            allocations[0] = countAllocations(() -> holder.bind(comment, 1, false));
+        });
+
+        assertEquals(0, allocations[0]);
+    }
+
+    @Test
+    public void replyRowBoundAgainAllocatesNothing() {
+        CommentViewState reply = newComment("comment2", "comment1");
+
+        long[] allocations = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            ItemChildCommentBinding binding = ItemChildCommentBinding.inflate(LayoutInflater.from(context), parent, false);
+            CommentAdapter.ReplyViewHolder holder = new CommentAdapter.ReplyViewHolder(binding, null, null);
+            holder.bind(reply, -1, 48);
+            allocations[0] = countAllocations(() -> holder.bind(reply, -1, 48));
+        });
+
+        assertEquals(0, allocations[0]);
+    }
+
+    private static CommentViewState newComment(String commentID, String replyCommentID) {
+        return new CommentViewState(commentID, "Nội dung bình luận", "17-10-2024 08:30:05",
+                new Creator("user1", "Nguyễn Văn A", "Khoa học máy tính", null),
+                5, 1, 4, null, null, replyCommentID, 0);
+    }
+
+    // objects allocated by the calling thread while bind runs
+    @SuppressWarnings("deprecation")
+    private static long countAllocations(Runnable bind) {
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        try {
+            bind.run();
+            return Debug.getThreadAllocCount();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+}
@@ -8,6 +8,9 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.lifecycle.ViewModelStore;
 import androidx.lifecycle.ViewModelStoreOwner;
 
+import com.example.eduforum.activity.repository.shared.EntityCaches;
+import com.example.eduforum.activity.util.AppExecutors;
+
 public class EduForum extends Application implements ViewModelStoreOwner {
     private ViewModelStore viewModelStore = new ViewModelStore();
     private ViewModelProvider.AndroidViewModelFactory viewModelFactory;
@@ -19,6 +22,14 @@ public class EduForum extends Application implements ViewModelStoreOwner {
         viewModelFactory = ViewModelProvider.AndroidViewModelFactory.getInstance(this);
         viewModelProvider = new ViewModelProvider(this, viewModelFactory);
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        EntityCaches.onTrimMemory(level);
+        AppExecutors.getInstance().logStats();
+    }
+
     @NonNull
     @Override
     public ViewModelStore getViewModelStore() {
@@ -2,6 +2,7 @@ package com.example.eduforum.activity.model.post_manage;
 import android.net.Uri;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
 
 import java.util.List;
 
@@ -11,6 +12,8 @@ public class Post extends PostingObject {
     private Integer totalComment;
     private List<String> taggedUsers;
     private List<PostCategory> category;
+    // read from a PostSummary: the content is an excerpt and only the first image is known
+    private boolean isSummary;
 
 
     public Post() {
@@ -74,4 +77,14 @@ public class Post extends PostingObject {
     public void setTotalComment(Integer totalComment) {
         this.totalComment = totalComment;
     }
+
+    @Exclude
+    public boolean isSummary() {
+        return isSummary;
+    }
+
+    @Exclude
+    public void setSummary(boolean summary) {
+        isSummary = summary;
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.eduforum.activity.model.post_manage;
+
+import com.google.firebase.Timestamp;
+
+import java.util.List;
+
+/**
+ * The fields of a post shown in a feed, stored in {@code Community/{communityID}/PostSummary/{postID}}.
+ * The full HTML content, the image list and the tagged users are only in the post document.
+ */
+public class PostSummary {
+    private String communityID;
+    private String title;
+    // plain text beginning of the content
+    private String excerpt;
+    private Creator creator;
+    private Boolean anonymous;
+    private Timestamp timeCreated;
+    private Timestamp lastModified;
+    private Integer voteDifference;
+    private Integer totalComment;
+    // storage path of the first image, null if the post has none
+    private String thumbnail;
+    private List<PostCategory> category;
+
+    public PostSummary() {
+    }
+
+    public String getCommunityID() {
+        return communityID;
+    }
+
+    public void setCommunityID(String communityID) {
+        this.communityID = communityID;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public Creator getCreator() {
+        return creator;
+    }
+
+    public void setCreator(Creator creator) {
+        this.creator = creator;
+    }
+
+    public Boolean getAnonymous() {
+        return anonymous;
+    }
+
+    public void setAnonymous(Boolean anonymous) {
+        this.anonymous = anonymous;
+    }
+
+    public Timestamp getTimeCreated() {
+        return timeCreated;
+    }
+
+    public void setTimeCreated(Timestamp timeCreated) {
+        this.timeCreated = timeCreated;
+    }
+
+    public Timestamp getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Timestamp lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public Integer getVoteDifference() {
+        return voteDifference;
+    }
+
+    public void setVoteDifference(Integer voteDifference) {
+        this.voteDifference = voteDifference;
+    }
+
+    public Integer getTotalComment() {
+        return totalComment;
+    }
+
+    public void setTotalComment(Integer totalComment) {
+        this.totalComment = totalComment;
+    }
+
+    public String getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(String thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public List<PostCategory> getCategory() {
+        return category;
+    }
+
+    public void setCategory(List<PostCategory> category) {
+        this.category = category;
+    }
+}
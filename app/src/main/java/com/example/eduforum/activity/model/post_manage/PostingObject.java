@@ -16,6 +16,8 @@ public abstract class PostingObject {
     protected Integer totalUpVote;
     protected Integer totalDownVote;
     protected Integer voteDifference;
+    // number of counter shards under Shard/, null or 0 when the counters are only kept on the document
+    protected Integer counterShards;
 
     protected List<Uri> image;
     protected List<String> downloadImage;
@@ -74,6 +76,18 @@ public abstract class PostingObject {
         this.downloadImage = downloadImages;
     }
 
+    /**
+     * @return the number of counter shards. When it is positive the counters of the document are only a base,
+     * the shards under <strong>Shard/</strong> hold the rest, see ShardedCounter.
+     */
+    public Integer getCounterShards() {
+        return counterShards;
+    }
+
+    public void setCounterShards(Integer counterShards) {
+        this.counterShards = counterShards;
+    }
+
     public Integer getVoteDifference() {
         return voteDifference;
     }
@@ -6,6 +6,7 @@ import androidx.annotation.Nullable;
 
 import com.example.eduforum.activity.model.community_manage.Community;
 import com.example.eduforum.activity.model.post_manage.Category;
+import com.example.eduforum.activity.repository.shared.EntityCaches;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentChange;
@@ -28,6 +29,7 @@ public class CategoryRepository {
     private static CategoryRepository instance;
     private FirebaseFirestore db;
     private Map<String, ListenerRegistration> listeners = new HashMap<>();
+    private Map<String, List<CategoryCallback>> callbacks = new HashMap<>();
 
     public CategoryRepository() {
         db = FirebaseFirestore.getInstance();
@@ -40,16 +42,44 @@ public class CategoryRepository {
         return instance;
     }
 
-    // real time fetching category to database
+    // real time fetching category to database, the categories read a short time ago are delivered before the first event.
+    // The callers of the same community share one listener, each caller removes its callback with removeCallback.
     public void fetchCategory(Community community, CategoryCallback callback) {
-        final CollectionReference categoryRef = db.collection("Community").document(community.getCommunityId()).collection("Category");
+        String communityId = community.getCommunityId();
+        List<CategoryCallback> communityCallbacks = callbacks.get(communityId);
+        if (communityCallbacks != null) {
+            communityCallbacks.add(callback);
+            List<Category> lastCategories = EntityCaches.CATEGORIES.get(communityId);
+            if (lastCategories != null) {
+                callback.onSuccess(lastCategories);
+            }
+            return;
+        }
+        communityCallbacks = new ArrayList<>();
+        communityCallbacks.add(callback);
+        callbacks.put(communityId, communityCallbacks);
+        List<Category> cachedCategories = EntityCaches.CATEGORIES.get(communityId);
+        if (cachedCategories != null) {
+            callback.onSuccess(cachedCategories);
+        }
+        final CollectionReference categoryRef = db.collection("Community").document(communityId).collection("Category");
         ListenerRegistration listener = categoryRef.addSnapshotListener(new EventListener<QuerySnapshot>() {
             @Override
             public void onEvent(@Nullable QuerySnapshot value,
                                 @Nullable FirebaseFirestoreException e) {
+                List<CategoryCallback> listening = callbacks.get(communityId);
+                if (listening == null) return;
                 if (e != null) {
                     Log.w(FlagsList.DEBUG_CATEGORY_FLAG, "Category listener failed.", e);
-                    callback.onFailure(FlagsList.ERROR_CATEGORY);
+                    // the listener is dead after an error, the next fetchCategory starts a new one
+                    callbacks.remove(communityId);
+                    ListenerRegistration failed = listeners.remove(communityId);
+                    if (failed != null) {
+                        failed.remove();
+                    }
+                    for (CategoryCallback communityCallback : new ArrayList<>(listening)) {
+                        communityCallback.onFailure(FlagsList.ERROR_CATEGORY);
+                    }
                     return;
                 }
 
@@ -62,11 +92,14 @@ public class CategoryRepository {
                     categories.add(category);
                 }
                 Log.d(FlagsList.DEBUG_CATEGORY_FLAG, "Current categories in " + community.getName() + ": " + categories);
-                callback.onSuccess(categories);
+                EntityCaches.CATEGORIES.put(communityId, categories);
+                for (CategoryCallback communityCallback : new ArrayList<>(listening)) {
+                    communityCallback.onSuccess(categories);
+                }
             }
         });
 
-        listeners.put(community.getCommunityId(), listener);
+        listeners.put(communityId, listener);
     }
 
     // create a new category
@@ -76,6 +109,7 @@ public class CategoryRepository {
                 .addOnSuccessListener(documentReference -> {
                     Log.d(FlagsList.DEBUG_CATEGORY_FLAG, "Category written with ID: " + documentReference.getId());
                     category.setCategoryID(documentReference.getId());
+                    EntityCaches.CATEGORIES.invalidate(community.getCommunityId());
                     callback.onCreateCategorySuccess(category);
                 })
                 .addOnFailureListener(e -> {
@@ -90,6 +124,7 @@ public class CategoryRepository {
         categoryRef.document(category.getCategoryID()).delete()
                 .addOnSuccessListener(aVoid -> {
                     Log.d(FlagsList.DEBUG_CATEGORY_FLAG, "Category deleted with ID: " + category.getCategoryID());
+                    EntityCaches.CATEGORIES.invalidate(community.getCommunityId());
                     callback.onSuccess(null);
                 })
                 .addOnFailureListener(e -> {
@@ -98,13 +133,17 @@ public class CategoryRepository {
                 });
     }
 
-    // TODO: call removeListener when navigate out of community @Duong Thuan Tri
-
-    public void removeListener(String communityId) {
-        ListenerRegistration listener = listeners.get(communityId);
+    // stop delivering the categories of a community to a callback given to fetchCategory,
+    // the listener of the community is removed with its last callback
+    public void removeCallback(String communityId, CategoryCallback callback) {
+        List<CategoryCallback> communityCallbacks = callbacks.get(communityId);
+        if (communityCallbacks == null || !communityCallbacks.remove(callback) || !communityCallbacks.isEmpty()) {
+            return;
+        }
+        callbacks.remove(communityId);
+        ListenerRegistration listener = listeners.remove(communityId);
         if (listener != null) {
             listener.remove();
-            listeners.remove(communityId);
         }
     }
 
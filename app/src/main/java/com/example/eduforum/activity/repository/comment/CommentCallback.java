@@ -17,4 +17,7 @@ public abstract class CommentCallback {
     public abstract void onUpdateSuccess(Comment comment);
 
     public abstract void onGetVoteStatusSuccess(int voteType); // 0: no vote, 1: upvote, -1: downvote
+
+    public void onLoadTreeSuccess(CommentTree tree) {
+    }
 }
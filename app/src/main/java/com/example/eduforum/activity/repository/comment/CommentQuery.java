@@ -0,0 +1,8 @@
+package com.example.eduforum.activity.repository.comment;
+
+public enum CommentQuery {
+    NEWEST,
+    OLDEST,
+    // highest voteDifference first
+    BEST
+}
@@ -4,12 +4,21 @@ import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.example.eduforum.activity.model.post_manage.Comment;
 import com.example.eduforum.activity.model.post_manage.Post;
 import com.example.eduforum.activity.model.post_manage.PostingObject;
 import com.example.eduforum.activity.repository.comment.dto.AddCommentDTO;
 import com.example.eduforum.activity.repository.post.IPostCallback;
+import com.example.eduforum.activity.repository.post.PostStore;
+import com.example.eduforum.activity.repository.shared.CacheFirstReader;
+import com.example.eduforum.activity.repository.shared.DocumentMappers;
+import com.example.eduforum.activity.repository.shared.EntityCaches;
+import com.example.eduforum.activity.repository.shared.IVoteCallback;
+import com.example.eduforum.activity.repository.shared.ReadMode;
+import com.example.eduforum.activity.repository.shared.ShardedCounter;
+import com.example.eduforum.activity.repository.shared.VoteTransaction;
 import com.example.eduforum.activity.util.ConvertUtil;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.android.gms.tasks.OnFailureListener;
@@ -18,12 +27,16 @@ import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.core.FirestoreClient;
 import com.google.firebase.functions.FirebaseFunctions;
@@ -35,15 +48,29 @@ import com.google.firebase.storage.UploadTask;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class CommentRepository {
     private static CommentRepository instance;
     private final FirebaseFirestore db;
     private final FirebaseStorage storage;
     private final FirebaseFunctions mFunctions;
+    public static final int COMMENT_PAGE_SIZE = 20;
+    public static final int REPLY_PAGE_SIZE = 5;
+    private ReadMode readMode = ReadMode.CACHE_FIRST;
+    // live comment listeners by post path, see observeComments
+    private final Map<String, ListenerRegistration> commentListeners = new HashMap<>();
+    // listeners of the loaded comments and the IDs they listen to by post path, see observeLoadedComments
+    private final Map<String, List<ListenerRegistration>> loadedCommentListeners = new HashMap<>();
+    private final Map<String, Set<String>> observedCommentIDs = new HashMap<>();
+    // the most values of a whereIn filter
+    private static final int LOADED_COMMENTS_PER_LISTENER = 30;
+    // vote type by comment ID, memoized per user and post by loadCommentVotes
+    private final Map<String, Map<String, Integer>> commentVotes = new HashMap<>();
 
     public CommentRepository() {
         db = FirebaseFirestore.getInstance();
@@ -58,6 +85,15 @@ public class CommentRepository {
         return instance;
     }
 
+    /**
+     * Read mode of {@link #loadTopLevelComments}, {@link #loadCommentTree}, the first page of
+     * {@link #loadTopLevelCommentsPage} and {@link #getVoteStatus}. Later pages and replies are always read from the server
+     * because they are appended to the list already displayed.
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
     /**
      * Create a new comment.
      *
@@ -109,6 +145,9 @@ public class CommentRepository {
                                     newComment.setTotalReply((Integer) result.get("totalReply"));
                                     newComment.setTimeCreated(ConvertUtil.convertMapToTimestamp(result, "timeCreated"));
                                     newComment.setLastModified(ConvertUtil.convertMapToTimestamp(result, "lastModified"));
+                                    countInPostSummary(newComment, 1);
+                                    invalidateCommentTree(newComment);
+                                    PostStore.getInstance().addComments(newComment.getPostID(), 1);
                                     callback.onCreateSuccess(newComment);
                                 }
 
@@ -211,22 +250,160 @@ public class CommentRepository {
                 .document(post.getPostID())
                 .collection("Comment")
                 .whereEqualTo("replyCommentID", null);
-        commentQuery.get().addOnSuccessListener(queryDocumentSnapshots -> {
-            List<Comment> comments = new ArrayList<>();
-            for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
-                Comment comment = document.toObject(Comment.class);
-                if (comment != null) {
-                    comment.setCommentID(document.getId());
-                    comments.add(comment);
+        CacheFirstReader.get(commentQuery, readMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                List<Comment> comments = new ArrayList<>();
+                for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+                    comments.add(DocumentMappers.toComment(document));
                 }
+                addShardTotals(comments, queryDocumentSnapshots).addOnCompleteListener(task ->
+                        callback.onInitialLoadSuccess(comments));
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onFailure(e.getMessage());
+                Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error getting documents.", e);
+            }
+        });
+    }
+
+    /**
+     * Fetch every comment of a post, top-level comments and replies, in one query and index them by parent.
+     * Use it instead of {@link #loadTopLevelComments} followed by one {@link #loadReplies} per thread.
+     * The comments are kept in {@link EntityCaches#COMMENT_TREES}, a post opened again soon after is not read again.
+     * @param post the post to fetch comments from.
+     * @param callback override onLoadTreeSuccess to get the comments, oldest first in each thread.
+     */
+    public void loadCommentTree(Post post, CommentCallback callback) {
+        String postKey = EntityCaches.postKey(post.getCommunityID(), post.getPostID());
+        List<Comment> cached = EntityCaches.COMMENT_TREES.get(postKey);
+        if (cached != null) {
+            callback.onLoadTreeSuccess(new CommentTree(cached));
+            return;
+        }
+        Query commentQuery = db.collection("Community")
+                .document(post.getCommunityID())
+                .collection("Post")
+                .document(post.getPostID())
+                .collection("Comment")
+                .orderBy("timeCreated", Query.Direction.ASCENDING);
+        CacheFirstReader.get(commentQuery, readMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                List<Comment> comments = new ArrayList<>();
+                for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+                    comments.add(DocumentMappers.toComment(document));
+                }
+                addShardTotals(comments, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                    EntityCaches.COMMENT_TREES.put(postKey, comments);
+                    callback.onLoadTreeSuccess(new CommentTree(comments));
+                });
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onFailure(e.getMessage());
+                Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error getting documents.", e);
+            }
+        });
+    }
+
+    /**
+     * Fetch one page of the top-level comments of a post. Use it instead of {@link #loadCommentTree} for posts
+     * with many comments, the replies are then loaded per thread with {@link #loadRepliesPage}.
+     * @param post the post to fetch comments from.
+     * @param order the order of the comments, ties are broken by creation time.
+     * @param lastVisible the cursor returned with the previous page, null for the first page.
+     * @param pageSize maximum number of comments in the page.
+     * @param callback receives the page and the cursor of the next one.
+     */
+    public void loadTopLevelCommentsPage(Post post, CommentQuery order, @Nullable DocumentSnapshot lastVisible, int pageSize, ICommentPageCallback callback) {
+        Query pageQuery = orderComments(db.collection("Community")
+                .document(post.getCommunityID())
+                .collection("Post")
+                .document(post.getPostID())
+                .collection("Comment")
+                .whereEqualTo("replyCommentID", null), order);
+        if (lastVisible != null) {
+            pageQuery = pageQuery.startAfter(lastVisible);
+        }
+        // only the first page replaces the list, the following pages are appended and must be read once
+        ReadMode pageReadMode = lastVisible == null ? readMode : ReadMode.SERVER;
+        CacheFirstReader.get(pageQuery.limit(pageSize), pageReadMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                deliverPage(queryDocumentSnapshots, pageSize, callback);
             }
-            callback.onInitialLoadSuccess(comments);
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onGetCommentPageFailure(e.toString());
+                Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error fetching comment page,", e);
+            }
+        });
+    }
+
+    /**
+     * Fetch one page of the replies of a comment, oldest first.
+     * @param comment the comment to fetch replies from, with its post and community IDs.
+     * @param lastVisible the cursor returned with the previous page of this thread, null for the first page.
+     * @param pageSize maximum number of replies in the page.
+     * @param callback receives the page and the cursor of the next one.
+     */
+    public void loadRepliesPage(Comment comment, @Nullable DocumentSnapshot lastVisible, int pageSize, ICommentPageCallback callback) {
+        Query pageQuery = db.collection("Community")
+                .document(comment.getCommunityID())
+                .collection("Post")
+                .document(comment.getPostID())
+                .collection("Comment")
+                .whereEqualTo("replyCommentID", comment.getCommentID())
+                .orderBy("timeCreated", Query.Direction.ASCENDING);
+        if (lastVisible != null) {
+            pageQuery = pageQuery.startAfter(lastVisible);
+        }
+        pageQuery.limit(pageSize).get().addOnSuccessListener(queryDocumentSnapshots -> {
+            deliverPage(queryDocumentSnapshots, pageSize, callback);
         }).addOnFailureListener(e -> {
-            callback.onFailure(e.getMessage());
-            Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error getting documents.", e);
+            callback.onGetCommentPageFailure(e.toString());
+            Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error fetching reply page,", e);
         });
     }
 
+    private Query orderComments(Query commentQuery, CommentQuery order) {
+        switch (order) {
+            case BEST:
+                return commentQuery.orderBy("voteDifference", Query.Direction.DESCENDING)
+                        .orderBy("timeCreated", Query.Direction.ASCENDING);
+            case NEWEST:
+                return commentQuery.orderBy("timeCreated", Query.Direction.DESCENDING);
+            case OLDEST:
+            default:
+                return commentQuery.orderBy("timeCreated", Query.Direction.ASCENDING);
+        }
+    }
+
+    private void deliverPage(QuerySnapshot queryDocumentSnapshots, int pageSize, ICommentPageCallback callback) {
+        List<Comment> comments = new ArrayList<>();
+        List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+        for (DocumentSnapshot document : documents) {
+            comments.add(DocumentMappers.toComment(document));
+        }
+        DocumentSnapshot newLastVisible = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+        addShardTotals(comments, queryDocumentSnapshots).addOnCompleteListener(task ->
+                callback.onGetCommentPageSuccess(comments, newLastVisible, documents.size() == pageSize));
+    }
+
+    // the counters of the sharded comments are completed with their shards, the other comments are left as they are
+    private Task<Void> addShardTotals(List<Comment> comments, QuerySnapshot queryDocumentSnapshots) {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+            refs.add(document.getReference());
+        }
+        return ShardedCounter.addShardTotals(comments, refs);
+    }
+
     /**
      * Fetch replies of a comment. This method should be called when user clicks on a comment to view its replies.
      * @param comment the comment to fetch replies from.
@@ -242,19 +419,163 @@ public class CommentRepository {
         commentQuery.get().addOnSuccessListener(queryDocumentSnapshots -> {
             List<Comment> comments = new ArrayList<>();
             for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
-                Comment _comment = document.toObject(Comment.class);
-                if (_comment != null) {
-                    _comment.setCommentID(document.getId());
-                    comments.add(_comment);
-                }
+                comments.add(DocumentMappers.toComment(document));
             }
-            callback.onLoadRepliesSuccess(comments);
+            addShardTotals(comments, queryDocumentSnapshots).addOnCompleteListener(task ->
+                    callback.onLoadRepliesSuccess(comments));
         }).addOnFailureListener(e -> {
             callback.onFailure(e.getMessage());
             Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error getting documents.", e);
         });
     }
 
+    /**
+     * Listen to the comments of a post in real time. Only the changed comments are delivered, apply them to the
+     * list already displayed. A post has at most one listener, observing it again replaces the previous one.
+     * @param post the post to listen to.
+     * @param createdAfter only listen to the comments created after this time, null to listen to every comment.
+     *                     Use it when the older comments are paged, so the listener does not read them all.
+     * @param callback receives the changes of each snapshot.
+     */
+    public void observeComments(Post post, @Nullable Timestamp createdAfter, ICommentChangesCallback callback) {
+        removeCommentListener(post);
+        Query commentQuery = db.collection("Community")
+                .document(post.getCommunityID())
+                .collection("Post")
+                .document(post.getPostID())
+                .collection("Comment");
+        if (createdAfter != null) {
+            commentQuery = commentQuery.whereGreaterThan("timeCreated", createdAfter);
+        }
+        // the shards of each snapshot are read at once, the snapshots are delivered in order
+        final Task<?>[] lastDelivery = {Tasks.forResult(null)};
+        ListenerRegistration listener = commentQuery.orderBy("timeCreated", Query.Direction.ASCENDING)
+                .addSnapshotListener((value, error) -> {
+                    if (error != null) {
+                        Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Comment listener failed.", error);
+                        callback.onCommentChangesFailure(error.getMessage());
+                        return;
+                    }
+                    deliverChanges(post, value, false, lastDelivery, callback);
+                });
+        commentListeners.put(commentListenerKey(post), listener);
+    }
+
+    /**
+     * Listen to comments already loaded, by ID. Paged comments are only listened to from the first page on by
+     * observeComments, the comments of the pages read before are edited, voted on and deleted too.
+     * <br></br>
+     * IDs already listened to are skipped, a listener is added per chunk of new IDs. The listeners are removed with
+     * removeCommentListener.
+     * @param post the post of the comments
+     * @param commentIDs the IDs of the comments shown
+     * @param callback gets the changes of these comments as modified or removed, never as added
+     */
+    public void observeLoadedComments(Post post, List<String> commentIDs, ICommentChangesCallback callback) {
+        String key = commentListenerKey(post);
+        Set<String> observedIDs = observedCommentIDs.get(key);
+        if (observedIDs == null) {
+            observedIDs = new HashSet<>();
+            observedCommentIDs.put(key, observedIDs);
+        }
+        List<String> newIDs = new ArrayList<>();
+        for (String commentID : commentIDs) {
+            if (commentID != null && observedIDs.add(commentID)) {
+                newIDs.add(commentID);
+            }
+        }
+        if (newIDs.isEmpty()) return;
+        List<ListenerRegistration> listeners = loadedCommentListeners.get(key);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            loadedCommentListeners.put(key, listeners);
+        }
+        CollectionReference commentsRef = db.collection("Community")
+                .document(post.getCommunityID())
+                .collection("Post")
+                .document(post.getPostID())
+                .collection("Comment");
+        for (int start = 0; start < newIDs.size(); start += LOADED_COMMENTS_PER_LISTENER) {
+            List<String> chunk = new ArrayList<>(newIDs.subList(start, Math.min(start + LOADED_COMMENTS_PER_LISTENER, newIDs.size())));
+            final Task<?>[] lastDelivery = {Tasks.forResult(null)};
+            listeners.add(commentsRef.whereIn(FieldPath.documentId(), chunk)
+                    .addSnapshotListener((value, error) -> {
+                        if (error != null) {
+                            Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Loaded comment listener failed.", error);
+                            callback.onCommentChangesFailure(error.getMessage());
+                            return;
+                        }
+                        deliverChanges(post, value, true, lastDelivery, callback);
+                    }));
+        }
+    }
+
+    // isLoaded: the comments are already shown, the first snapshot reports them as added
+    private void deliverChanges(Post post, QuerySnapshot value, boolean isLoaded, Task<?>[] lastDelivery, ICommentChangesCallback callback) {
+        List<Comment> added = new ArrayList<>();
+        List<Comment> modified = new ArrayList<>();
+        List<String> removedIDs = new ArrayList<>();
+        List<Comment> changed = new ArrayList<>();
+        List<DocumentReference> changedRefs = new ArrayList<>();
+        for (DocumentChange change : value.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                removedIDs.add(change.getDocument().getId());
+                continue;
+            }
+            Comment comment = DocumentMappers.toComment(change.getDocument());
+            if (change.getType() == DocumentChange.Type.ADDED && !isLoaded) {
+                added.add(comment);
+            } else {
+                modified.add(comment);
+            }
+            changed.add(comment);
+            changedRefs.add(change.getDocument().getReference());
+        }
+        if (added.isEmpty() && modified.isEmpty() && removedIDs.isEmpty()) return;
+        Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Comment changes in " + post.getPostID() + ": " + added.size() + " added, "
+                + modified.size() + " modified, " + removedIDs.size() + " removed");
+        // the vote counters of a sharded comment are compared with the displayed ones, they must be complete
+        Task<Void> shardTotals = ShardedCounter.addShardTotals(changed, changedRefs);
+        lastDelivery[0] = Tasks.whenAllComplete(lastDelivery[0], shardTotals).continueWith(task -> {
+            callback.onCommentsChanged(added, modified, removedIDs);
+            return null;
+        });
+    }
+
+    public void removeCommentListener(Post post) {
+        String key = commentListenerKey(post);
+        ListenerRegistration listener = commentListeners.remove(key);
+        if (listener != null) {
+            listener.remove();
+        }
+        List<ListenerRegistration> listeners = loadedCommentListeners.remove(key);
+        if (listeners != null) {
+            for (ListenerRegistration loadedListener : listeners) {
+                loadedListener.remove();
+            }
+        }
+        observedCommentIDs.remove(key);
+    }
+
+    private String commentListenerKey(Post post) {
+        return post.getCommunityID() + "/" + post.getPostID();
+    }
+
+    // the comment counter of the post is kept by the Cloud Function, the feed reads the copy in the post summary
+    private void countInPostSummary(Comment comment, int delta) {
+        db.collection("Community")
+                .document(comment.getCommunityID())
+                .collection("PostSummary")
+                .document(comment.getPostID())
+                .update("totalComment", FieldValue.increment(delta))
+                .addOnFailureListener(e -> Log.d(FlagsList.DEBUG_COMMENT_FLAG, "No summary to update for " + comment.getPostID()));
+    }
+
+    // the cached tree holds the comments, the comment count of the post is kept by PostStore.addComments
+    private void invalidateCommentTree(PostingObject object) {
+        EntityCaches.COMMENT_TREES.invalidate(EntityCaches.postKey(object.getCommunityID(), object.getPostID()));
+    }
+
     /**
      * Delete a comment.
      * @param comment the comment to delete.
@@ -269,6 +590,9 @@ public class CommentRepository {
                 .document(comment.getCommentID())
                 .delete()
                 .addOnSuccessListener(aVoid -> {
+                    countInPostSummary(comment, -1);
+                    invalidateCommentTree(comment);
+                    PostStore.getInstance().addComments(comment.getPostID(), -1);
                     callback.onDeleteSuccess();
                     Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Comment successfully deleted!");
                 })
@@ -294,6 +618,7 @@ public class CommentRepository {
                 .document(comment.getCommentID())
                 .set(comment)
                 .addOnSuccessListener(aVoid -> {
+                    invalidateCommentTree(comment);
                     callback.onUpdateSuccess(comment);
                     Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Comment successfully updated!");
                 })
@@ -385,6 +710,8 @@ public class CommentRepository {
         }).addOnSuccessListener(new OnSuccessListener<Void>() {
             @Override
             public void onSuccess(Void aVoid) {
+                rememberCommentVote(comment, userID, voteType);
+                invalidateCommentTree(comment);
                 Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Transaction success!");
             }
         }).addOnFailureListener(new OnFailureListener() {
@@ -397,6 +724,120 @@ public class CommentRepository {
 
     }
 
+    /**
+     * Set the vote of a user on a comment to {@code voteType}, whatever the previous vote was.
+     * Prefer it to {@link #updateVoteCount} when taps are coalesced, see VoteStateManager.
+     * @param comment the comment to vote on, with its post and community IDs.
+     * @param userID the user (current user using the app).
+     * @param voteType 1: upvote, -1: downvote, 0: remove the vote.
+     * @param callback receives the saved vote and the new voteDifference of the comment.
+     */
+    public void setVote(Comment comment, String userID, int voteType, IVoteCallback callback) {
+        DocumentReference commentRef = db.collection("Community")
+                .document(comment.getCommunityID())
+                .collection("Post")
+                .document(comment.getPostID())
+                .collection("Comment")
+                .document(comment.getCommentID());
+        VoteTransaction.run(db, commentRef, userID, voteType, new IVoteCallback() {
+            @Override
+            public void onVoteSuccess(int savedVoteType, @Nullable Long voteDifference) {
+                setRememberedCommentVote(comment, userID, voteType);
+                invalidateCommentTree(comment);
+                Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Vote " + voteType + " saved on " + comment.getCommentID());
+                callback.onVoteSuccess(savedVoteType, voteDifference);
+            }
+
+            @Override
+            public void onVoteFailure(String errorMsg) {
+                Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error saving vote: " + errorMsg);
+                callback.onVoteFailure(errorMsg);
+            }
+        });
+    }
+
+    /**
+     * Get the votes of a user on every comment of a post in one query, instead of one {@link #getVoteStatus} read per
+     * comment. The result is memoized per post and kept up to date by {@link #updateVoteCount}.
+     * <br></br><br></br><strong>*Notes:</strong>
+     * <br></br>- Needs the collection group index on <strong>Vote.userID</strong> to be enabled.
+     *
+     * @param communityID the community of the post.
+     * @param postID      the post whose comment votes are fetched.
+     * @param userID      the user (current user using the app).
+     * @param callback    the callback containing the vote type by comment ID.
+     */
+    public void loadCommentVotes(String communityID, String postID, String userID, ICommentVotesCallback callback) {
+        DocumentReference postRef = db.collection("Community")
+                .document(communityID)
+                .collection("Post")
+                .document(postID);
+        String key = commentVotesKey(postRef, userID);
+        Map<String, Integer> memoized = commentVotes.get(key);
+        if (memoized != null) {
+            callback.onGetCommentVotesSuccess(new HashMap<>(memoized));
+            return;
+        }
+        // every Vote document of the user whose path is under the post, that is the post vote and the comment votes
+        db.collectionGroup("Vote")
+                .whereEqualTo("userID", userID)
+                .orderBy(FieldPath.documentId())
+                .startAt(postRef.getPath())
+                .endAt(postRef.getPath() + "\uf8ff")
+                .get()
+                .addOnSuccessListener(queryDocumentSnapshots -> {
+                    Map<String, Integer> votes = new HashMap<>();
+                    for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+                        DocumentReference commentRef = document.getReference().getParent().getParent();
+                        // skip the post vote and the votes of posts whose ID starts with this post ID
+                        if (commentRef == null || !commentRef.getParent().getId().equals("Comment")) continue;
+                        DocumentReference parentPostRef = commentRef.getParent().getParent();
+                        if (parentPostRef == null || !parentPostRef.getPath().equals(postRef.getPath())) continue;
+                        Long voteType = document.getLong("voteType");
+                        if (voteType != null && voteType != 0) {
+                            votes.put(commentRef.getId(), voteType.intValue());
+                        }
+                    }
+                    commentVotes.put(key, votes);
+                    Log.d(FlagsList.DEBUG_COMMENT_FLAG, "Loaded " + votes.size() + " comment votes of post " + postID);
+                    callback.onGetCommentVotesSuccess(new HashMap<>(votes));
+                })
+                .addOnFailureListener(e -> {
+                    callback.onGetCommentVotesFailure(e.getMessage());
+                    Log.w(FlagsList.DEBUG_COMMENT_FLAG, "Error getting comment votes.", e);
+                });
+    }
+
+    private String commentVotesKey(DocumentReference postRef, String userID) {
+        return userID + "@" + postRef.getPath();
+    }
+
+    // apply the toggle semantics of updateVoteCount to the memoized votes
+    private void rememberCommentVote(Comment comment, String userID, int voteType) {
+        Map<String, Integer> votes = rememberedCommentVotes(comment, userID);
+        if (votes == null) return;
+        Integer oldVoteType = votes.get(comment.getCommentID());
+        setRememberedCommentVote(comment, userID, oldVoteType != null && oldVoteType == voteType ? 0 : voteType);
+    }
+
+    private void setRememberedCommentVote(Comment comment, String userID, int voteType) {
+        Map<String, Integer> votes = rememberedCommentVotes(comment, userID);
+        if (votes == null) return;
+        if (voteType == 0) {
+            votes.remove(comment.getCommentID());
+        } else {
+            votes.put(comment.getCommentID(), voteType);
+        }
+    }
+
+    private Map<String, Integer> rememberedCommentVotes(Comment comment, String userID) {
+        DocumentReference postRef = db.collection("Community")
+                .document(comment.getCommunityID())
+                .collection("Post")
+                .document(comment.getPostID());
+        return commentVotes.get(commentVotesKey(postRef, userID));
+    }
+
     /**
      * Get vote status of a comment.
      * @param comment the comment to get vote status.
@@ -413,18 +854,18 @@ public class CommentRepository {
                 .collection("Vote")
                 .document(userID);
 
-        voteRef.get().addOnSuccessListener(new OnSuccessListener<DocumentSnapshot>() {
+        CacheFirstReader.get(voteRef, readMode, new CacheFirstReader.DocumentListener() {
             @Override
-            public void onSuccess(DocumentSnapshot documentSnapshot) {
+            public void onResult(DocumentSnapshot documentSnapshot) {
                 if (documentSnapshot.exists()) {
                     callback.onGetVoteStatusSuccess(documentSnapshot.getLong("voteType").intValue());
                 } else {
                     callback.onGetVoteStatusSuccess(0);
                 }
             }
-        }).addOnFailureListener(new OnFailureListener() {
+
             @Override
-            public void onFailure(@NonNull Exception e) {
+            public void onError(@NonNull Exception e) {
                 callback.onGetVoteStatusSuccess(0);
             }
         });
@@ -0,0 +1,112 @@
+package com.example.eduforum.activity.repository.comment;
+
+import com.example.eduforum.activity.model.post_manage.Comment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every comment of a post, indexed by parent. Built once in O(n) from a flat list of comments, after that the
+ * replies of any comment are a map lookup.
+ */
+public class CommentTree {
+    private final List<Comment> topLevelComments = new ArrayList<>();
+    private final Map<String, List<Comment>> repliesByParent = new HashMap<>();
+    private final int size;
+
+    /**
+     * @param comments every comment of the post, in display order. The order is kept inside each level.
+     */
+    public CommentTree(List<Comment> comments) {
+        for (Comment comment : comments) {
+            String parentID = comment.getReplyCommentID();
+            if (parentID == null) {
+                topLevelComments.add(comment);
+            } else {
+                List<Comment> replies = repliesByParent.get(parentID);
+                if (replies == null) {
+                    replies = new ArrayList<>();
+                    repliesByParent.put(parentID, replies);
+                }
+                replies.add(comment);
+            }
+        }
+        size = comments.size();
+    }
+
+    public List<Comment> getTopLevelComments() {
+        return Collections.unmodifiableList(topLevelComments);
+    }
+
+    /**
+     * @return the direct replies of the comment, an empty list if it has none.
+     */
+    public List<Comment> getReplies(String commentID) {
+        List<Comment> replies = repliesByParent.get(commentID);
+        return replies != null ? Collections.unmodifiableList(replies) : Collections.<Comment>emptyList();
+    }
+
+    /**
+     * @return every comment, each top-level comment followed by its replies (depth first).
+     * Replies whose parent no longer exists are left out.
+     */
+    public List<Comment> flatten() {
+        List<Comment> flat = new ArrayList<>(size);
+        for (Comment comment : topLevelComments) {
+            addWithReplies(comment, flat);
+        }
+        return flat;
+    }
+
+    /**
+     * Same as {@link #flatten()} with the top-level comments in the given order, the replies stay oldest first.
+     */
+    public List<Comment> flatten(CommentQuery order) {
+        List<Comment> ordered = new ArrayList<>(topLevelComments);
+        Collections.sort(ordered, comparatorOf(order));
+        List<Comment> flat = new ArrayList<>(size);
+        for (Comment comment : ordered) {
+            addWithReplies(comment, flat);
+        }
+        return flat;
+    }
+
+    private static Comparator<Comment> comparatorOf(CommentQuery order) {
+        Comparator<Comment> oldestFirst = (a, b) -> {
+            if (a.getTimeCreated() == null || b.getTimeCreated() == null) {
+                return a.getTimeCreated() == null ? (b.getTimeCreated() == null ? 0 : -1) : 1;
+            }
+            return a.getTimeCreated().compareTo(b.getTimeCreated());
+        };
+        switch (order) {
+            case NEWEST:
+                return (a, b) -> oldestFirst.compare(b, a);
+            case BEST:
+                return (a, b) -> {
+                    int votesA = a.getVoteDifference() != null ? a.getVoteDifference() : 0;
+                    int votesB = b.getVoteDifference() != null ? b.getVoteDifference() : 0;
+                    return votesA != votesB ? Integer.compare(votesB, votesA) : oldestFirst.compare(a, b);
+                };
+            case OLDEST:
+            default:
+                return oldestFirst;
+        }
+    }
+
+    private void addWithReplies(Comment comment, List<Comment> flat) {
+        flat.add(comment);
+        List<Comment> replies = repliesByParent.get(comment.getCommentID());
+        if (replies == null) return;
+        for (Comment reply : replies) {
+            addWithReplies(reply, flat);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.eduforum.activity.repository.comment;
+
+import com.example.eduforum.activity.model.post_manage.Comment;
+
+import java.util.List;
+
+public interface ICommentChangesCallback {
+    /**
+     * Called with the changes of every snapshot, the first snapshot reports each matching comment as added.
+     *
+     * @param added      comments that entered the listened query, oldest first
+     * @param modified   comments whose content or counters changed
+     * @param removedIDs IDs of the comments that were deleted
+     */
+    void onCommentsChanged(List<Comment> added, List<Comment> modified, List<String> removedIDs);
+
+    void onCommentChangesFailure(String errorMsg);
+}
@@ -0,0 +1,19 @@
+package com.example.eduforum.activity.repository.comment;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+public interface ICommentPageCallback {
+    /**
+     * @param comments    the comments of the requested page, in display order
+     * @param lastVisible the cursor to pass back to load the next page, null if the page is empty
+     * @param hasMore     false when every comment has been loaded
+     */
+    void onGetCommentPageSuccess(List<Comment> comments, @Nullable DocumentSnapshot lastVisible, boolean hasMore);
+
+    void onGetCommentPageFailure(String errorMsg);
+}
@@ -0,0 +1,12 @@
+package com.example.eduforum.activity.repository.comment;
+
+import java.util.Map;
+
+public interface ICommentVotesCallback {
+    /**
+     * @param voteTypes vote type of the user by comment ID (1: upvote, -1: downvote), comments the user did not vote on are absent
+     */
+    void onGetCommentVotesSuccess(Map<String, Integer> voteTypes);
+
+    void onGetCommentVotesFailure(String errorMsg);
+}
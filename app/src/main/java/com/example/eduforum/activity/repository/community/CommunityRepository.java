@@ -7,11 +7,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.example.eduforum.activity.model.community_manage.Community;
+import com.example.eduforum.activity.model.community_manage.CommunityMember;
 import com.example.eduforum.activity.model.user_manage.User;
 import com.example.eduforum.activity.repository.community.dto.CreateCommunityDTO;
 import com.example.eduforum.activity.repository.community.dto.IUpdateCommunityCallback;
 import com.example.eduforum.activity.repository.community.dto.JoinRequestDTO;
 import com.example.eduforum.activity.repository.community.dto.UpdateCommunityDTO;
+import com.example.eduforum.activity.repository.shared.CacheFirstReader;
+import com.example.eduforum.activity.repository.shared.DocumentMappers;
+import com.example.eduforum.activity.repository.shared.EntityCaches;
+import com.example.eduforum.activity.repository.shared.ReadMode;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
@@ -61,6 +66,7 @@ public class CommunityRepository {
     List<Community> communities;
 
     private ListenerRegistration registration;
+    private ReadMode readMode = ReadMode.CACHE_FIRST;
 
     private final FirebaseAuth currentUser;
 
@@ -81,6 +87,13 @@ public class CommunityRepository {
 
     }
 
+    /**
+     * Read mode of the notification status, explore and member approval reads.
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
     // TODO: anh trí nhớ gọi removeListener() khi không cần theo dõi nữa
     public void removeListener() {
         if (registration != null) registration.remove();
@@ -241,37 +254,35 @@ public class CommunityRepository {
      * @param callBack    the callback to be called when the operation is done, providing the notification status (true if on, false if off)
      */
     public void getNotificationStatus(String communityID, INotificationStatus callBack) {
-        db.collection("Community")
+        DocumentReference subscriptionRef = db.collection("Community")
                 .document(communityID)
                 .collection("Subscription")
-                .document("subscription")
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-                                try {
-                                    List<String> userList = (List<String>) document.get("userList");
-                                    if (userList == null) {
-                                        userList = new ArrayList<>();
-                                        callBack.onNotificationStatusSuccess(false);
-                                    } else {
-                                        callBack.onNotificationStatusSuccess(userList.contains(currentUser.getUid()));
-                                    }
-                                } catch (Exception e) {
-                                    Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "get notification status failed with: ", task.getException());
-                                }
-                            } else {
-                                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "get notification status failed, no document exist! ");
-
-                            }
+                .document("subscription");
+        CacheFirstReader.get(subscriptionRef, readMode, new CacheFirstReader.DocumentListener() {
+            @Override
+            public void onResult(DocumentSnapshot document) {
+                if (document.exists()) {
+                    try {
+                        List<String> userList = (List<String>) document.get("userList");
+                        if (userList == null) {
+                            callBack.onNotificationStatusSuccess(false);
                         } else {
-                            Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Notification status get failed with ", task.getException());
+                            callBack.onNotificationStatusSuccess(userList.contains(currentUser.getUid()));
                         }
+                    } catch (Exception e) {
+                        Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "get notification status failed with: ", e);
                     }
-                });
+                } else {
+                    Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "get notification status failed, no document exist! ");
+
+                }
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Notification status get failed with ", e);
+            }
+        });
     }
 
 
@@ -341,32 +352,30 @@ public class CommunityRepository {
         getAllCommunityInMemberApprovalOfUser(userID, new IGetMemberApprovalState() {
             @Override
             public void onGetMemberApprovalStateSuccess(Map<String, Boolean> memberApprovalState) {
-                db.collection("Community")
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    List<Community> communities = new ArrayList<>();
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-                                        Community community = document.toObject(Community.class);
-                                        Boolean hasVisibility = community.getVisibility() != null;
-                                        Boolean isFetchedCommunity = (hasVisibility) ? community.getVisibility().equals("all") : false;
-                                        if (!community.getUserList().contains(userID) && !community.getAdminList().contains(userID) && !community.getVisibility().equals("all") && !isFetchedCommunity) {
-                                            community.setCommunityId(document.getId());
-                                            Boolean isMemberApproval = memberApprovalState.containsKey(community.getCommunityId());
-                                            community.setRequestSent(isMemberApproval);
-                                            communities.add(community);
-                                        }
-                                        Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, document.getId() + " => " + document.getData());
-                                    }
-                                    callback.onGetCommunitySuccess(communities);
-                                } else {
-                                    Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Error getting documents: ", task.getException());
-                                    callback.onGetCommunityFailure(FlagsList.ERROR_COMMUNITY_FAILED_TO_GET_COMMUNITY);
-                                }
+                CacheFirstReader.get(db.collection("Community"), readMode, new CacheFirstReader.QueryListener() {
+                    @Override
+                    public void onResult(QuerySnapshot snapshot) {
+                        List<Community> communities = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : snapshot) {
+                            Community community = DocumentMappers.toCommunity(document);
+                            Boolean hasVisibility = community.getVisibility() != null;
+                            Boolean isFetchedCommunity = (hasVisibility) ? community.getVisibility().equals("all") : false;
+                            if (!community.getUserList().contains(userID) && !community.getAdminList().contains(userID) && !community.getVisibility().equals("all") && !isFetchedCommunity) {
+                                community.setCommunityId(document.getId());
+                                Boolean isMemberApproval = memberApprovalState.containsKey(community.getCommunityId());
+                                community.setRequestSent(isMemberApproval);
+                                communities.add(community);
                             }
-                        });
+                        }
+                        callback.onGetCommunitySuccess(communities);
+                    }
+
+                    @Override
+                    public void onError(@NonNull Exception e) {
+                        Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Error getting documents: ", e);
+                        callback.onGetCommunityFailure(FlagsList.ERROR_COMMUNITY_FAILED_TO_GET_COMMUNITY);
+                    }
+                });
             }
 
             @Override
@@ -388,7 +397,7 @@ public class CommunityRepository {
                         @Override
                         public void onSuccess(QuerySnapshot queryDocumentSnapshots) {
                             for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, document.getId() + " => " + document.getData());
+                                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Member approval " + document.getId());
                                 String commuID = document.getReference().getParent().getParent().getId();
                                 res.put(commuID, true);
                             }
@@ -463,28 +472,26 @@ public class CommunityRepository {
      * @param callback    the callback to be called when the operation is done, providing a list of users
      */
     public void getMemberApproval(String communityID, IGetMemberApproval callback) {
-        db.collection("Community")
+        Query approvalQuery = db.collection("Community")
                 .document(communityID)
-                .collection("MemberApproval")
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                        if (task.isSuccessful()) {
-                            List<User> users = new ArrayList<>();
-                            for (QueryDocumentSnapshot document : task.getResult()) {
-                                User user = document.toObject(User.class);
-                                user.setUserId(document.getData().get("userID").toString());
-                                users.add(user);
-                                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, document.getId() + " => " + document.getData());
-                            }
-                            callback.onGetMemberApprovalSuccess(users);
-                        } else {
-                            Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Error getting documents: ", task.getException());
-                            callback.onGetMemberApprovalFailure("Failed to fetch MemberApproval!");
-                        }
-                    }
-                });
+                .collection("MemberApproval");
+        CacheFirstReader.get(approvalQuery, readMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot snapshot) {
+                List<User> users = new ArrayList<>();
+                for (QueryDocumentSnapshot document : snapshot) {
+                    User user = DocumentMappers.toUser(document, document.getString("userID"));
+                    users.add(user);
+                }
+                callback.onGetMemberApprovalSuccess(users);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Error getting documents: ", e);
+                callback.onGetMemberApprovalFailure("Failed to fetch MemberApproval!");
+            }
+        });
     }
 
     /**
@@ -511,6 +518,7 @@ public class CommunityRepository {
             @Override
             public void onComplete(@NonNull Task<Void> task) {
                 if (task.isSuccessful()) {
+                    EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID);
                     Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "User " + userID + " is approved to join community " + communityID);
                 } else {
                     Log.w(FlagsList.DEBUG_COMMUNITY_FLAG, "Error approving user", task.getException());
@@ -529,6 +537,7 @@ public class CommunityRepository {
                 .addOnSuccessListener(new OnSuccessListener<HttpsCallableResult>() {
                     @Override
                     public void onSuccess(HttpsCallableResult httpsCallableResult) {
+                        EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID);
                         Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Approve all user request to join community success!");
                         Map<String, Object> result = (Map<String, Object>) httpsCallableResult.getData();
                         if (result.containsKey("error")) {
@@ -572,6 +581,7 @@ public class CommunityRepository {
             @Override
             public void onComplete(@NonNull Task<Void> task) {
                 if (task.isSuccessful()) {
+                    EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID);
                     Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "User " + userID + " is now an admin of community " + communityID);
                 } else {
                     Log.w(FlagsList.DEBUG_COMMUNITY_FLAG, "Error making user an admin", task.getException());
@@ -590,7 +600,8 @@ public class CommunityRepository {
     public void removeAdmin(String communityID, String userID) {
         db.collection("Community")
                 .document(communityID)
-                .update("adminList", FieldValue.arrayRemove(userID));
+                .update("adminList", FieldValue.arrayRemove(userID))
+                .addOnSuccessListener(aVoid -> EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID));
 
     }
 
@@ -607,6 +618,7 @@ public class CommunityRepository {
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
+                        EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID);
                         Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "user successfully removed!");
                     }
                 })
@@ -636,7 +648,7 @@ public class CommunityRepository {
                     public void onComplete(@NonNull Task<QuerySnapshot> task) {
                         if (task.isSuccessful()) {
                             for (QueryDocumentSnapshot document : task.getResult()) {
-                                Community community = document.toObject(Community.class);
+                                Community community = DocumentMappers.toCommunity(document);
                                 List<String> userList = community.getUserList();
                                 userList.add(userId);
                                 db.collection("Community").document(community.getCommunityId())
@@ -644,6 +656,7 @@ public class CommunityRepository {
                                         .addOnSuccessListener(new OnSuccessListener<Void>() {
                                             @Override
                                             public void onSuccess(Void aVoid) {
+                                                EntityCaches.COMMUNITY_MEMBERS.invalidate(community.getCommunityId());
                                                 callBack.onJoinCommunitySuccess(FlagsList.ERROR_COMMUNITY_SUCCESS_TO_JOIN);
                                             }
                                         })
@@ -677,8 +690,8 @@ public class CommunityRepository {
                     NewPost newPost = document.toObject(NewPost.class);
 //                    res.add(newPost);
                     res.put(newPost.getCommunityID(), newPost.getTotalNewPost());
-                    Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, document.getId() + " => " + document.getData());
                 }
+                Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "Fetched the new post counts of " + res.size() + " communities");
                 callback.onCallback(res);
             }
         });
@@ -709,7 +722,7 @@ public class CommunityRepository {
                                 List<Community> isAdminOf = new ArrayList<>();
                                 List<Community> isGlobal = new ArrayList<>();
                                 for (QueryDocumentSnapshot doc : snapshots) {
-                                    Community community = doc.toObject(Community.class);
+                                    Community community = DocumentMappers.toCommunity(doc);
                                     // TODO: make sure this is correct
                                     community.setCommunityId(doc.getId());
                                     community.setTotalNewPost(newPosts.get(community.getCommunityId()));
@@ -748,12 +761,31 @@ public class CommunityRepository {
     }
 
     /**
-     * Get community's member list
+     * Get community's member list, from {@link EntityCaches#COMMUNITY_MEMBERS} if it was read a short time ago
      *
      * @param communityID community ID
      * @param callBackC   callback provides list of user ID and admin ID in the community
      */
     public void getCommunityMember(String communityID, ICommunityCallBack_C callBackC) {
+        List<CommunityMember> cachedMembers = EntityCaches.COMMUNITY_MEMBERS.get(communityID);
+        if (cachedMembers != null) {
+            List<User> userList = new ArrayList<>();
+            List<User> adminList = new ArrayList<>();
+            for (CommunityMember member : cachedMembers) {
+                User user = new User();
+                user.setUserId(member.getMemberId());
+                user.setName(member.getName());
+                user.setProfilePicture(member.getProfileImage());
+                user.setDepartment(member.getDepartment());
+                if (Boolean.TRUE.equals(member.getAdmin())) {
+                    adminList.add(user);
+                } else {
+                    userList.add(user);
+                }
+            }
+            callBackC.onGetCommunityMemberSuccess(userList, adminList);
+            return;
+        }
         // Create a Map to hold the data
         Map<String, Object> data = new HashMap<>();
         data.put("communityID", communityID);
@@ -792,6 +824,14 @@ public class CommunityRepository {
                             adminList.add(admin);
                         }
 
+                        List<CommunityMember> members = new ArrayList<>();
+                        for (User user : userList) {
+                            members.add(new CommunityMember(communityID, user, false));
+                        }
+                        for (User admin : adminList) {
+                            members.add(new CommunityMember(communityID, admin, true));
+                        }
+                        EntityCaches.COMMUNITY_MEMBERS.put(communityID, members);
                         callBackC.onGetCommunityMemberSuccess(userList, adminList);
                     }
                 })
@@ -837,6 +877,7 @@ public class CommunityRepository {
                     callback.onLeaveCommunityFailure("lastAdmin");
                     Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "leave community failed: last admin");
                 } else {
+                    EntityCaches.COMMUNITY_MEMBERS.invalidate(communityID);
                     callback.onLeaveCommunitySuccess();
                     Log.d(FlagsList.DEBUG_COMMUNITY_FLAG, "leave community success");
                 }
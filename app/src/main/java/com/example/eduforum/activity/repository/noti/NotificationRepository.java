@@ -7,6 +7,7 @@ import androidx.annotation.NonNull;
 import com.example.eduforum.activity.model.noti_manage.Notification;
 import com.example.eduforum.activity.repository.community.NewPost;
 import com.example.eduforum.activity.repository.post.PostRepository;
+import com.example.eduforum.activity.repository.shared.DocumentMappers;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnSuccessListener;
@@ -105,14 +106,9 @@ public class NotificationRepository {
                     }
                     List<Notification> data = new ArrayList<>();
                     for (QueryDocumentSnapshot document : value) {
-                        Notification newNotification = document.toObject(Notification.class);
-//                        Log.d(FlagsList.DEBUG_NOTIFICATION_FLAG, "Notification data: " + document.getData().get("isRead"));
-//                        Log.d(FlagsList.DEBUG_NOTIFICATION_FLAG, "Notification object: " + newNotification.isRead());
-                        newNotification.setIsRead((boolean) document.getData().get("isRead"));
-                        newNotification.setNotificationID(document.getId());
-                        data.add(newNotification);
-                        Log.d(FlagsList.DEBUG_NOTIFICATION_FLAG, document.getId() + " => " + document.getData());
+                        data.add(DocumentMappers.toNotification(document));
                     }
+                    Log.d(FlagsList.DEBUG_NOTIFICATION_FLAG, "Fetched " + data.size() + " notifications");
                     callback.onGetRealtimeSuccess(data);
                 });
     }
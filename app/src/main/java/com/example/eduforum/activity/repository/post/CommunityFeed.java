@@ -0,0 +1,121 @@
+package com.example.eduforum.activity.repository.post;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The newest-first feed of one community held by {@link PostRepository} between visits.
+ * <br></br>
+ * {@code lastModifiedMark} is the highest {@code lastModified} among the held posts: every post changed after it
+ * is unknown to the feed, every post changed before it is already held (or not loaded yet by paging).
+ */
+class CommunityFeed {
+    private final List<Post> posts = new ArrayList<>();
+    @Nullable
+    private DocumentSnapshot lastVisible;
+    private boolean hasMore;
+    @Nullable
+    private Timestamp lastModifiedMark;
+    private final long syncedAt;
+    // set once the page after the first one is requested, see PostRepository#syncFeed
+    private boolean isPaged;
+
+    CommunityFeed(List<Post> firstPage, @Nullable DocumentSnapshot lastVisible, boolean hasMore) {
+        this.syncedAt = System.currentTimeMillis();
+        appendPage(firstPage, lastVisible, hasMore);
+    }
+
+    void appendPage(List<Post> page, @Nullable DocumentSnapshot newLastVisible, boolean hasMore) {
+        posts.addAll(page);
+        if (newLastVisible != null) lastVisible = newLastVisible;
+        this.hasMore = hasMore;
+        for (Post post : page) {
+            raiseMark(post);
+        }
+    }
+
+    /**
+     * Merge the posts changed since {@link #getLastModifiedMark()} into the feed.
+     * A changed post older than the loaded pages is skipped, paging will read it in order later.
+     *
+     * @return the number of posts added or replaced
+     */
+    int merge(List<Post> changedPosts) {
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < posts.size(); i++) {
+            indexById.put(posts.get(i).getPostID(), i);
+        }
+        Timestamp oldestLoaded = lastVisible == null ? null : lastVisible.getTimestamp("timeCreated");
+        int merged = 0;
+        for (Post post : changedPosts) {
+            raiseMark(post);
+            Integer index = indexById.get(post.getPostID());
+            if (index != null) {
+                posts.set(index, post);
+                merged++;
+            } else if (!hasMore || oldestLoaded == null || post.getTimeCreated() == null
+                    || post.getTimeCreated().compareTo(oldestLoaded) >= 0) {
+                posts.add(post);
+                merged++;
+            }
+        }
+        if (merged > 0) {
+            Collections.sort(posts, (a, b) -> {
+                if (a.getTimeCreated() == null || b.getTimeCreated() == null) {
+                    return a.getTimeCreated() == null ? (b.getTimeCreated() == null ? 0 : -1) : 1;
+                }
+                return b.getTimeCreated().compareTo(a.getTimeCreated());
+            });
+        }
+        return merged;
+    }
+
+    private void raiseMark(Post post) {
+        Timestamp modified = post.getLastModified() != null ? post.getLastModified() : post.getTimeCreated();
+        if (modified != null && (lastModifiedMark == null || modified.compareTo(lastModifiedMark) > 0)) {
+            lastModifiedMark = modified;
+        }
+    }
+
+    List<Post> getPosts() {
+        return new ArrayList<>(posts);
+    }
+
+    @Nullable
+    DocumentSnapshot getLastVisible() {
+        return lastVisible;
+    }
+
+    boolean hasMore() {
+        return hasMore;
+    }
+
+    @Nullable
+    Timestamp getLastModifiedMark() {
+        return lastModifiedMark;
+    }
+
+    void markPaged() {
+        isPaged = true;
+    }
+
+    /**
+     * @return whether a page after the first one was requested, a new read of the first page must not replace the feed
+     */
+    boolean isPaged() {
+        return isPaged;
+    }
+
+    long getSyncedAt() {
+        return syncedAt;
+    }
+}
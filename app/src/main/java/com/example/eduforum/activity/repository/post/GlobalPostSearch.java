@@ -0,0 +1,112 @@
+package com.example.eduforum.activity.repository.post;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.example.eduforum.activity.util.FlagsList;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * A search of one keyword across several communities (scatter-gather).
+ * <br></br>
+ * At most {@link #MAX_CONCURRENT_SEARCHES} communities are searched at the same time, the next one starts when one
+ * gives its last answer (its server result, or its held posts when they are the whole community), so a user of many
+ * communities does not send every read at once. The results are merged into one
+ * {@link PostSearchIndex} and ranked again together, so that the scores of different communities compare, and the
+ * merged ranking is delivered after each answer: the first hits are shown before the slow communities answer.
+ */
+public class GlobalPostSearch {
+    public static final int MAX_CONCURRENT_SEARCHES = 4;
+    private final PostRepository repository;
+    private final String keyword;
+    private final IGlobalSearchCallback callback;
+    private final Queue<String> pendingCommunities;
+    private final int total;
+    // communities that gave their complete answer or failed, their slot is free
+    private final Set<String> completedCommunities = new HashSet<>();
+    private final PostSearchIndex mergedResults = new PostSearchIndex();
+    private int inFlight;
+    private int failed;
+    private boolean isCancelled;
+
+    GlobalPostSearch(PostRepository repository, List<String> communityIDs, String keyword, IGlobalSearchCallback callback) {
+        this.repository = repository;
+        this.keyword = keyword;
+        this.callback = callback;
+        this.pendingCommunities = new ArrayDeque<>(new HashSet<>(communityIDs));
+        this.total = pendingCommunities.size();
+    }
+
+    void start() {
+        if (total == 0) {
+            callback.onGlobalSearchComplete(mergedResults.search(keyword), 0);
+            return;
+        }
+        launchNext();
+    }
+
+    /**
+     * Stop starting searches and delivering results, the searches already sent are ignored when they answer.
+     */
+    public void cancel() {
+        isCancelled = true;
+        pendingCommunities.clear();
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    private void launchNext() {
+        while (!isCancelled && inFlight < MAX_CONCURRENT_SEARCHES && !pendingCommunities.isEmpty()) {
+            String communityID = pendingCommunities.poll();
+            inFlight++;
+            repository.searchCommunity(communityID, keyword, new PostRepository.SearchListener() {
+                @Override
+                public void onResult(List<Post> posts, boolean isComplete) {
+                    if (isCancelled) return;
+                    for (Post post : posts) {
+                        if (post.getCommunityID() == null) post.setCommunityID(communityID);
+                    }
+                    // a community can answer a second time with the server matches, it only updates the ranking
+                    mergedResults.index(posts);
+                    onAnswered(communityID, isComplete, false);
+                }
+
+                @Override
+                public void onError(@NonNull Exception e) {
+                    if (isCancelled) return;
+                    Log.w(FlagsList.DEBUG_POST_FLAG, "Global search skipped " + communityID, e);
+                    onAnswered(communityID, true, true);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param isComplete the last answer of the community, its search no longer runs
+     */
+    private void onAnswered(String communityID, boolean isComplete, boolean isFailure) {
+        boolean isCompleted = isComplete && completedCommunities.add(communityID);
+        if (isCompleted) {
+            inFlight--;
+            if (isFailure) failed++;
+        }
+        List<Post> results = mergedResults.search(keyword);
+        if (completedCommunities.size() == total) {
+            callback.onGlobalSearchComplete(results, failed);
+            return;
+        }
+        callback.onGlobalSearchProgress(results, completedCommunities.size(), total);
+        if (isCompleted) {
+            launchNext();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.eduforum.activity.repository.post;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The newest-first feed of every post of several communities, paged by {@link PostRepository#loadHomeFeedPage}.
+ * <br></br>
+ * The communities are split into chunks of {@link #COMMUNITIES_PER_QUERY}, each chunk is one
+ * {@code collectionGroup("Post").whereIn("communityID", chunk)} query with its own cursor. A chunk is read
+ * {@code pageSize} posts at a time into a buffer, and the pages are taken from the buffers with a k-way merge: while
+ * every chunk that has more posts holds at least a page in its buffer, no unread post can belong in the page.
+ * A page therefore reads at most {@code pageSize} posts per chunk, whatever the number of communities.
+ */
+public class HomeFeed {
+    // Firestore limits the values of a whereIn filter
+    static final int COMMUNITIES_PER_QUERY = 10;
+    private static final Comparator<Post> NEWEST_FIRST = PostQueryEngine.comparatorOf(PostQuery.NEWEST);
+
+    static class Chunk {
+        final List<String> communityIDs;
+        final Deque<Post> buffer = new ArrayDeque<>();
+        @Nullable
+        DocumentSnapshot lastVisible;
+        boolean hasMore = true;
+
+        Chunk(List<String> communityIDs) {
+            this.communityIDs = communityIDs;
+        }
+    }
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Set<String> deliveredIDs = new HashSet<>();
+    private boolean isLoading;
+
+    HomeFeed(List<String> communityIDs) {
+        List<String> distinct = new ArrayList<>(new HashSet<>(communityIDs));
+        Collections.sort(distinct);
+        for (int i = 0; i < distinct.size(); i += COMMUNITIES_PER_QUERY) {
+            int end = Math.min(distinct.size(), i + COMMUNITIES_PER_QUERY);
+            chunks.add(new Chunk(new ArrayList<>(distinct.subList(i, end))));
+        }
+    }
+
+    /**
+     * @return the chunks whose buffer must be filled before the next page of {@code pageSize} posts is merged
+     */
+    List<Chunk> chunksToFill(int pageSize) {
+        List<Chunk> toFill = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.hasMore && chunk.buffer.size() < pageSize) {
+                toFill.add(chunk);
+            }
+        }
+        return toFill;
+    }
+
+    /**
+     * Take the next page out of the buffers, the chunks of {@link #chunksToFill} must be filled first.
+     */
+    List<Post> mergePage(int pageSize) {
+        PriorityQueue<Chunk> heads = new PriorityQueue<>(Math.max(1, chunks.size()),
+                (a, b) -> NEWEST_FIRST.compare(a.buffer.peekFirst(), b.buffer.peekFirst()));
+        for (Chunk chunk : chunks) {
+            if (!chunk.buffer.isEmpty()) heads.add(chunk);
+        }
+        List<Post> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && !heads.isEmpty()) {
+            Chunk chunk = heads.poll();
+            Post post = chunk.buffer.pollFirst();
+            if (deliveredIDs.add(post.getPostID())) {
+                page.add(post);
+            }
+            if (!chunk.buffer.isEmpty()) heads.add(chunk);
+        }
+        return page;
+    }
+
+    public boolean hasMore() {
+        for (Chunk chunk : chunks) {
+            if (chunk.hasMore || !chunk.buffer.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    boolean isLoading() {
+        return isLoading;
+    }
+
+    void setLoading(boolean isLoading) {
+        this.isLoading = isLoading;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.eduforum.activity.repository.post;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The hottest posts of a community, updated one changed post at a time.
+ * <br></br>
+ * The score of a post is {@code log10(engagement) + timeCreated / DECAY_SECONDS} with
+ * {@code engagement = voteDifference + COMMENT_WEIGHT * totalComment}: ten times the engagement is worth
+ * {@link #DECAY_SECONDS} of age. The score does not depend on the current time, so the ranking only moves when
+ * a post changes and a change costs a few removals and insertions in sorted sets, never a full re-sort.
+ * <br></br>
+ * Every post of the listened window is kept: the shown posts in one set, the others in a second set, so a post
+ * leaving the top is replaced by the best of the others without reading the community again.
+ */
+class HotRanking {
+    static final double DECAY_SECONDS = 45000;
+    static final int COMMENT_WEIGHT = 2;
+    // scores are counted from 2024-01-01 to keep them small
+    private static final long EPOCH_SECONDS = 1704067200L;
+
+    private static class Entry {
+        final Post post;
+        final double score;
+
+        Entry(Post post, double score) {
+            this.post = post;
+            this.score = score;
+        }
+    }
+
+    // best first
+    private static final Comparator<Entry> BEST_FIRST = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : a.post.getPostID().compareTo(b.post.getPostID());
+    };
+
+    private final int size;
+    // the posts of top(), every one of them is better than every post of others
+    private final TreeSet<Entry> shown = new TreeSet<>(BEST_FIRST);
+    // not empty only when shown is full
+    private final TreeSet<Entry> others = new TreeSet<>(BEST_FIRST);
+    private final Map<String, Entry> entryById = new HashMap<>();
+
+    /**
+     * @param size number of posts returned by {@link #top()}
+     */
+    HotRanking(int size) {
+        this.size = size;
+    }
+
+    static double score(Post post) {
+        int votes = post.getVoteDifference() != null ? post.getVoteDifference() : 0;
+        int comments = post.getTotalComment() != null ? post.getTotalComment() : 0;
+        int engagement = votes + COMMENT_WEIGHT * comments;
+        double order = Math.log10(Math.max(Math.abs(engagement), 1));
+        long seconds = post.getTimeCreated() != null ? post.getTimeCreated().getSeconds() : EPOCH_SECONDS;
+        return Integer.signum(engagement) * order + (seconds - EPOCH_SECONDS) / DECAY_SECONDS;
+    }
+
+    /**
+     * Insert the post or move it to its new score, in O(log n) for n posts held.
+     *
+     * @return true if the posts of {@link #top()} changed
+     */
+    boolean update(Post post) {
+        if (post.getPostID() == null) return false;
+        boolean wasShown = remove(post.getPostID());
+        Entry entry = new Entry(post, score(post));
+        entryById.put(post.getPostID(), entry);
+        if (shown.size() < size || BEST_FIRST.compare(entry, shown.last()) < 0) {
+            shown.add(entry);
+            if (shown.size() > size) {
+                others.add(shown.pollLast());
+            }
+            return true;
+        }
+        others.add(entry);
+        return wasShown;
+    }
+
+    /**
+     * Forget a post, in O(log n).
+     *
+     * @return true if the post was in {@link #top()}
+     */
+    boolean remove(String postID) {
+        Entry entry = entryById.remove(postID);
+        if (entry == null) return false;
+        if (shown.remove(entry)) {
+            Entry next = others.pollFirst();
+            if (next != null) {
+                shown.add(next);
+            }
+            return true;
+        }
+        others.remove(entry);
+        return false;
+    }
+
+    /**
+     * @return the hottest posts, best first
+     */
+    List<Post> top() {
+        List<Post> top = new ArrayList<>(shown.size());
+        for (Entry entry : shown) {
+            top.add(entry.post);
+        }
+        return top;
+    }
+}
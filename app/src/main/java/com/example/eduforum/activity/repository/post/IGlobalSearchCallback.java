@@ -0,0 +1,23 @@
+package com.example.eduforum.activity.repository.post;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.util.List;
+
+public interface IGlobalSearchCallback {
+    /**
+     * Called each time a community answers, a community can answer with its held posts before its server result.
+     *
+     * @param results  the results of every community answered so far, best first, replace the displayed list
+     * @param answered number of communities that gave their complete answer or failed
+     * @param total    number of communities searched
+     */
+    void onGlobalSearchProgress(List<Post> results, int answered, int total);
+
+    /**
+     * Called once, when every community gave its complete answer or failed.
+     *
+     * @param failed number of communities that could not be searched
+     */
+    void onGlobalSearchComplete(List<Post> results, int failed);
+}
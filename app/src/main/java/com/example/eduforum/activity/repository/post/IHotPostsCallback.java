@@ -0,0 +1,16 @@
+package com.example.eduforum.activity.repository.post;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.util.List;
+
+public interface IHotPostsCallback {
+    /**
+     * Called with the first snapshot and after every change that moved the ranking.
+     *
+     * @param hotPosts the hottest posts, best first, replace the displayed list
+     */
+    void onHotPostsChanged(List<Post> hotPosts);
+
+    void onHotPostsFailure(String errorMsg);
+}
@@ -0,0 +1,19 @@
+package com.example.eduforum.activity.repository.post;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.List;
+
+public interface IPostPageCallback {
+    /**
+     * @param posts       the posts of the requested page, in feed order
+     * @param lastVisible the cursor to pass back to load the next page, null if the page is empty
+     * @param hasMore     false when the end of the feed has been reached
+     */
+    void onGetPostPageSuccess(List<Post> posts, @Nullable DocumentSnapshot lastVisible, boolean hasMore);
+
+    void onGetPostPageFailure(String errorMsg);
+}
@@ -0,0 +1,18 @@
+package com.example.eduforum.activity.repository.post;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.util.List;
+
+public interface ISearchCallback {
+    /**
+     * Called with the held or cached matches first, then with the server matches.
+     *
+     * @param posts      the matches, best first, replace the displayed list
+     * @param isComplete true for the last result: the server answered, or the held posts are every post of the
+     *                   community. A result that is not complete may miss matches
+     */
+    void onSearchResult(List<Post> posts, boolean isComplete);
+
+    void onSearchFailure(String errorMsg);
+}
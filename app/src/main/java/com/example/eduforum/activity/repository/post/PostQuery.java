@@ -4,5 +4,7 @@ public enum PostQuery{
     NEWEST,
     OLDEST,
     MOST_VOTED,
-    MOST_COMMENTED
+    MOST_COMMENTED,
+    // see HotRanking
+    HOT
 }
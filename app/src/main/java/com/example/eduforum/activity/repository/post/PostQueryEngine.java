@@ -0,0 +1,212 @@
+package com.example.eduforum.activity.repository.post;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.example.eduforum.activity.model.post_manage.PostCategory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Answers category + sort queries over the posts of one community already read by {@link PostRepository}.
+ * <br></br>
+ * Each post gets a slot, and each category keeps a {@link BitSet} of the slots of its posts. A query combines the
+ * bitsets of the requested categories (OR for any of them, AND for all of them) and sorts the matching posts, so a
+ * filter change costs no read and no composite index.
+ */
+class PostQueryEngine {
+    private final List<Post> postsBySlot = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, BitSet> slotsByCategory = new HashMap<>();
+    // slots of removed posts, reused before growing postsBySlot
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final BitSet liveSlots = new BitSet();
+
+    /**
+     * Add the posts, or replace them if they are already indexed.
+     */
+    void index(Collection<Post> posts) {
+        for (Post post : posts) {
+            if (post.getPostID() == null) continue;
+            Integer slot = slotById.get(post.getPostID());
+            if (slot != null) {
+                clearPostings(slot);
+                postsBySlot.set(slot, post);
+            } else {
+                slot = freeSlots.isEmpty() ? postsBySlot.size() : freeSlots.remove(freeSlots.size() - 1);
+                if (slot == postsBySlot.size()) {
+                    postsBySlot.add(post);
+                } else {
+                    postsBySlot.set(slot, post);
+                }
+                slotById.put(post.getPostID(), slot);
+            }
+            liveSlots.set(slot);
+            if (post.getCategory() == null) continue;
+            for (PostCategory category : post.getCategory()) {
+                BitSet slots = slotsByCategory.get(category.getCategoryID());
+                if (slots == null) {
+                    slots = new BitSet();
+                    slotsByCategory.put(category.getCategoryID(), slots);
+                }
+                slots.set(slot);
+            }
+        }
+    }
+
+    void remove(String postID) {
+        Integer slot = slotById.remove(postID);
+        if (slot == null) return;
+        clearPostings(slot);
+        liveSlots.clear(slot);
+        postsBySlot.set(slot, null);
+        freeSlots.add(slot);
+    }
+
+    private void clearPostings(int slot) {
+        Post old = postsBySlot.get(slot);
+        if (old == null || old.getCategory() == null) return;
+        for (PostCategory category : old.getCategory()) {
+            BitSet slots = slotsByCategory.get(category.getCategoryID());
+            if (slots != null) slots.clear(slot);
+        }
+    }
+
+    int size() {
+        return slotById.size();
+    }
+
+    /**
+     * @param categoryIDs the requested categories, null or empty for every post
+     * @param matchAll    true: the posts must have every requested category, false: at least one of them
+     * @param order       the sort of the result, null for newest first
+     */
+    List<Post> query(@Nullable Collection<String> categoryIDs, boolean matchAll, @Nullable PostQuery order) {
+        BitSet matches;
+        if (categoryIDs == null || categoryIDs.isEmpty()) {
+            matches = (BitSet) liveSlots.clone();
+        } else {
+            matches = null;
+            for (String categoryID : categoryIDs) {
+                BitSet slots = slotsByCategory.get(categoryID);
+                if (slots == null) slots = new BitSet();
+                if (matches == null) {
+                    matches = (BitSet) slots.clone();
+                } else if (matchAll) {
+                    matches.and(slots);
+                } else {
+                    matches.or(slots);
+                }
+            }
+        }
+        List<Post> result = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            result.add(postsBySlot.get(slot));
+        }
+        Collections.sort(result, comparatorOf(order));
+        return result;
+    }
+
+    /**
+     * @return true if the post has every category (matchAll) or at least one of them
+     */
+    static boolean matches(Post post, Collection<String> categoryIDs, boolean matchAll) {
+        Set<String> postCategories = new HashSet<>();
+        if (post.getCategory() != null) {
+            for (PostCategory category : post.getCategory()) {
+                postCategories.add(category.getCategoryID());
+            }
+        }
+        for (String categoryID : categoryIDs) {
+            boolean hasCategory = postCategories.contains(categoryID);
+            if (matchAll && !hasCategory) return false;
+            if (!matchAll && hasCategory) return true;
+        }
+        return matchAll;
+    }
+
+    /**
+     * Merge lists that are each sorted in {@code order} into one sorted list, in O(n log k). A post present in
+     * several lists is kept once.
+     */
+    static List<Post> mergeSorted(List<List<Post>> sortedLists, @Nullable PostQuery order) {
+        Comparator<Post> comparator = comparatorOf(order);
+        // a cursor is {list index, position in the list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> comparator.compare(sortedLists.get(a[0]).get(a[1]), sortedLists.get(b[0]).get(b[1])));
+        int total = 0;
+        for (int i = 0; i < sortedLists.size(); i++) {
+            total += sortedLists.get(i).size();
+            if (!sortedLists.get(i).isEmpty()) heads.add(new int[]{i, 0});
+        }
+        List<Post> merged = new ArrayList<>(total);
+        Set<String> seenIDs = new HashSet<>();
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Post> list = sortedLists.get(head[0]);
+            Post post = list.get(head[1]);
+            if (seenIDs.add(post.getPostID())) {
+                merged.add(post);
+            }
+            if (head[1] + 1 < list.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The order of {@link PostRepository#queryPost}, ties broken newest first then by ID so that every list
+     * sorted with it agrees on the position of each post.
+     */
+    static Comparator<Post> comparatorOf(@Nullable PostQuery order) {
+        Comparator<Post> newestFirst = (a, b) -> {
+            if (a.getTimeCreated() == null || b.getTimeCreated() == null) {
+                if (a.getTimeCreated() != b.getTimeCreated()) return a.getTimeCreated() == null ? 1 : -1;
+            } else {
+                int byTime = b.getTimeCreated().compareTo(a.getTimeCreated());
+                if (byTime != 0) return byTime;
+            }
+            return String.valueOf(a.getPostID()).compareTo(String.valueOf(b.getPostID()));
+        };
+        if (order == null) {
+            return newestFirst;
+        }
+        switch (order) {
+            case OLDEST:
+                return (a, b) -> newestFirst.compare(b, a);
+            case MOST_VOTED:
+                return (a, b) -> {
+                    int byVotes = Integer.compare(valueOf(b.getVoteDifference()), valueOf(a.getVoteDifference()));
+                    return byVotes != 0 ? byVotes : newestFirst.compare(a, b);
+                };
+            case MOST_COMMENTED:
+                return (a, b) -> {
+                    int byComments = Integer.compare(valueOf(b.getTotalComment()), valueOf(a.getTotalComment()));
+                    return byComments != 0 ? byComments : newestFirst.compare(a, b);
+                };
+            case HOT:
+                return (a, b) -> {
+                    int byScore = Double.compare(HotRanking.score(b), HotRanking.score(a));
+                    return byScore != 0 ? byScore : newestFirst.compare(a, b);
+                };
+            case NEWEST:
+            default:
+                return newestFirst;
+        }
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -10,9 +10,17 @@ import android.util.Log;
 import com.example.eduforum.activity.model.post_manage.Category;
 import com.example.eduforum.activity.model.post_manage.Post;
 import com.example.eduforum.activity.model.post_manage.PostCategory;
+import com.example.eduforum.activity.model.post_manage.PostSummary;
 import com.example.eduforum.activity.model.subscription_manage.Subscription;
 import com.example.eduforum.activity.repository.post.IUpload;
 import com.example.eduforum.activity.repository.post.dto.AddPostDTO;
+import com.example.eduforum.activity.repository.shared.CacheFirstReader;
+import com.example.eduforum.activity.repository.shared.DocumentMappers;
+import com.example.eduforum.activity.repository.shared.IVoteCallback;
+import com.example.eduforum.activity.repository.shared.ReadMode;
+import com.example.eduforum.activity.repository.shared.ShardedCounter;
+import com.example.eduforum.activity.repository.shared.VoteTransaction;
+import com.example.eduforum.activity.util.AppExecutors;
 import com.example.eduforum.activity.util.ConvertUtil;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -21,18 +29,23 @@ import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.Filter;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.OnProgressListener;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
 import com.google.firebase.firestore.Transaction;
 import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.functions.FirebaseFunctions;
@@ -44,17 +57,42 @@ import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 public class PostRepository {
+    public static final int POST_PAGE_SIZE = 10;
+    // feed pages read these instead of the full posts, see PostSummary
+    private static final String SUMMARY_COLLECTION = "PostSummary";
+    // a write batch holds at most 500 writes
+    private static final int SUMMARY_BACKFILL_PAGE_SIZE = 200;
+    private static final int EXCERPT_LENGTH = 200;
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    // a held feed older than this is read again from the first page, deleted posts and vote counts are not synced
+    private static final long FEED_MAX_AGE_MS = 30 * 60 * 1000;
     private static PostRepository instance;
     private final FirebaseFirestore db;
     private final FirebaseStorage storage;
     private final FirebaseFunctions mFunctions;
+    private ReadMode readMode = ReadMode.CACHE_FIRST;
+    private final Map<String, CommunityFeed> heldFeeds = new HashMap<>();
+    // communities whose summaries are being written again by this process, see backfillSummaries
+    private final Set<String> backfillingSummaries = new HashSet<>();
+    // every post read in a community, answers filter changes before the server does
+    private final Map<String, PostQueryEngine> queryEngines = new HashMap<>();
+    private final Map<String, PostSearchIndex> searchIndexes = new HashMap<>();
+    public static final int HOT_POST_COUNT = 20;
+    // the newest posts are the candidates of the hot ranking, the older ones have decayed out of it
+    private static final int HOT_CANDIDATE_WINDOW = 100;
+    private final Map<String, ListenerRegistration> hotPostsListeners = new HashMap<>();
+    private final Map<String, HotRanking> hotRankings = new HashMap<>();
 
     public PostRepository() {
         db = FirebaseFirestore.getInstance();
@@ -69,6 +107,14 @@ public class PostRepository {
         return instance;
     }
 
+    /**
+     * Read mode of the reads whose callback replaces the previous result (feed first page, search, query,
+     * vote status, single post). Reads that append, like the following feed pages, always go to the server.
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
 
     public void addPost(Post post, IPostCallback callback) {
         DocumentReference postRef = db.collection("Community")
@@ -99,6 +145,7 @@ public class PostRepository {
                                     post.setTotalComment((Integer) result.get("totalComment"));
                                     post.setTimeCreated(ConvertUtil.convertMapToTimestamp(result, "timeCreated"));
                                     post.setLastModified(ConvertUtil.convertMapToTimestamp(result, "lastModified"));
+                                    writeSummaries(Collections.singletonList(post));
                                     callback.onAddPostSuccess(post);
                                 }
                             }
@@ -214,6 +261,16 @@ public class PostRepository {
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
+                        // the edited post does not carry the counters, keep the known ones
+                        Post stored = PostStore.getInstance().get(post.getPostID());
+                        if (stored != null) {
+                            post.setVoteDifference(stored.getVoteDifference());
+                            post.setTotalComment(stored.getTotalComment());
+                        }
+                        holdPosts(post.getCommunityID(), Collections.singletonList(post));
+                        // only the edited fields are known, getOnePost reads the whole post again
+                        PostStore.getInstance().expire(post.getPostID());
+                        updateSummaryContent(post);
                         callback.onEditPostSuccess();
                         Log.d(FlagsList.DEBUG_POST_FLAG, "Post successfully edited!");
                     }
@@ -257,35 +314,591 @@ public class PostRepository {
         // set total new post to 0
         resetNewPost(communityID, userID);
 
+        Query postQuery = db.collection("Community")
+                .document(communityID)
+                .collection("Post")
+                .orderBy("timeCreated", Query.Direction.DESCENDING);
+        CacheFirstReader.get(postQuery, readMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                List<Post> posts = toPosts(queryDocumentSnapshots);
+                addShardTotals(posts, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                    holdPosts(communityID, posts);
+                    callback.onGetPostSuccess(posts);
+                });
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onGetPostFailure(e.toString());
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
+            }
+        });
+    }
+
+    /**
+     * Fetch one page of the community feed. Only the requested page is read, so the cost of opening
+     * a community does not grow with the number of posts in it.
+     *
+     * @param communityID community ID
+     * @param userID      user ID, the new post counter is reset when the first page is loaded
+     * @param condition   sort order of the feed, posts are returned in the collection order if null
+     * @param lastVisible the last document of the previous page, null to load the first page
+     * @param pageSize    maximum number of posts in the page
+     * @param callback    receives the posts and the cursor of the next page
+     */
+    public void getPostsPage(String communityID, String userID, @Nullable PostQuery condition, @Nullable DocumentSnapshot lastVisible, int pageSize, IPostPageCallback callback) {
+        if (lastVisible == null) {
+            // set total new post to 0
+            resetNewPost(communityID, userID);
+        }
+        // a feed starts in the summaries only when every post of the community has one, see checkSummaries,
+        // the cursor tells which collection the following pages are read from
+        if (lastVisible == null) {
+            checkSummaries(communityID).addOnCompleteListener(task -> {
+                boolean isSummaryFeed = task.isSuccessful() && Boolean.TRUE.equals(task.getResult());
+                readPostsPage(communityID, condition, null, pageSize, isSummaryFeed, callback);
+            });
+        } else {
+            boolean isSummaryFeed = SUMMARY_COLLECTION.equals(lastVisible.getReference().getParent().getId());
+            readPostsPage(communityID, condition, lastVisible, pageSize, isSummaryFeed, callback);
+        }
+    }
+
+    private void readPostsPage(String communityID, @Nullable PostQuery condition, @Nullable DocumentSnapshot lastVisible, int pageSize, boolean isSummaryFeed, IPostPageCallback callback) {
+        // only the first page replaces the feed, the following pages are appended and must be read once
+        ReadMode pageReadMode = lastVisible == null ? readMode : ReadMode.SERVER;
+        CollectionReference communityPosts = db.collection("Community").document(communityID).collection("Post");
+        if (!isSummaryFeed) {
+            Query fullQuery = orderPosts(communityPosts, condition);
+            if (lastVisible != null) {
+                fullQuery = fullQuery.startAfter(lastVisible);
+            }
+            readFullPostsPage(communityID, fullQuery, pageReadMode, pageSize, callback);
+            return;
+        }
+
+        Query pageQuery = orderPosts(db.collection("Community").document(communityID).collection(SUMMARY_COLLECTION), condition);
+        if (lastVisible != null) {
+            pageQuery = pageQuery.startAfter(lastVisible);
+        }
+        CacheFirstReader.get(pageQuery.limit(pageSize), pageReadMode, new CacheFirstReader.QueryListener() {
+            // the cache and the server result may be parsed at the same time, an older result is not delivered after a newer one
+            private int resultCount;
+            private int deliveredResult;
+
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                final int result = ++resultCount;
+                AppExecutors executors = AppExecutors.getInstance();
+                executors.parse().execute(() -> {
+                    List<Post> posts = new ArrayList<>();
+                    for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+                        posts.add(DocumentMappers.toPostFromSummary(document));
+                    }
+                    executors.mainThread().execute(() -> {
+                        if (result < deliveredResult) return;
+                        deliveredResult = result;
+                        onParsed(queryDocumentSnapshots, posts);
+                    });
+                });
+            }
+
+            private void onParsed(QuerySnapshot queryDocumentSnapshots, List<Post> posts) {
+                List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                DocumentSnapshot newLastVisible = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                Log.d(FlagsList.DEBUG_POST_FLAG, "Fetched a page of " + posts.size() + " post summaries in " + communityID
+                        + (queryDocumentSnapshots.getMetadata().isFromCache() ? " from cache" : ""));
+                holdPosts(communityID, posts);
+                callback.onGetPostPageSuccess(posts, newLastVisible, documents.size() == pageSize);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onGetPostPageFailure(e.toString());
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post page,", e);
+            }
+        });
+    }
+
+    /**
+     * Read a page of full post documents, for the communities whose posts are not all summarized yet. The returned
+     * cursor is a post document, the following pages stay in the Post collection.
+     */
+    private void readFullPostsPage(String communityID, Query query, ReadMode pageReadMode, int limit, IPostPageCallback callback) {
+        CacheFirstReader.get(query.limit(limit), pageReadMode, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                List<Post> posts = toPosts(queryDocumentSnapshots);
+                List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                Log.d(FlagsList.DEBUG_POST_FLAG, "Fetched a page of " + posts.size() + " posts in " + communityID
+                        + (queryDocumentSnapshots.getMetadata().isFromCache() ? " from cache" : ""));
+                addShardTotals(posts, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                    holdPosts(communityID, posts);
+                    DocumentSnapshot newLastVisible = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    callback.onGetPostPageSuccess(posts, newLastVisible, documents.size() == limit);
+                });
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onGetPostPageFailure(e.toString());
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post page,", e);
+            }
+        });
+    }
+
+    /**
+     * Count the posts and the summaries of the community on the server. The summary of a post is written by the client
+     * that created it, after the post, and may be missing: the app died first, the write failed, or the post was
+     * created by an older version. When the counts differ the summaries are written again, see
+     * {@link #backfillSummaries}, and the feed reads the Post collection meanwhile.
+     * <br></br>
+     * A count reads one index entry per 1000 documents, the check is made on every first page.
+     *
+     * @return whether the feed can read the summaries, false if the counts could not be read
+     */
+    private Task<Boolean> checkSummaries(String communityID) {
+        DocumentReference community = db.collection("Community").document(communityID);
+        Task<AggregateQuerySnapshot> postCount = community.collection("Post").count().get(AggregateSource.SERVER);
+        Task<AggregateQuerySnapshot> summaryCount = community.collection(SUMMARY_COLLECTION).count().get(AggregateSource.SERVER);
+        return Tasks.whenAllComplete(postCount, summaryCount).continueWith(task -> {
+            if (!postCount.isSuccessful() || !summaryCount.isSuccessful()) {
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error counting the post summaries of " + communityID,
+                        postCount.getException() != null ? postCount.getException() : summaryCount.getException());
+                return false;
+            }
+            long posts = postCount.getResult().getCount();
+            long summaries = summaryCount.getResult().getCount();
+            if (posts == summaries) return true;
+            Log.d(FlagsList.DEBUG_POST_FLAG, communityID + " has " + posts + " posts and " + summaries + " summaries");
+            if (backfillingSummaries.add(communityID)) {
+                backfillSummaries(communityID, null, new HashSet<>());
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Write the summary of every post of the community, {@link #SUMMARY_BACKFILL_PAGE_SIZE} posts at a time from the
+     * oldest, then delete the summaries left by deleted posts. A backfill that fails is started again by the next
+     * first page whose counts differ.
+     *
+     * @param after   the last post summarized, null to start from the oldest post
+     * @param postIDs the posts summarized so far
+     */
+    private void backfillSummaries(String communityID, @Nullable DocumentSnapshot after, Set<String> postIDs) {
+        Query postQuery = db.collection("Community").document(communityID).collection("Post")
+                .orderBy("timeCreated", Query.Direction.ASCENDING);
+        if (after != null) {
+            postQuery = postQuery.startAfter(after);
+        }
+        CacheFirstReader.get(postQuery.limit(SUMMARY_BACKFILL_PAGE_SIZE), ReadMode.SERVER, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                List<Post> posts = toPosts(queryDocumentSnapshots);
+                List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                for (DocumentSnapshot document : documents) {
+                    postIDs.add(document.getId());
+                }
+                addShardTotals(posts, queryDocumentSnapshots)
+                        .continueWithTask(task -> writeSummaries(posts))
+                        .addOnSuccessListener(aVoid -> {
+                            if (documents.size() == SUMMARY_BACKFILL_PAGE_SIZE) {
+                                backfillSummaries(communityID, documents.get(documents.size() - 1), postIDs);
+                                return;
+                            }
+                            deleteOrphanSummaries(communityID, postIDs);
+                        })
+                        .addOnFailureListener(e -> onBackfillFailure(communityID, e));
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                onBackfillFailure(communityID, e);
+            }
+        });
+    }
+
+    // a post deleted while its summary delete failed would keep the counts apart
+    private void deleteOrphanSummaries(String communityID, Set<String> postIDs) {
+        db.collection("Community").document(communityID).collection(SUMMARY_COLLECTION).get(Source.SERVER)
+                .continueWithTask(task -> {
+                    List<Task<Void>> deletes = new ArrayList<>();
+                    WriteBatch batch = db.batch();
+                    int count = 0;
+                    for (DocumentSnapshot summary : task.getResult().getDocuments()) {
+                        if (postIDs.contains(summary.getId())) continue;
+                        batch.delete(summary.getReference());
+                        if (++count % 500 == 0) {
+                            deletes.add(batch.commit());
+                            batch = db.batch();
+                        }
+                    }
+                    if (count % 500 != 0) deletes.add(batch.commit());
+                    return Tasks.whenAll(deletes);
+                })
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(FlagsList.DEBUG_POST_FLAG, "Every post of " + communityID + " has its summary");
+                    backfillingSummaries.remove(communityID);
+                })
+                .addOnFailureListener(e -> onBackfillFailure(communityID, e));
+    }
+
+    private void onBackfillFailure(String communityID, Exception e) {
+        backfillingSummaries.remove(communityID);
+        Log.w(FlagsList.DEBUG_POST_FLAG, "Error writing the post summaries of " + communityID, e);
+    }
+
+    /**
+     * Open the newest-first feed of a community. The first visit reads the first page. A later visit returns the
+     * feed held from the previous visit and only reads the posts whose {@code lastModified} is after the newest
+     * change already held, then merges them in.
+     *
+     * @param communityID community ID
+     * @param userID      user ID, the new post counter is reset
+     * @param callback    receives every held post (replace the displayed list) and the paging state
+     */
+    public void syncFeed(String communityID, String userID, IPostPageCallback callback) {
+        CommunityFeed feed = heldFeeds.get(communityID);
+        if (feed == null || feed.getLastModifiedMark() == null
+                || System.currentTimeMillis() - feed.getSyncedAt() > FEED_MAX_AGE_MS) {
+            getPostsPage(communityID, userID, PostQuery.NEWEST, null, POST_PAGE_SIZE, new IPostPageCallback() {
+                // the feed built from the previous result, the cached page is followed by the server page
+                private CommunityFeed delivered;
+
+                @Override
+                public void onGetPostPageSuccess(List<Post> posts, @Nullable DocumentSnapshot lastVisible, boolean hasMore) {
+                    if (delivered != null && delivered.isPaged() && heldFeeds.get(communityID) == delivered) {
+                        // the next page was read after the cached first page, replacing the feed would drop it
+                        Log.d(FlagsList.DEBUG_POST_FLAG, "Dropped the first page revalidation of " + communityID + ", the feed is paged");
+                        return;
+                    }
+                    delivered = new CommunityFeed(posts, lastVisible, hasMore);
+                    heldFeeds.put(communityID, delivered);
+                    callback.onGetPostPageSuccess(posts, lastVisible, hasMore);
+                }
+
+                @Override
+                public void onGetPostPageFailure(String errorMsg) {
+                    callback.onGetPostPageFailure(errorMsg);
+                }
+            });
+            return;
+        }
+
+        resetNewPost(communityID, userID);
+        // serve the held feed at once, the delta is delivered as a second result if anything changed
+        callback.onGetPostPageSuccess(feed.getPosts(), feed.getLastVisible(), feed.hasMore());
         db.collection("Community")
                 .document(communityID)
                 .collection("Post")
-                .orderBy("timeCreated", Query.Direction.DESCENDING)
+                .whereGreaterThan("lastModified", feed.getLastModifiedMark())
+                .orderBy("lastModified", Query.Direction.ASCENDING)
                 .get()
                 .addOnSuccessListener(new OnSuccessListener<QuerySnapshot>() {
                     @Override
                     public void onSuccess(QuerySnapshot queryDocumentSnapshots) {
-                        List<Post> posts = new ArrayList<>();
-                        for (QueryDocumentSnapshot documentSnapshot : queryDocumentSnapshots) {
-                            Post post = documentSnapshot.toObject(Post.class);
-                            post.setPostID(documentSnapshot.getId());
-                            post.setAnonymous(documentSnapshot.getBoolean("isAnonymous"));
-                            posts.add(post);
-                            Log.d(FlagsList.DEBUG_POST_FLAG, documentSnapshot.getId() + " => " + documentSnapshot.getData());
-                        }
-
-                        callback.onGetPostSuccess(posts);
+                        if (heldFeeds.get(communityID) != feed) return;
+                        List<Post> changedPosts = toPosts(queryDocumentSnapshots);
+                        addShardTotals(changedPosts, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                            if (heldFeeds.get(communityID) != feed) return;
+                            holdPosts(communityID, changedPosts);
+                            int merged = feed.merge(changedPosts);
+                            Log.d(FlagsList.DEBUG_POST_FLAG, "Delta sync of " + communityID + " read " + queryDocumentSnapshots.size() + " posts, merged " + merged);
+                            if (merged > 0) {
+                                callback.onGetPostPageSuccess(feed.getPosts(), feed.getLastVisible(), feed.hasMore());
+                            }
+                        });
                     }
                 })
                 .addOnFailureListener(new OnFailureListener() {
                     @Override
                     public void onFailure(@NonNull Exception e) {
-                        callback.onGetPostFailure(e.toString());
-                        Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
+                        // the held feed is already displayed, it is only missing the latest changes
+                        Log.w(FlagsList.DEBUG_POST_FLAG, "Error syncing feed of " + communityID, e);
                     }
                 });
     }
 
+    /**
+     * Load the page after the held feed of a community, see {@link #syncFeed}.
+     *
+     * @param callback receives only the posts of the new page, append them to the displayed list
+     */
+    public void loadMoreFeed(String communityID, String userID, IPostPageCallback callback) {
+        CommunityFeed feed = heldFeeds.get(communityID);
+        if (feed == null || !feed.hasMore() || feed.getLastVisible() == null) {
+            callback.onGetPostPageSuccess(new ArrayList<>(), null, false);
+            return;
+        }
+        feed.markPaged();
+        getPostsPage(communityID, userID, PostQuery.NEWEST, feed.getLastVisible(), POST_PAGE_SIZE, new IPostPageCallback() {
+            @Override
+            public void onGetPostPageSuccess(List<Post> posts, @Nullable DocumentSnapshot lastVisible, boolean hasMore) {
+                if (heldFeeds.get(communityID) == feed) {
+                    feed.appendPage(posts, lastVisible, hasMore);
+                }
+                callback.onGetPostPageSuccess(posts, lastVisible, hasMore);
+            }
+
+            @Override
+            public void onGetPostPageFailure(String errorMsg) {
+                callback.onGetPostPageFailure(errorMsg);
+            }
+        });
+    }
+
+    /**
+     * Listen to the hottest posts of a community, see {@link HotRanking}. The {@link #HOT_CANDIDATE_WINDOW} newest
+     * posts are listened to, each snapshot only moves the posts that changed in the ranking. A community has at
+     * most one listener, observing it again replaces the previous one.
+     *
+     * @param callback receives the {@link #HOT_POST_COUNT} hottest posts each time the ranking changes
+     */
+    public void observeHotPosts(String communityID, IHotPostsCallback callback) {
+        removeHotPostsListener(communityID);
+        HotRanking ranking = new HotRanking(HOT_POST_COUNT);
+        hotRankings.put(communityID, ranking);
+        // the shards of each snapshot are read at once, the snapshots are applied to the ranking in order
+        final Task<?>[] lastDelivery = {Tasks.forResult(null)};
+        ListenerRegistration listener = db.collection("Community")
+                .document(communityID)
+                .collection("Post")
+                .orderBy("timeCreated", Query.Direction.DESCENDING)
+                .limit(HOT_CANDIDATE_WINDOW)
+                .addSnapshotListener((value, error) -> {
+                    if (error != null) {
+                        Log.w(FlagsList.DEBUG_POST_FLAG, "Hot posts listener failed.", error);
+                        callback.onHotPostsFailure(error.getMessage());
+                        return;
+                    }
+                    List<Post> changedPosts = new ArrayList<>();
+                    List<DocumentReference> changedRefs = new ArrayList<>();
+                    // deleted, or pushed out of the window by newer posts
+                    List<String> removedIDs = new ArrayList<>();
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            removedIDs.add(change.getDocument().getId());
+                            continue;
+                        }
+                        changedPosts.add(DocumentMappers.toPost(change.getDocument()));
+                        changedRefs.add(change.getDocument().getReference());
+                    }
+                    // the first snapshot of an empty community has no change but must still be delivered
+                    boolean isFirstEmpty = value.getDocumentChanges().isEmpty();
+                    holdPosts(communityID, changedPosts);
+                    Task<Void> shardTotals = ShardedCounter.addShardTotals(changedPosts, changedRefs);
+                    lastDelivery[0] = Tasks.whenAllComplete(lastDelivery[0], shardTotals).continueWith(task -> {
+                        if (hotRankings.get(communityID) != ranking) return null;
+                        boolean isChanged = isFirstEmpty;
+                        for (String postID : removedIDs) {
+                            isChanged |= ranking.remove(postID);
+                        }
+                        for (Post post : changedPosts) {
+                            isChanged |= ranking.update(post);
+                        }
+                        Log.d(FlagsList.DEBUG_POST_FLAG, "Hot ranking of " + communityID + " got " + changedPosts.size()
+                                + " changed posts" + (isChanged ? ", top changed" : ""));
+                        if (isChanged) {
+                            callback.onHotPostsChanged(ranking.top());
+                        }
+                        return null;
+                    });
+                });
+        hotPostsListeners.put(communityID, listener);
+    }
+
+    public void removeHotPostsListener(String communityID) {
+        hotRankings.remove(communityID);
+        ListenerRegistration listener = hotPostsListeners.remove(communityID);
+        if (listener != null) {
+            listener.remove();
+        }
+    }
+
+    /**
+     * Start a newest-first feed of every post of the communities, see {@link HomeFeed}.
+     * Nothing is read before the first {@link #loadHomeFeedPage}.
+     */
+    public HomeFeed newHomeFeed(List<String> communityIDs) {
+        return new HomeFeed(communityIDs);
+    }
+
+    /**
+     * Load the next page of a {@link HomeFeed}.
+     * <br></br>
+     * Needs a collection group index on Post: communityID ascending, timeCreated descending.
+     *
+     * @param callback receives only the posts of the new page, append them to the displayed list. The cursor is
+     *                 always null, it is held by the feed.
+     */
+    public void loadHomeFeedPage(HomeFeed feed, IPostPageCallback callback) {
+        if (feed.isLoading()) {
+            return;
+        }
+        if (!feed.hasMore()) {
+            callback.onGetPostPageSuccess(new ArrayList<>(), null, false);
+            return;
+        }
+        feed.setLoading(true);
+        List<Task<Void>> reads = new ArrayList<>();
+        for (HomeFeed.Chunk chunk : feed.chunksToFill(POST_PAGE_SIZE)) {
+            Query chunkQuery = db.collectionGroup("Post")
+                    .whereIn("communityID", chunk.communityIDs)
+                    .orderBy("timeCreated", Query.Direction.DESCENDING);
+            if (chunk.lastVisible != null) {
+                chunkQuery = chunkQuery.startAfter(chunk.lastVisible);
+            }
+            reads.add(chunkQuery.limit(POST_PAGE_SIZE).get().continueWithTask(task -> {
+                QuerySnapshot queryDocumentSnapshots = task.getResult();
+                List<Post> posts = toPosts(queryDocumentSnapshots);
+                List<DocumentSnapshot> documents = queryDocumentSnapshots.getDocuments();
+                return addShardTotals(posts, queryDocumentSnapshots).continueWith(shardTask -> {
+                    chunk.buffer.addAll(posts);
+                    if (!documents.isEmpty()) chunk.lastVisible = documents.get(documents.size() - 1);
+                    chunk.hasMore = documents.size() == POST_PAGE_SIZE;
+                    return null;
+                });
+            }));
+        }
+        Tasks.whenAll(reads).addOnCompleteListener(task -> {
+            feed.setLoading(false);
+            if (!task.isSuccessful()) {
+                // the chunks that were read keep their posts, the next call only reads the others again
+                callback.onGetPostPageFailure(String.valueOf(task.getException()));
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching home feed page,", task.getException());
+                return;
+            }
+            List<Post> page = feed.mergePage(POST_PAGE_SIZE);
+            Map<String, List<Post>> postsByCommunity = new HashMap<>();
+            for (Post post : page) {
+                List<Post> communityPosts = postsByCommunity.get(post.getCommunityID());
+                if (communityPosts == null) {
+                    communityPosts = new ArrayList<>();
+                    postsByCommunity.put(post.getCommunityID(), communityPosts);
+                }
+                communityPosts.add(post);
+            }
+            for (Map.Entry<String, List<Post>> entry : postsByCommunity.entrySet()) {
+                if (entry.getKey() != null) holdPosts(entry.getKey(), entry.getValue());
+            }
+            Log.d(FlagsList.DEBUG_POST_FLAG, "Fetched a home feed page of " + page.size() + " posts with " + reads.size() + " reads");
+            callback.onGetPostPageSuccess(page, null, feed.hasMore());
+        });
+    }
+
+    /**
+     * Drop the held feed of a community, the next {@link #syncFeed} reads it from the first page again.
+     * The posts of the community are read again by getOnePost too.
+     */
+    public void invalidateFeed(String communityID) {
+        heldFeeds.remove(communityID);
+        PostStore.getInstance().expireCommunity(communityID);
+    }
+
+    private Task<List<Post>> toPostsWithShards(QuerySnapshot queryDocumentSnapshots) {
+        List<Post> posts = toPosts(queryDocumentSnapshots);
+        return addShardTotals(posts, queryDocumentSnapshots).continueWith(task -> posts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Post> castPosts(Object posts) {
+        return (List<Post>) posts;
+    }
+
+    private List<Post> toPosts(QuerySnapshot queryDocumentSnapshots) {
+        List<Post> posts = new ArrayList<>();
+        for (QueryDocumentSnapshot documentSnapshot : queryDocumentSnapshots) {
+            posts.add(DocumentMappers.toPost(documentSnapshot));
+        }
+        return posts;
+    }
+
+    private static PostSummary toSummary(Post post) {
+        PostSummary summary = new PostSummary();
+        summary.setCommunityID(post.getCommunityID());
+        summary.setTitle(post.getTitle());
+        String plainText = post.getContent() == null ? "" : HTML_TAG.matcher(post.getContent()).replaceAll(" ")
+                .replace("&nbsp;", " ").replaceAll("\\s+", " ").trim();
+        summary.setExcerpt(plainText.length() > EXCERPT_LENGTH ? plainText.substring(0, EXCERPT_LENGTH) + "…" : plainText);
+        summary.setCreator(post.getCreator());
+        summary.setAnonymous(post.getAnonymous());
+        summary.setTimeCreated(post.getTimeCreated());
+        summary.setLastModified(post.getLastModified());
+        summary.setVoteDifference(post.getVoteDifference());
+        summary.setTotalComment(post.getTotalComment());
+        if (post.getDownloadImage() != null && !post.getDownloadImage().isEmpty()) {
+            summary.setThumbnail(post.getDownloadImage().get(0));
+        }
+        summary.setCategory(post.getCategory());
+        return summary;
+    }
+
+    private DocumentReference summaryRef(String communityID, String postID) {
+        return db.collection("Community").document(communityID).collection(SUMMARY_COLLECTION).document(postID);
+    }
+
+    // full posts only, a summary is never written from another summary
+    private Task<Void> writeSummaries(List<Post> posts) {
+        WriteBatch batch = db.batch();
+        int count = 0;
+        for (Post post : posts) {
+            if (post.isSummary() || post.getCommunityID() == null || post.getPostID() == null) continue;
+            batch.set(summaryRef(post.getCommunityID(), post.getPostID()), toSummary(post));
+            count++;
+        }
+        if (count == 0) return Tasks.forResult(null);
+        int written = count;
+        return batch.commit()
+                .addOnSuccessListener(aVoid -> Log.d(FlagsList.DEBUG_POST_FLAG, "Wrote " + written + " post summaries"))
+                .addOnFailureListener(e -> Log.w(FlagsList.DEBUG_POST_FLAG, "Error writing post summaries", e));
+    }
+
+    // an edited post may not carry its counters and times, only the edited fields are written
+    private void updateSummaryContent(Post post) {
+        PostSummary edited = toSummary(post);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("title", edited.getTitle());
+        fields.put("excerpt", edited.getExcerpt());
+        fields.put("anonymous", edited.getAnonymous());
+        fields.put("category", edited.getCategory());
+        if (post.getDownloadImage() != null) {
+            fields.put("thumbnail", edited.getThumbnail());
+        }
+        summaryRef(post.getCommunityID(), post.getPostID()).update(fields)
+                .addOnFailureListener(e -> Log.d(FlagsList.DEBUG_POST_FLAG, "No summary to update for " + post.getPostID()));
+    }
+
+
+    // the counters of the sharded posts are completed with their shards, the other posts are left as they are
+    private Task<Void> addShardTotals(List<Post> posts, QuerySnapshot queryDocumentSnapshots) {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
+            refs.add(document.getReference());
+        }
+        return ShardedCounter.addShardTotals(posts, refs);
+    }
+
+    private Query orderPosts(CollectionReference postRef, @Nullable PostQuery condition) {
+        if (condition == null) {
+            return postRef;
+        }
+        switch (condition) {
+            case MOST_COMMENTED:
+                return postRef.orderBy("totalComment", Query.Direction.DESCENDING);
+            case MOST_VOTED:
+                return postRef.orderBy("voteDifference", Query.Direction.DESCENDING);
+            case OLDEST:
+                return postRef.orderBy("timeCreated", Query.Direction.ASCENDING);
+            case HOT:
+                // ranked on the device, see HotRanking, the recent posts are the candidates
+            case NEWEST:
+            default:
+                return postRef.orderBy("timeCreated", Query.Direction.DESCENDING);
+        }
+    }
+
     //TODO: check if the user is the owner of the post, render a button can delete that post @Duong Thuan Tri
     // TODO: delete all comment subcollection when user delete a post
     public void deletePost(Post post, IPostCallback callback) {
@@ -297,6 +910,18 @@ public class PostRepository {
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
+                        // a delete leaves no lastModified change for the delta sync to find
+                        invalidateFeed(post.getCommunityID());
+                        PostStore.getInstance().remove(post.getPostID());
+                        summaryRef(post.getCommunityID(), post.getPostID()).delete();
+                        PostQueryEngine engine = queryEngines.get(post.getCommunityID());
+                        if (engine != null) {
+                            engine.remove(post.getPostID());
+                        }
+                        PostSearchIndex searchIndex = searchIndexes.get(post.getCommunityID());
+                        if (searchIndex != null) {
+                            searchIndex.remove(post.getPostID());
+                        }
                         callback.onDeletePostSuccess();
                         Log.d(FlagsList.DEBUG_POST_FLAG, "Post successfully deleted!");
                     }
@@ -311,15 +936,65 @@ public class PostRepository {
     }
 
     /**
-     * Search post by keyword
+     * Search post by keyword. The posts of the community already read are searched on the device, see
+     * {@link PostSearchIndex}: case, accents and HTML are ignored and the results are ranked by relevance. Unless
+     * the whole feed of the community was read with full contents, the title and content are also matched by prefix
+     * on the server and the results are delivered a second time with the server matches.
      *
      * @param communityID community ID
      * @param keyword    search keyword
-     * @param callback override onQueryPostSuccess to get the list of posts
+     * @param callback receives the results, and whether they are complete
      */
-    public void searchPost(String communityID, String keyword, IPostCallback callback) {
+    public void searchPost(String communityID, String keyword, ISearchCallback callback) {
+        searchCommunity(communityID, keyword, new SearchListener() {
+            @Override
+            public void onResult(List<Post> posts, boolean isComplete) {
+                callback.onSearchResult(posts, isComplete);
+            }
 
-        db.collection("Community")
+            @Override
+            public void onError(@NonNull Exception e) {
+                callback.onSearchFailure(e.toString());
+            }
+        });
+    }
+
+    /**
+     * Search the keyword in every community at once, see {@link GlobalPostSearch}.
+     *
+     * @param communityIDs the communities to search, usually every community the user belongs to
+     * @param callback     receives the results of the communities answered so far each time one answers
+     * @return the running search, cancel it when its results are no longer needed
+     */
+    public GlobalPostSearch searchAllCommunities(List<String> communityIDs, String keyword, IGlobalSearchCallback callback) {
+        GlobalPostSearch search = new GlobalPostSearch(this, communityIDs, keyword, callback);
+        search.start();
+        return search;
+    }
+
+    interface SearchListener {
+        /**
+         * @param isComplete false for the held or cached matches given before the server answers
+         */
+        void onResult(List<Post> posts, boolean isComplete);
+
+        void onError(@NonNull Exception e);
+    }
+
+    // the listener is called with the held posts, or else the cached matches, then once more with the server matches.
+    // Only the last result is complete, unless the held posts are the whole community
+    void searchCommunity(String communityID, String keyword, SearchListener listener) {
+        PostSearchIndex searchIndex = searchIndexes.get(communityID);
+        boolean isIndexed = searchIndex != null && searchIndex.size() > 0;
+        if (isIndexed) {
+            List<Post> posts = searchIndex.search(keyword);
+            Log.d(FlagsList.DEBUG_POST_FLAG, "Searched " + searchIndex.size() + " held posts for: " + keyword + ", " + posts.size() + " found");
+            boolean isComplete = isIndexComplete(communityID, searchIndex);
+            listener.onResult(posts, isComplete);
+            if (isComplete) return;
+        }
+
+        Query searchQuery = db.collection("Community")
                 .document(communityID)
                 .collection("Post")
                 .where(Filter.or(
@@ -331,33 +1006,72 @@ public class PostRepository {
                                 Filter.greaterThanOrEqualTo("content", keyword),
                                 Filter.lessThanOrEqualTo("content", keyword + "\uf8ff")
                         )
-                ))
-                .get()
-                .addOnSuccessListener(new OnSuccessListener<QuerySnapshot>() {
-                    @Override
-                    public void onSuccess(QuerySnapshot queryDocumentSnapshots) {
-                        List<Post> posts = new ArrayList<>();
-                        for (QueryDocumentSnapshot documentSnapshot : queryDocumentSnapshots) {
-                            Post post = documentSnapshot.toObject(Post.class);
-                            post.setPostID(documentSnapshot.getId());
-                            post.setAnonymous(documentSnapshot.getBoolean("isAnonymous"));
-                            posts.add(post);
-                            Log.d(FlagsList.DEBUG_POST_FLAG, "Searched post: " + documentSnapshot.getId() + " => " + documentSnapshot.getData());
-                        }
-
-                        callback.onQueryPostSuccess(posts);
+                ));
+        boolean[] isServerDone = new boolean[1];
+        if (!isIndexed && readMode == ReadMode.CACHE_FIRST) {
+            // shown until the server answers, a cache miss gives an empty result and is skipped
+            searchQuery.get(Source.CACHE).addOnSuccessListener(snapshot -> {
+                if (isServerDone[0] || snapshot.isEmpty()) return;
+                List<Post> posts = toPosts(snapshot);
+                addShardTotals(posts, snapshot).addOnCompleteListener(task -> {
+                    if (isServerDone[0]) return;
+                    holdPosts(communityID, posts);
+                    listener.onResult(posts, false);
+                });
+            });
+        }
+        // the quick answer is given above, the server result is the complete one
+        CacheFirstReader.get(searchQuery, ReadMode.SERVER, new CacheFirstReader.QueryListener() {
+            @Override
+            public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                isServerDone[0] = true;
+                List<Post> posts = toPosts(queryDocumentSnapshots);
+                Log.d(FlagsList.DEBUG_POST_FLAG, "Searched " + posts.size() + " posts for: " + keyword);
+                addShardTotals(posts, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                    holdPosts(communityID, posts);
+                    if (!isIndexed) {
+                        listener.onResult(posts, true);
+                        return;
                     }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        callback.onQueryPostError(e.toString());
-                        Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
+                    // the server matches are indexed now, ranked together with the held posts
+                    List<Post> merged = searchIndexes.get(communityID).search(keyword);
+                    Set<String> mergedIDs = new HashSet<>();
+                    for (Post post : merged) {
+                        mergedIDs.add(post.getPostID());
+                    }
+                    for (Post post : posts) {
+                        if (mergedIDs.add(post.getPostID())) merged.add(post);
                     }
+                    listener.onResult(merged, true);
                 });
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                isServerDone[0] = true;
+                listener.onError(e);
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
+            }
+        });
     }
 
     public void queryPost(String communityID, String userID, @Nullable List<Category> categories, @Nullable PostQuery condition, IPostCallback callback) {
+        queryPost(communityID, userID, categories, condition, false, callback);
+    }
+
+    /**
+     * Query the posts of a community by category and sort order.
+     * <br></br>
+     * Firestore matches at most 10 categories per {@code whereArrayContainsAny}, so the categories are queried in
+     * batches. Each batch comes back sorted by the server, the batches are merged in O(n log k) and a post
+     * matching several batches is kept once. {@code whereArrayContainsAny} has no AND form, the posts missing one
+     * of the categories are filtered out here when {@code matchAll} is set.
+     *
+     * @param categories the categories to match, null to match every post
+     * @param condition  sort order, the posts are returned newest first if null
+     * @param matchAll   true: the posts must have every category, false: at least one of them
+     */
+    public void queryPost(String communityID, String userID, @Nullable List<Category> categories, @Nullable PostQuery condition, boolean matchAll, IPostCallback callback) {
         // set total new post to 0
         resetNewPost(communityID, userID);
         if (categories == null && condition == null) {
@@ -365,56 +1079,55 @@ public class PostRepository {
             return;
         }
 
-        List<Post> queryPostResults = new ArrayList<>();
-
         CollectionReference postRef = db.collection("Community").document(communityID).collection("Post");
-        Query postQuery = postRef;
-        if (condition != null) {
-            if (condition == PostQuery.MOST_COMMENTED) {
-                postQuery = postRef.orderBy("totalComment", Query.Direction.DESCENDING);
-            }
-            if (condition == PostQuery.MOST_VOTED) {
-                postQuery = postRef.orderBy("voteDifference", Query.Direction.DESCENDING);
-            }
-            if (condition == PostQuery.NEWEST) {
-                postQuery = postRef.orderBy("timeCreated", Query.Direction.DESCENDING);
-            }
-            if (condition == PostQuery.OLDEST) {
-                postQuery = postRef.orderBy("timeCreated", Query.Direction.ASCENDING);
-            }
-        }
+        Query postQuery = orderPosts(postRef, condition);
 
-        if (categories != null) {
+        if (categories != null && !categories.isEmpty()) {
             List<PostCategory> categoryIDs = new ArrayList<>();
+            List<String> wantedIDs = new ArrayList<>();
             for (Category category : categories) {
                 PostCategory newCategory = new PostCategory(category);
                 categoryIDs.add(newCategory);
+                wantedIDs.add(newCategory.getCategoryID());
             }
 
             List<List<PostCategory>> batches = new ArrayList<>();
             int batchSize = 10;
-            for (int i = 0; i < categoryIDs.size(); i += batchSize) {
-                int end = Math.min(categoryIDs.size(), i + batchSize);
-                batches.add(new ArrayList<>(categoryIDs.subList(i, end)));
+            if (matchAll) {
+                // every match has the first category, one batch of it is enough
+                batches.add(new ArrayList<>(categoryIDs.subList(0, 1)));
+            } else {
+                for (int i = 0; i < categoryIDs.size(); i += batchSize) {
+                    int end = Math.min(categoryIDs.size(), i + batchSize);
+                    batches.add(new ArrayList<>(categoryIDs.subList(i, end)));
+                }
             }
 
-            List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+            List<Task<List<Post>>> tasks = new ArrayList<>();
             for (List<PostCategory> batch : batches) {
-                Task<QuerySnapshot> task = postQuery.whereArrayContainsAny("category", batch).get();
+                Task<List<Post>> task = postQuery.whereArrayContainsAny("category", batch).get()
+                        .continueWithTask(queryTask -> toPostsWithShards(queryTask.getResult()));
                 tasks.add(task);
             }
 
             Tasks.whenAllSuccess(tasks).addOnSuccessListener(results -> {
+                List<List<Post>> sortedBatches = new ArrayList<>();
                 for (Object result : results) {
-                    QuerySnapshot snapshot = (QuerySnapshot) result;
-                    for (QueryDocumentSnapshot document : snapshot) {
-                        Post newQueryPost = document.toObject(Post.class);
-                        newQueryPost.setPostID(document.getId());
-                        newQueryPost.setAnonymous(document.getBoolean("isAnonymous"));
-                        queryPostResults.add(newQueryPost);
-                        Log.d(FlagsList.DEBUG_POST_FLAG, document.getId() + " => " + document.getData());
+                    List<Post> batchPosts = new ArrayList<>();
+                    for (Post post : castPosts(result)) {
+                        if (!matchAll || PostQueryEngine.matches(post, wantedIDs, true)) {
+                            batchPosts.add(post);
+                        }
                     }
+                    // HOT and no condition are not in the requested order, and the shard totals may move the
+                    // posts sorted by a counter: sort so that the batches can be merged
+                    Collections.sort(batchPosts, PostQueryEngine.comparatorOf(condition == PostQuery.HOT ? null : condition));
+                    sortedBatches.add(batchPosts);
                 }
+                List<Post> queryPostResults = PostQueryEngine.mergeSorted(sortedBatches, condition);
+                Log.d(FlagsList.DEBUG_POST_FLAG, "Query of " + categories.size() + " categories in " + communityID
+                        + " merged " + results.size() + " batches into " + queryPostResults.size() + " posts");
+                holdPosts(communityID, queryPostResults);
                 callback.onQueryPostSuccess(queryPostResults);
             }).addOnFailureListener(e -> {
                 callback.onQueryPostError(e.toString());
@@ -422,25 +1135,103 @@ public class PostRepository {
             });
 
         } else {
-            postQuery.get().addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
+            CacheFirstReader.get(postQuery, readMode, new CacheFirstReader.QueryListener() {
                 @Override
-                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                    if (task.isSuccessful()) {
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            queryPostResults.add(document.toObject(Post.class));
-                            Log.d(FlagsList.DEBUG_POST_FLAG, document.getId() + " => " + document.getData());
+                public void onResult(QuerySnapshot queryDocumentSnapshots) {
+                    List<Post> posts = toPosts(queryDocumentSnapshots);
+                    addShardTotals(posts, queryDocumentSnapshots).addOnCompleteListener(task -> {
+                        holdPosts(communityID, posts);
+                        if (condition == PostQuery.HOT || condition == PostQuery.MOST_VOTED || condition == PostQuery.MOST_COMMENTED) {
+                            // HOT is ranked here, the counters sorted by the server do not include the shards
+                            Collections.sort(posts, PostQueryEngine.comparatorOf(condition));
                         }
-                        callback.onQueryPostSuccess(queryPostResults);
-                    } else {
-                        callback.onQueryPostError(Objects.requireNonNull(task.getException()).getMessage());
-                        Log.d(FlagsList.DEBUG_POST_FLAG, "Error getting documents: ", task.getException());
-                    }
+                        callback.onQueryPostSuccess(posts);
+                    });
+                }
+
+                @Override
+                public void onError(@NonNull Exception e) {
+                    callback.onQueryPostError(e.getMessage());
+                    Log.d(FlagsList.DEBUG_POST_FLAG, "Error getting documents: ", e);
                 }
             });
         }
 
     }
 
+    /**
+     * Answer a {@link #queryPost} from the posts of the community already read, without any read. The result is
+     * only as complete as what was read so far, display it until the server result of {@link #queryPost} arrives.
+     *
+     * @return the matching held posts in the requested order, an empty list if nothing was read in the community
+     */
+    public List<Post> queryHeldPosts(String communityID, @Nullable List<Category> categories, @Nullable PostQuery condition, boolean matchAll) {
+        PostQueryEngine engine = queryEngines.get(communityID);
+        if (engine == null) {
+            return new ArrayList<>();
+        }
+        List<String> categoryIDs = new ArrayList<>();
+        if (categories != null) {
+            for (Category category : categories) {
+                categoryIDs.add(category.getCategoryID());
+            }
+        }
+        return engine.query(categoryIDs, matchAll, condition);
+    }
+
+    /**
+     * @return the keyword as {@link #searchPost} reads it (folded words separated by a space). A keyword that
+     * starts with the normalized form of another finds a subset of its results.
+     */
+    public static String normalizeSearchKeyword(String keyword) {
+        StringBuilder normalized = new StringBuilder();
+        for (String token : PostSearchIndex.tokenize(keyword)) {
+            if (normalized.length() > 0) normalized.append(' ');
+            normalized.append(token);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @param matchAll true: the post must have every category, false: at least one of them
+     */
+    public static boolean matchesCategories(Post post, List<String> categoryIDs, boolean matchAll) {
+        return PostQueryEngine.matches(post, categoryIDs, matchAll);
+    }
+
+    /**
+     * @return true if {@link #searchPost} finds the post with this keyword, see {@link #normalizeSearchKeyword}
+     */
+    public static boolean matchesSearch(Post post, String keyword) {
+        return PostSearchIndex.matches(post, keyword);
+    }
+
+    /**
+     * @return true if every post of the community is indexed with its full content: the feed was read to its end
+     * and no post is indexed from its summary
+     */
+    private boolean isIndexComplete(String communityID, PostSearchIndex searchIndex) {
+        CommunityFeed feed = heldFeeds.get(communityID);
+        return feed != null && !feed.hasMore() && !searchIndex.hasExcerpts();
+    }
+
+    // index the posts read in a community for queryHeldPosts and searchPost, and share them with the screens through PostStore
+    private void holdPosts(String communityID, List<Post> posts) {
+        PostStore.getInstance().put(posts);
+        PostQueryEngine engine = queryEngines.get(communityID);
+        if (engine == null) {
+            engine = new PostQueryEngine();
+            queryEngines.put(communityID, engine);
+        }
+        engine.index(posts);
+        PostSearchIndex searchIndex = searchIndexes.get(communityID);
+        if (searchIndex == null) {
+            searchIndex = new PostSearchIndex();
+            searchIndexes.put(communityID, searchIndex);
+        }
+        searchIndex.index(posts);
+    }
+
     public void bookmarkPost(Post post, String userID, String communityName, IPostCallback callback) {
         Map<String, Object> data = new HashMap<>();
         data.put("userID", userID);
@@ -571,6 +1362,8 @@ public class PostRepository {
         }).addOnSuccessListener(new OnSuccessListener<Void>() {
             @Override
             public void onSuccess(Void aVoid) {
+                // the new counters are not known here
+                PostStore.getInstance().expire(post.getPostID());
                 Log.d(FlagsList.DEBUG_POST_FLAG, "Transaction success!");
             }
         }).addOnFailureListener(new OnFailureListener() {
@@ -600,6 +1393,40 @@ public class PostRepository {
         */
     }
 
+    /**
+     * Set the vote of a user on a post to {@code voteType}, whatever the previous vote was.
+     * Prefer it to {@link #updateVoteCount} when taps are coalesced, see VoteStateManager.
+     * @param post the post to vote on, with its community ID.
+     * @param userID the user (current user using the app).
+     * @param voteType 1: upvote, -1: downvote, 0: remove the vote.
+     * @param callback receives the saved vote and the new voteDifference of the post.
+     */
+    public void setVote(Post post, String userID, int voteType, IVoteCallback callback) {
+        DocumentReference postRef = db.collection("Community")
+                .document(post.getCommunityID())
+                .collection("Post")
+                .document(post.getPostID());
+        // the feed counter of the summary is moved in the same transaction, whoever votes
+        VoteTransaction.run(db, postRef, summaryRef(post.getCommunityID(), post.getPostID()), userID, voteType, new IVoteCallback() {
+            @Override
+            public void onVoteSuccess(int savedVoteType, @Nullable Long voteDifference) {
+                Log.d(FlagsList.DEBUG_POST_FLAG, "Vote " + voteType + " saved on " + post.getPostID());
+                if (voteDifference != null) {
+                    PostStore.getInstance().setVoteDifference(post.getPostID(), voteDifference.intValue());
+                } else {
+                    PostStore.getInstance().expire(post.getPostID());
+                }
+                callback.onVoteSuccess(savedVoteType, voteDifference);
+            }
+
+            @Override
+            public void onVoteFailure(String errorMsg) {
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error saving vote: " + errorMsg);
+                callback.onVoteFailure(errorMsg);
+            }
+        });
+    }
+
     public void getVoteStatus(Post post, String userID, IPostCallback callback) {
         DocumentReference voteRef = db.collection("Community")
                 .document(post.getCommunityID())
@@ -608,48 +1435,60 @@ public class PostRepository {
                 .collection("Vote")
                 .document(userID);
 
-        voteRef.get().addOnSuccessListener(new OnSuccessListener<DocumentSnapshot>() {
+        CacheFirstReader.get(voteRef, readMode, new CacheFirstReader.DocumentListener() {
             @Override
-            public void onSuccess(DocumentSnapshot documentSnapshot) {
+            public void onResult(DocumentSnapshot documentSnapshot) {
                 if (documentSnapshot.exists()) {
                     callback.onGetVoteStatusSuccess(documentSnapshot.getLong("voteType").intValue());
                 } else {
                     callback.onGetVoteStatusSuccess(0);
                 }
             }
-        }).addOnFailureListener(new OnFailureListener() {
+
             @Override
-            public void onFailure(@NonNull Exception e) {
+            public void onError(@NonNull Exception e) {
                 callback.onGetVoteStatusSuccess(0);
             }
         });
     }
 
+    /**
+     * Get a post with its content and images, from {@link PostStore} if it was read a short time ago.
+     */
     public void getOnePost(String communityID, String postID, IPostCallback callback) {
-
-
-        db.collection("Community")
+        Post stored = PostStore.getInstance().getFullPost(postID);
+        if (stored != null) {
+            callback.onGetOnePostSuccess(stored);
+            return;
+        }
+        DocumentReference postRef = db.collection("Community")
                 .document(communityID)
                 .collection("Post")
-                .document(postID)
-                .get()
-                .addOnSuccessListener(new OnSuccessListener<DocumentSnapshot>() {
-                    @Override
-                    public void onSuccess(DocumentSnapshot documentSnapshot) {
-                        Post post = documentSnapshot.toObject(Post.class);
-                        assert post != null;
-                        post.setPostID(documentSnapshot.getId());
-                        post.setAnonymous(documentSnapshot.getBoolean("isAnonymous"));
-                        callback.onGetOnePostSuccess(post);
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
+                .document(postID);
+        CacheFirstReader.get(postRef, readMode, new CacheFirstReader.DocumentListener() {
+            @Override
+            public void onResult(DocumentSnapshot documentSnapshot) {
+                if (!documentSnapshot.exists()) {
+                    Log.w(FlagsList.DEBUG_POST_FLAG, "Post " + postID + " does not exist");
+                    return;
+                }
+                Post post = DocumentMappers.toPost(documentSnapshot);
+                ShardedCounter.addShardTotals(Collections.singletonList(post), Collections.singletonList(documentSnapshot.getReference()))
+                        .addOnCompleteListener(task -> {
+                            holdPosts(communityID, Collections.singletonList(post));
+                            // the counters may miss their shards, the post is read again next time
+                            if (!task.isSuccessful()) {
+                                PostStore.getInstance().expire(postID);
+                            }
+                            callback.onGetOnePostSuccess(post);
+                        });
+            }
 
-                        Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
-                    }
-                });
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.w(FlagsList.DEBUG_POST_FLAG, "Error fetching post,", e);
+            }
+        });
     }
 
 }
@@ -0,0 +1,208 @@
+package com.example.eduforum.activity.repository.post;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index over the title and content of the posts of one community already read by {@link PostRepository}.
+ * <br></br>
+ * Text is folded before it is indexed: HTML tags are stripped, accents are removed and đ is written d, then it is
+ * lower-cased and split on anything that is not a letter or a digit. "lập trình" therefore matches "Lập Trình Java"
+ * and "lap trinh" matches both. Results are ranked with BM25, a word of the title counts {@link #TITLE_WEIGHT} times.
+ */
+class PostSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern HTML_ENTITY = Pattern.compile("&(#\\d+|[a-zA-Z]+);");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // term -> postID -> weighted term frequency, sorted so that a prefix is a sub map
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, Post> postsById = new HashMap<>();
+    private final Map<String, Map<String, Integer>> termsById = new HashMap<>();
+    private final Map<String, Integer> lengthById = new HashMap<>();
+    private long totalLength;
+    // posts indexed from their summary, only the excerpt of their content is indexed
+    private int summaryCount;
+
+    /**
+     * Add the posts, or index them again if they are already indexed.
+     */
+    void index(Collection<Post> posts) {
+        for (Post post : posts) {
+            if (post.getPostID() == null) continue;
+            Post indexed = postsById.get(post.getPostID());
+            // the excerpt of a summary would replace the full content already indexed
+            if (post.isSummary() && indexed != null && !indexed.isSummary()) continue;
+            remove(post.getPostID());
+            Map<String, Integer> terms = new HashMap<>();
+            int length = 0;
+            for (String token : tokenize(post.getTitle())) {
+                addTerm(terms, token, TITLE_WEIGHT);
+                length += TITLE_WEIGHT;
+            }
+            for (String token : tokenize(post.getContent())) {
+                addTerm(terms, token, 1);
+                length++;
+            }
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                Map<String, Integer> postIDs = postings.get(term.getKey());
+                if (postIDs == null) {
+                    postIDs = new HashMap<>();
+                    postings.put(term.getKey(), postIDs);
+                }
+                postIDs.put(post.getPostID(), term.getValue());
+            }
+            postsById.put(post.getPostID(), post);
+            if (post.isSummary()) summaryCount++;
+            termsById.put(post.getPostID(), terms);
+            lengthById.put(post.getPostID(), length);
+            totalLength += length;
+        }
+    }
+
+    void remove(String postID) {
+        Map<String, Integer> terms = termsById.remove(postID);
+        if (terms == null) return;
+        for (String term : terms.keySet()) {
+            Map<String, Integer> postIDs = postings.get(term);
+            if (postIDs == null) continue;
+            postIDs.remove(postID);
+            if (postIDs.isEmpty()) postings.remove(term);
+        }
+        Post removed = postsById.remove(postID);
+        if (removed != null && removed.isSummary()) summaryCount--;
+        totalLength -= lengthById.remove(postID);
+    }
+
+    int size() {
+        return postsById.size();
+    }
+
+    /**
+     * @return true if a post is indexed from its summary, a word of its content after the excerpt is not found
+     */
+    boolean hasExcerpts() {
+        return summaryCount > 0;
+    }
+
+    /**
+     * Every word of the query must be in the post. The last word also matches the longer words it begins, so the
+     * results follow the query while it is typed.
+     *
+     * @return the matching posts, best first
+     */
+    List<Post> search(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || postsById.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double averageLength = (double) totalLength / postsById.size();
+        Map<String, Double> scores = null;
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String queryTerm = queryTerms.get(i);
+            boolean isLast = i == queryTerms.size() - 1;
+            SortedMap<String, Map<String, Integer>> matchingTerms = isLast
+                    ? postings.subMap(queryTerm, queryTerm + Character.MAX_VALUE)
+                    : postings.subMap(queryTerm, queryTerm + '\0');
+            Map<String, Double> termScores = new HashMap<>();
+            for (Map<String, Integer> postIDs : matchingTerms.values()) {
+                double idf = Math.log(1 + (postsById.size() - postIDs.size() + 0.5) / (postIDs.size() + 0.5));
+                for (Map.Entry<String, Integer> posting : postIDs.entrySet()) {
+                    int frequency = posting.getValue();
+                    double norm = K1 * (1 - B + B * lengthById.get(posting.getKey()) / averageLength);
+                    double score = idf * frequency * (K1 + 1) / (frequency + norm);
+                    Double previous = termScores.get(posting.getKey());
+                    termScores.put(posting.getKey(), previous == null ? score : Math.max(previous, score));
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<String, Double> both = new HashMap<>();
+                for (Map.Entry<String, Double> score : scores.entrySet()) {
+                    Double termScore = termScores.get(score.getKey());
+                    if (termScore != null) both.put(score.getKey(), score.getValue() + termScore);
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) break;
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        Collections.sort(ranked, (a, b) -> {
+            int byScore = Double.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore
+                    : PostQueryEngine.comparatorOf(PostQuery.NEWEST).compare(postsById.get(a.getKey()), postsById.get(b.getKey()));
+        });
+        List<Post> result = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Double> entry : ranked) {
+            result.add(postsById.get(entry.getKey()));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the post would be found by {@link #search} with this query. Adding characters to a query
+     * only removes results, so the results of a shorter query can be narrowed with this instead of searching again.
+     */
+    static boolean matches(Post post, String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return false;
+        }
+        List<String> postTerms = tokenize(post.getTitle());
+        postTerms.addAll(tokenize(post.getContent()));
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String queryTerm = queryTerms.get(i);
+            boolean isLast = i == queryTerms.size() - 1;
+            boolean found = false;
+            for (String postTerm : postTerms) {
+                if (isLast ? postTerm.startsWith(queryTerm) : postTerm.equals(queryTerm)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static void addTerm(Map<String, Integer> terms, String token, int weight) {
+        Integer frequency = terms.get(token);
+        terms.put(token, frequency == null ? weight : frequency + weight);
+    }
+
+    /**
+     * @return the folded words of the text, see the class comment
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String plain = HTML_ENTITY.matcher(HTML_TAG.matcher(text).replaceAll(" ")).replaceAll(" ");
+        String folded = MARKS.matcher(Normalizer.normalize(plain, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'd')
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
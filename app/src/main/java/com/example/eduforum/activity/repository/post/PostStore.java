@@ -0,0 +1,230 @@
+package com.example.eduforum.activity.repository.post;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.Post;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One copy of every post read by the app, by post ID, that the screens observe post by post.
+ * <br></br>
+ * The repositories write every post they read and every change they make (vote, comment, edit, delete) here, the
+ * feed rows and the post screen observe the ID of the post they show. A vote or a comment made on the post screen
+ * therefore reaches the row of the feed at once, without reading the feed again, and only the observers of that post
+ * are called.
+ * <br></br>
+ * The posts observed are always kept, the other posts only while they are among the {@link #MAX_RECENT_POSTS} used
+ * last: a post dropped from the store is read again with its screen.
+ * <br></br>
+ * It is the only copy of the posts: the post screen opens the post of a list from here, and
+ * {@code PostRepository.getOnePost} answers from here while the full post is younger than {@link #FULL_POST_TTL_MILLIS}.
+ * The screens build their own view states from the posts, they do not change them.
+ * <br></br>
+ * Every method must be called on the main thread, the Firestore callbacks run there too.
+ */
+public class PostStore {
+    public interface Observer {
+        /**
+         * @param post the post as it is now, null if it was deleted
+         */
+        void onPostChanged(String postID, @Nullable Post post);
+    }
+
+    static final int MAX_RECENT_POSTS = 300;
+    // a full post older than this is read again by getOnePost, the writes of the other users are seen then
+    static final long FULL_POST_TTL_MILLIS = 2 * 60 * 1000L;
+    private static PostStore instance;
+    // the posts with at least one observer
+    private final Map<String, Post> observedPosts = new HashMap<>();
+    // the other posts, least recently used first
+    private final Map<String, Post> recentPosts = new LinkedHashMap<String, Post>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Post> eldest) {
+            if (size() > MAX_RECENT_POSTS) {
+                fullPostReadAt.remove(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, List<Observer>> observersById = new HashMap<>();
+    // when the full posts were read, by post ID, a summary has no entry
+    private final Map<String, Long> fullPostReadAt = new HashMap<>();
+
+    private PostStore() {
+    }
+
+    public static synchronized PostStore getInstance() {
+        if (instance == null) {
+            instance = new PostStore();
+        }
+        return instance;
+    }
+
+    @Nullable
+    public Post get(String postID) {
+        Post post = observedPosts.get(postID);
+        return post != null ? post : recentPosts.get(postID);
+    }
+
+    /**
+     * @return the post with its content and images, null if only its summary is held or it was read too long ago
+     */
+    @Nullable
+    public Post getFullPost(String postID) {
+        Long readAt = fullPostReadAt.get(postID);
+        if (readAt == null) return null;
+        Post post = get(postID);
+        if (post == null || post.isSummary() || SystemClock.elapsedRealtime() - readAt > FULL_POST_TTL_MILLIS) {
+            fullPostReadAt.remove(postID);
+            return null;
+        }
+        return post;
+    }
+
+    /**
+     * Start calling the observer when the post changes. It is not called with the current post, see {@link #get}.
+     */
+    public void observe(String postID, Observer observer) {
+        List<Observer> observers = observersById.get(postID);
+        if (observers == null) {
+            observers = new ArrayList<>();
+            observersById.put(postID, observers);
+            Post post = recentPosts.remove(postID);
+            if (post != null) observedPosts.put(postID, post);
+        }
+        if (!observers.contains(observer)) observers.add(observer);
+    }
+
+    public void removeObserver(String postID, Observer observer) {
+        List<Observer> observers = observersById.get(postID);
+        if (observers == null) return;
+        observers.remove(observer);
+        if (observers.isEmpty()) {
+            observersById.remove(postID);
+            Post post = observedPosts.remove(postID);
+            if (post != null) recentPosts.put(postID, post);
+        }
+    }
+
+    /**
+     * Keep the posts read, a summary only updates the fields it has and does not replace the content of a full post.
+     */
+    void put(List<Post> posts) {
+        for (Post post : posts) {
+            if (post.getPostID() == null) continue;
+            Post stored = get(post.getPostID());
+            if (stored == null || !post.isSummary() || stored.isSummary()) {
+                boolean isChanged = stored == null || isDisplayChanged(stored, post);
+                store(post);
+                if (!post.isSummary()) fullPostReadAt.put(post.getPostID(), SystemClock.elapsedRealtime());
+                if (isChanged) notifyChanged(post.getPostID(), post);
+                continue;
+            }
+            boolean isChanged = isCountChanged(stored, post) || !Objects.equals(stored.getTitle(), post.getTitle());
+            stored.setVoteDifference(post.getVoteDifference());
+            stored.setTotalComment(post.getTotalComment());
+            stored.setTitle(post.getTitle());
+            stored.setCategory(post.getCategory());
+            stored.setLastModified(post.getLastModified());
+            if (isChanged) notifyChanged(stored.getPostID(), stored);
+        }
+    }
+
+    void setVoteDifference(String postID, int voteDifference) {
+        Post stored = get(postID);
+        if (stored == null || Objects.equals(stored.getVoteDifference(), voteDifference)) return;
+        stored.setVoteDifference(voteDifference);
+        notifyChanged(postID, stored);
+    }
+
+    /**
+     * Count comments added (delta &gt; 0) or deleted (delta &lt; 0) on the post.
+     */
+    public void addComments(String postID, int delta) {
+        Post stored = get(postID);
+        if (stored == null) return;
+        int totalComment = stored.getTotalComment() != null ? stored.getTotalComment() : 0;
+        stored.setTotalComment(Math.max(0, totalComment + delta));
+        notifyChanged(postID, stored);
+    }
+
+    /**
+     * The next getOnePost reads the post again, e.g. after a write whose result is not known here.
+     */
+    void expire(String postID) {
+        fullPostReadAt.remove(postID);
+    }
+
+    // every post of the community is read again by getOnePost
+    void expireCommunity(String communityID) {
+        Iterator<String> postIDs = fullPostReadAt.keySet().iterator();
+        while (postIDs.hasNext()) {
+            Post post = get(postIDs.next());
+            if (post == null || communityID.equals(post.getCommunityID())) postIDs.remove();
+        }
+    }
+
+    /**
+     * Drop the posts no screen observes until at most {@code size} are left, the least recently used first.
+     */
+    public void trimTo(int size) {
+        Iterator<String> postIDs = recentPosts.keySet().iterator();
+        while (recentPosts.size() > size && postIDs.hasNext()) {
+            fullPostReadAt.remove(postIDs.next());
+            postIDs.remove();
+        }
+    }
+
+    void remove(String postID) {
+        fullPostReadAt.remove(postID);
+        Post observed = observedPosts.remove(postID);
+        Post recent = recentPosts.remove(postID);
+        if (observed != null || recent != null) {
+            notifyChanged(postID, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PostStore[observed=" + observedPosts.size() + ", recent=" + recentPosts.size() + "/" + MAX_RECENT_POSTS
+                + ", full=" + fullPostReadAt.size() + "]";
+    }
+
+    private void store(Post post) {
+        if (observersById.containsKey(post.getPostID())) {
+            observedPosts.put(post.getPostID(), post);
+        } else {
+            recentPosts.put(post.getPostID(), post);
+        }
+    }
+
+    private static boolean isDisplayChanged(Post stored, Post post) {
+        return isCountChanged(stored, post)
+                || !Objects.equals(stored.getTitle(), post.getTitle())
+                || !Objects.equals(stored.getContent(), post.getContent())
+                || stored.isSummary() != post.isSummary();
+    }
+
+    private static boolean isCountChanged(Post stored, Post post) {
+        return !Objects.equals(stored.getVoteDifference(), post.getVoteDifference())
+                || !Objects.equals(stored.getTotalComment(), post.getTotalComment());
+    }
+
+    private void notifyChanged(String postID, @Nullable Post post) {
+        List<Observer> observers = observersById.get(postID);
+        if (observers == null) return;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onPostChanged(postID, post);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.eduforum.activity.repository.shared;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs Firestore reads in a {@link ReadMode}.
+ * <br></br>
+ * With {@link ReadMode#CACHE_FIRST} the listener can be called twice: once with the local cache and once more
+ * with the server result if it differs from what the cache returned. Only use it for reads whose callback replaces
+ * the previous result, never for reads that append to a list.
+ * <br></br>
+ * A read identical to one still in flight (same mode, same query or document) does not read again, it is given the
+ * results of the first one, see {@link SingleFlight}.
+ */
+public class CacheFirstReader {
+    private static final String TAG = "CacheFirstReader";
+
+    public interface QueryListener {
+        void onResult(QuerySnapshot snapshot);
+
+        void onError(@NonNull Exception e);
+    }
+
+    public interface DocumentListener {
+        void onResult(DocumentSnapshot snapshot);
+
+        void onError(@NonNull Exception e);
+    }
+
+    // identical reads in flight share one Firestore read, keyed by read mode and query or document
+    private static final SingleFlight<List<Object>, QuerySnapshot> queryFlights = new SingleFlight<>();
+    private static final SingleFlight<List<Object>, DocumentSnapshot> documentFlights = new SingleFlight<>();
+
+    private CacheFirstReader() {
+    }
+
+    public static void get(Query query, ReadMode mode, QueryListener listener) {
+        queryFlights.run(Arrays.<Object>asList(mode, query), new SingleFlight.Receiver<QuerySnapshot>() {
+            @Override
+            public void onResult(QuerySnapshot snapshot) {
+                listener.onResult(snapshot);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                listener.onError(e);
+            }
+        }, flight -> read(query, mode, flight));
+    }
+
+    public static void get(DocumentReference ref, ReadMode mode, DocumentListener listener) {
+        documentFlights.run(Arrays.<Object>asList(mode, ref), new SingleFlight.Receiver<DocumentSnapshot>() {
+            @Override
+            public void onResult(DocumentSnapshot snapshot) {
+                listener.onResult(snapshot);
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                listener.onError(e);
+            }
+        }, flight -> read(ref, mode, flight));
+    }
+
+    /**
+     * @return the number of reads that joined an identical read in flight instead of reading again
+     */
+    public static long getMergedReadCount() {
+        return queryFlights.getMergedCount() + documentFlights.getMergedCount();
+    }
+
+    private static void read(Query query, ReadMode mode, SingleFlight.Flight<QuerySnapshot> flight) {
+        if (mode != ReadMode.CACHE_FIRST) {
+            query.get()
+                    .addOnSuccessListener(snapshot -> {
+                        flight.deliver(snapshot);
+                        flight.complete();
+                    })
+                    .addOnFailureListener(flight::fail);
+            return;
+        }
+        ReadState state = new ReadState();
+        query.get(Source.CACHE).addOnSuccessListener(snapshot -> {
+            // an empty cache result is most likely a cache miss, wait for the server instead
+            if (state.isServerDone || snapshot.isEmpty()) return;
+            state.cachedContent = contentOf(snapshot);
+            flight.deliver(snapshot);
+        });
+        query.get(Source.DEFAULT).addOnSuccessListener(snapshot -> {
+            state.isServerDone = true;
+            if (state.cachedContent != null && state.cachedContent.equals(contentOf(snapshot))) {
+                Log.d(TAG, "Server result is the same as the cache, skipped");
+                flight.complete();
+                return;
+            }
+            flight.deliver(snapshot);
+            flight.complete();
+        }).addOnFailureListener(e -> {
+            state.isServerDone = true;
+            if (state.cachedContent != null) {
+                // the cached result is already displayed, keep it
+                Log.w(TAG, "Revalidation failed, keeping the cached result", e);
+                flight.complete();
+                return;
+            }
+            flight.fail(e);
+        });
+    }
+
+    private static void read(DocumentReference ref, ReadMode mode, SingleFlight.Flight<DocumentSnapshot> flight) {
+        if (mode != ReadMode.CACHE_FIRST) {
+            ref.get()
+                    .addOnSuccessListener(snapshot -> {
+                        flight.deliver(snapshot);
+                        flight.complete();
+                    })
+                    .addOnFailureListener(flight::fail);
+            return;
+        }
+        ReadState state = new ReadState();
+        // fails when the document is not in the cache, the server read below covers that case
+        ref.get(Source.CACHE).addOnSuccessListener(snapshot -> {
+            if (state.isServerDone || !snapshot.exists()) return;
+            state.cachedContent = contentOf(snapshot);
+            flight.deliver(snapshot);
+        });
+        ref.get(Source.DEFAULT).addOnSuccessListener(snapshot -> {
+            state.isServerDone = true;
+            if (state.cachedContent != null && state.cachedContent.equals(contentOf(snapshot))) {
+                Log.d(TAG, "Server result is the same as the cache, skipped: " + ref.getPath());
+                flight.complete();
+                return;
+            }
+            flight.deliver(snapshot);
+            flight.complete();
+        }).addOnFailureListener(e -> {
+            state.isServerDone = true;
+            if (state.cachedContent != null) {
+                Log.w(TAG, "Revalidation failed, keeping the cached result: " + ref.getPath(), e);
+                flight.complete();
+                return;
+            }
+            flight.fail(e);
+        });
+    }
+
+    private static List<Object> contentOf(QuerySnapshot snapshot) {
+        List<Object> content = new ArrayList<>();
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            content.add(contentOf(document));
+        }
+        return content;
+    }
+
+    private static List<Object> contentOf(DocumentSnapshot document) {
+        List<Object> content = new ArrayList<>();
+        content.add(document.getId());
+        Map<String, Object> data = document.getData();
+        content.add(data);
+        return content;
+    }
+
+    // Firestore delivers both results on the main thread, so the state needs no locking
+    private static class ReadState {
+        boolean isServerDone;
+        List<Object> cachedContent;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.eduforum.activity.repository.shared;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.community_manage.Community;
+import com.example.eduforum.activity.model.noti_manage.CommunityNotification;
+import com.example.eduforum.activity.model.noti_manage.Notification;
+import com.example.eduforum.activity.model.noti_manage.PostNotification;
+import com.example.eduforum.activity.model.noti_manage.Sender;
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.post_manage.Creator;
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.example.eduforum.activity.model.post_manage.PostCategory;
+import com.example.eduforum.activity.model.post_manage.PostingObject;
+import com.example.eduforum.activity.model.user_manage.User;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the models from the Firestore documents field by field, instead of {@code toObject}, which finds the
+ * properties of the class by reflection for every document. The document ID is filled in the same pass.
+ * <br></br>
+ * The field names are the ones written by the app and the Cloud Functions. A missing field, or a field of another
+ * type, is left null.
+ */
+public class DocumentMappers {
+    private DocumentMappers() {
+    }
+
+    /**
+     * @return the post, with the post ID of the document
+     */
+    public static Post toPost(DocumentSnapshot document) {
+        Post post = new Post();
+        readPostingObject(document, post);
+        post.setPostID(document.getId());
+        post.setTitle(stringOf(document.get("title")));
+        post.setAnonymous(booleanOf(document.get("isAnonymous")));
+        post.setTotalComment(intOf(document.get("totalComment")));
+        post.setTaggedUsers(stringsOf(document.get("taggedUsers")));
+        post.setCategory(categoriesOf(document.get("category")));
+        return post;
+    }
+
+    /**
+     * Read a document of the PostSummary collection.
+     * @return the post with the fields of its summary, the content is an excerpt and only the first image is known
+     */
+    public static Post toPostFromSummary(DocumentSnapshot document) {
+        Post post = new Post();
+        post.setPostID(document.getId());
+        post.setCommunityID(stringOf(document.get("communityID")));
+        post.setTitle(stringOf(document.get("title")));
+        post.setContent(stringOf(document.get("excerpt")));
+        post.setCreator(creatorOf(document.get("creator")));
+        post.setAnonymous(booleanOf(document.get("anonymous")));
+        post.setTimeCreated(timestampOf(document.get("timeCreated")));
+        post.setLastModified(timestampOf(document.get("lastModified")));
+        post.setVoteDifference(intOf(document.get("voteDifference")));
+        post.setTotalComment(intOf(document.get("totalComment")));
+        post.setCategory(categoriesOf(document.get("category")));
+        String thumbnail = stringOf(document.get("thumbnail"));
+        if (thumbnail != null) {
+            post.setDownloadImage(new ArrayList<>(Collections.singletonList(thumbnail)));
+        }
+        post.setSummary(true);
+        return post;
+    }
+
+    /**
+     * @return the comment, with the comment ID of the document
+     */
+    public static Comment toComment(DocumentSnapshot document) {
+        Comment comment = new Comment();
+        readPostingObject(document, comment);
+        comment.setCommentID(document.getId());
+        comment.setReplyCommentID(stringOf(document.get("replyCommentID")));
+        comment.setTotalReply(intOf(document.get("totalReply")));
+        return comment;
+    }
+
+    /**
+     * @return the community, its ID is the communityId field or else the document ID
+     */
+    public static Community toCommunity(DocumentSnapshot document) {
+        Community community = new Community();
+        String communityId = stringOf(document.get("communityId"));
+        community.setCommunityId(communityId != null ? communityId : document.getId());
+        community.setName(stringOf(document.get("name")));
+        community.setDescription(stringOf(document.get("description")));
+        community.setDepartment(stringOf(document.get("department")));
+        community.setProfilePicture(stringOf(document.get("profilePicture")));
+        community.setTimeCreated(timestampOf(document.get("timeCreated")));
+        community.setTotalPost(intOf(document.get("totalPost")));
+        community.setTotalNewPost(intOf(document.get("totalNewPost")));
+        community.setInviteCode(stringOf(document.get("inviteCode")));
+        community.setVisibility(stringOf(document.get("visibility")));
+        community.setRequestSent(booleanOf(document.get("requestSent")));
+        // the lists are changed by the callers, e.g. when a user joins
+        List<String> adminList = stringsOf(document.get("adminList"));
+        community.setAdminList(adminList != null ? adminList : new ArrayList<>());
+        List<String> userList = stringsOf(document.get("userList"));
+        community.setUserList(userList != null ? userList : new ArrayList<>());
+        return community;
+    }
+
+    /**
+     * @return the notification, with the notification ID of the document
+     */
+    public static Notification toNotification(DocumentSnapshot document) {
+        Notification notification = new Notification();
+        notification.setNotificationID(document.getId());
+        Integer type = intOf(document.get("type"));
+        notification.setType(type != null ? type : 0);
+        notification.setIsRead(Boolean.TRUE.equals(booleanOf(document.get("isRead"))));
+        notification.setTimestamp(timestampOf(document.get("timestamp")));
+        notification.setCommentID(stringOf(document.get("commentID")));
+
+        Map<String, Object> triggeredBy = mapOf(document.get("triggeredBy"));
+        if (triggeredBy != null) {
+            Sender sender = new Sender();
+            sender.setUserID(stringOf(triggeredBy.get("userID")));
+            sender.setName(stringOf(triggeredBy.get("name")));
+            sender.setProfilePicture(stringOf(triggeredBy.get("profilePicture")));
+            notification.setTriggeredBy(sender);
+        }
+        Map<String, Object> community = mapOf(document.get("community"));
+        if (community != null) {
+            CommunityNotification communityNotification = new CommunityNotification();
+            communityNotification.setCommunityID(stringOf(community.get("communityID")));
+            communityNotification.setName(stringOf(community.get("name")));
+            notification.setCommunity(communityNotification);
+        }
+        Map<String, Object> post = mapOf(document.get("post"));
+        if (post != null) {
+            PostNotification postNotification = new PostNotification();
+            postNotification.setPostID(stringOf(post.get("postID")));
+            postNotification.setTitle(stringOf(post.get("title")));
+            notification.setPost(postNotification);
+        }
+        return notification;
+    }
+
+    /**
+     * @param userId ID of the user, the document ID of a User document but a field of the documents that refer to a user
+     */
+    public static User toUser(DocumentSnapshot document, String userId) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUserName(stringOf(document.get("userName")));
+        user.setName(stringOf(document.get("name")));
+        user.setEmail(stringOf(document.get("email")));
+        user.setPhoneNumber(stringOf(document.get("phoneNumber")));
+        user.setGender(stringOf(document.get("gender")));
+        user.setSchoolYear(stringOf(document.get("schoolYear")));
+        user.setDepartment(stringOf(document.get("department")));
+        user.setProfilePicture(stringOf(document.get("profilePicture")));
+        return user;
+    }
+
+    // the fields shared by posts and comments, the local images (image) are never stored
+    private static void readPostingObject(DocumentSnapshot document, PostingObject object) {
+        object.setCommunityID(stringOf(document.get("communityID")));
+        object.setPostID(stringOf(document.get("postID")));
+        object.setContent(stringOf(document.get("content")));
+        object.setTimeCreated(timestampOf(document.get("timeCreated")));
+        object.setLastModified(timestampOf(document.get("lastModified")));
+        object.setCreator(creatorOf(document.get("creator")));
+        object.setTotalUpVote(intOf(document.get("totalUpVote")));
+        object.setTotalDownVote(intOf(document.get("totalDownVote")));
+        object.setVoteDifference(intOf(document.get("voteDifference")));
+        object.setCounterShards(intOf(document.get("counterShards")));
+        object.setDownloadImage(stringsOf(document.get("downloadImage")));
+    }
+
+    @Nullable
+    private static Creator creatorOf(Object value) {
+        Map<String, Object> map = mapOf(value);
+        if (map == null) return null;
+        return new Creator(stringOf(map.get("creatorID")), stringOf(map.get("name")),
+                stringOf(map.get("department")), stringOf(map.get("profilePicture")));
+    }
+
+    @Nullable
+    private static List<PostCategory> categoriesOf(Object value) {
+        if (!(value instanceof List)) return null;
+        List<?> list = (List<?>) value;
+        List<PostCategory> categories = new ArrayList<>(list.size());
+        for (Object item : list) {
+            Map<String, Object> map = mapOf(item);
+            if (map != null) {
+                categories.add(new PostCategory(stringOf(map.get("categoryID")), stringOf(map.get("title"))));
+            }
+        }
+        return categories;
+    }
+
+    @Nullable
+    private static List<String> stringsOf(Object value) {
+        if (!(value instanceof List)) return null;
+        List<?> list = (List<?>) value;
+        List<String> strings = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (item instanceof String) strings.add((String) item);
+        }
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static Map<String, Object> mapOf(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    @Nullable
+    private static String stringOf(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    // Firestore returns the integers as Long
+    @Nullable
+    private static Integer intOf(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+
+    @Nullable
+    private static Boolean booleanOf(Object value) {
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
+
+    @Nullable
+    private static Timestamp timestampOf(Object value) {
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.eduforum.activity.repository.shared;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory cache of entities read by the repositories, by ID.
+ * <br></br>
+ * At most {@code maxSize} entities are kept, the least recently used one is evicted first. An entity older than
+ * {@code ttlMillis} is not returned any more, the repositories read it again. A repository invalidates the entities
+ * it writes, the writes of the other users are only seen once the entity expires.
+ * <br></br>
+ * The hit, miss and eviction counts are kept so that the sizes and the TTLs can be tuned, see {@link EntityCaches#logStats}.
+ */
+public class EntityCache<V> {
+    private static class Entry<V> {
+        final V value;
+        final long storedAt;
+
+        Entry(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    public EntityCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the entity, or null if it was never stored, was invalidated or is expired
+     */
+    @Nullable
+    public synchronized V get(String id) {
+        Entry<V> entry = id == null ? null : entries.get(id);
+        if (entry != null && isExpired(entry, SystemClock.elapsedRealtime())) {
+            entries.remove(id);
+            expirationCount++;
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    public synchronized void put(String id, V value) {
+        if (id == null || value == null) return;
+        entries.put(id, new Entry<>(value, SystemClock.elapsedRealtime()));
+    }
+
+    public synchronized void invalidate(String id) {
+        if (id != null) entries.remove(id);
+    }
+
+    /**
+     * Remove the entities whose ID starts with the prefix, e.g. every post of a community.
+     */
+    public synchronized void invalidatePrefix(String prefix) {
+        Iterator<String> ids = entries.keySet().iterator();
+        while (ids.hasNext()) {
+            if (ids.next().startsWith(prefix)) ids.remove();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Drop the expired entities, then the least recently used ones until at most {@code size} are left.
+     */
+    public synchronized void trimTo(int size) {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry<V>> values = entries.values().iterator();
+        while (values.hasNext()) {
+            if (isExpired(values.next(), now)) {
+                values.remove();
+                expirationCount++;
+            }
+        }
+        values = entries.values().iterator();
+        while (entries.size() > size && values.hasNext()) {
+            values.next();
+            values.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getExpirationCount() {
+        return expirationCount;
+    }
+
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return now - entry.storedAt > ttlMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "[size=" + entries.size() + "/" + maxSize
+                + ", hits=" + hitCount
+                + ", misses=" + missCount
+                + ", evictions=" + evictionCount
+                + ", expirations=" + expirationCount + "]";
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.eduforum.activity.repository.shared;
+
+import android.content.ComponentCallbacks2;
+import android.util.Log;
+
+import com.example.eduforum.activity.model.community_manage.CommunityMember;
+import com.example.eduforum.activity.model.post_manage.Category;
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.user_manage.User;
+import com.example.eduforum.activity.repository.post.PostStore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@link EntityCache}s shared by the repositories, with their sizes and TTLs in one place.
+ * <br></br>
+ * The posts are not cached here, {@link PostStore} holds the only copy of each post. It is trimmed and cleared
+ * with these caches.
+ */
+public class EntityCaches {
+    private static final String TAG = "EntityCaches";
+    private static final long MINUTE = 60 * 1000L;
+
+    // every comment of a post by postKey, for the posts whose comments are loaded as a whole tree
+    public static final EntityCache<List<Comment>> COMMENT_TREES = new EntityCache<>("commentTrees", 30, MINUTE);
+    // members and admins of a community by community ID
+    public static final EntityCache<List<CommunityMember>> COMMUNITY_MEMBERS = new EntityCache<>("communityMembers", 20, 5 * MINUTE);
+    // categories of a community by community ID
+    public static final EntityCache<List<Category>> CATEGORIES = new EntityCache<>("categories", 50, 10 * MINUTE);
+    // users by user ID
+    public static final EntityCache<User> USERS = new EntityCache<>("users", 200, 10 * MINUTE);
+
+    private static final List<EntityCache<?>> ALL = Arrays.<EntityCache<?>>asList(COMMENT_TREES, COMMUNITY_MEMBERS, CATEGORIES, USERS);
+
+    private EntityCaches() {
+    }
+
+    public static String postKey(String communityID, String postID) {
+        return communityID + "/" + postID;
+    }
+
+    /**
+     * Called by the application when the system is short of memory.
+     */
+    public static void onTrimMemory(int level) {
+        logStats();
+        int size = level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE ? 0 : 10;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            for (EntityCache<?> cache : ALL) {
+                cache.trimTo(size);
+            }
+            PostStore.getInstance().trimTo(size);
+        }
+    }
+
+    /**
+     * Remove everything, e.g. when the user signs out.
+     */
+    public static void invalidateAll() {
+        for (EntityCache<?> cache : ALL) {
+            cache.invalidateAll();
+        }
+        // the posts shown by the screens still open are kept
+        PostStore.getInstance().trimTo(0);
+    }
+
+    public static void logStats() {
+        for (EntityCache<?> cache : ALL) {
+            Log.d(TAG, cache + " hitRate=" + String.format(Locale.ROOT, "%.2f", cache.getHitRate()));
+        }
+        Log.d(TAG, PostStore.getInstance().toString());
+        Log.d(TAG, "reads merged with a read in flight: " + CacheFirstReader.getMergedReadCount());
+    }
+}
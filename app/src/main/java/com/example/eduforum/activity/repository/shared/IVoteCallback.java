@@ -0,0 +1,14 @@
+package com.example.eduforum.activity.repository.shared;
+
+import androidx.annotation.Nullable;
+
+public interface IVoteCallback {
+    /**
+     * @param voteType       the vote saved for the user (1: upvote, -1: downvote, 0: no vote)
+     * @param voteDifference the voteDifference of the post or comment right after the write, shards included.
+     *                       Null when the vote is saved but the count could not be read
+     */
+    void onVoteSuccess(int voteType, @Nullable Long voteDifference);
+
+    void onVoteFailure(String errorMsg);
+}
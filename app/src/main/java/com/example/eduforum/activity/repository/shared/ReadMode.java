@@ -0,0 +1,12 @@
+package com.example.eduforum.activity.repository.shared;
+
+public enum ReadMode {
+    /**
+     * Wait for the server, same as a plain get().
+     */
+    SERVER,
+    /**
+     * Return the Firestore local cache at once, then refresh from the server and deliver again only if the result changed.
+     */
+    CACHE_FIRST
+}
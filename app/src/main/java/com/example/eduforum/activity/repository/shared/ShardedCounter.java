@@ -0,0 +1,170 @@
+package com.example.eduforum.activity.repository.shared;
+
+import androidx.annotation.Nullable;
+
+import com.example.eduforum.activity.model.post_manage.PostingObject;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Counters of a post or comment spread over {@code {target}/Shard/{0..n-1}} so that concurrent votes do not all
+ * write the same document. The counters kept on the target document stay as a base: the value of a counter is the
+ * base plus the sum of the shards. A document is sharded once its {@code counterShards} field is set, which
+ * {@link VoteTransaction} does when the document gets many votes or its transactions keep being aborted.
+ * <br></br>
+ * The queries ordered by a counter only see the base. After a vote on a sharded document, the shards are rolled up
+ * into the base at most every {@link #ROLL_UP_INTERVAL_MS}, see {@link #rollUp}, so the order stays close.
+ */
+public class ShardedCounter {
+    public static final int SHARD_COUNT = 10;
+    // total votes (up and down) after which the counters of a document are sharded
+    public static final long SHARDING_VOTE_THRESHOLD = 100;
+    // only the votes are sharded, totalComment is kept on the post by the Cloud Function that counts the comments
+    static final String[] COUNTER_FIELDS = {"totalUpVote", "totalDownVote", "voteDifference"};
+    public static final long ROLL_UP_INTERVAL_MS = 60 * 1000;
+    static final String ROLLED_UP_AT_FIELD = "shardsRolledUpAt";
+    // the sharded counters kept in a post summary
+    private static final String[] COPIED_FIELDS = {"voteDifference"};
+    private static final Random random = new Random();
+
+    private ShardedCounter() {
+    }
+
+    public static boolean isSharded(DocumentSnapshot target) {
+        Long shards = target.getLong("counterShards");
+        return shards != null && shards > 0;
+    }
+
+    public static boolean isSharded(PostingObject target) {
+        return target.getCounterShards() != null && target.getCounterShards() > 0;
+    }
+
+    static DocumentReference randomShard(DocumentReference target, int shards) {
+        return target.collection("Shard").document(String.valueOf(random.nextInt(shards)));
+    }
+
+    /**
+     * @return the sum of each counter over the shards of the target, counters without shards are absent
+     */
+    public static Task<Map<String, Long>> readShardTotals(DocumentReference target) {
+        return target.collection("Shard").get().continueWith(task -> {
+            Map<String, Long> totals = new HashMap<>();
+            QuerySnapshot shards = task.getResult();
+            for (DocumentSnapshot shard : shards.getDocuments()) {
+                for (String field : COUNTER_FIELDS) {
+                    Long value = shard.getLong(field);
+                    if (value == null) continue;
+                    Long total = totals.get(field);
+                    totals.put(field, (total != null ? total : 0) + value);
+                }
+            }
+            return totals;
+        });
+    }
+
+    /**
+     * Add the shard totals to the counters of the sharded objects, the objects without shards are left as they are.
+     *
+     * @param objects posts or comments read from Firestore
+     * @param refs    the document of each object, in the same order
+     * @return completes when every sharded object has its totals, never fails: an object whose shards could not be
+     * read keeps its base counters
+     */
+    public static Task<Void> addShardTotals(List<? extends PostingObject> objects, List<DocumentReference> refs) {
+        List<Task<Map<String, Long>>> reads = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            PostingObject object = objects.get(i);
+            if (!isSharded(object)) continue;
+            reads.add(readShardTotals(refs.get(i)).addOnSuccessListener(totals -> addTotals(object, totals)));
+        }
+        if (reads.isEmpty()) {
+            return Tasks.forResult(null);
+        }
+        return Tasks.whenAllComplete(reads).continueWith(task -> null);
+    }
+
+    /**
+     * @return true if the shards of the target were not rolled up for {@link #ROLL_UP_INTERVAL_MS}
+     */
+    static boolean isRollUpDue(DocumentSnapshot target) {
+        Timestamp rolledUpAt = target.getTimestamp(ROLLED_UP_AT_FIELD);
+        return isSharded(target) && (rolledUpAt == null
+                || System.currentTimeMillis() - rolledUpAt.toDate().getTime() > ROLL_UP_INTERVAL_MS);
+    }
+
+    /**
+     * Move the sum of the shards into the counters of the target document and reset the shards, in one transaction.
+     * The value of each counter does not change, but the target document holds it again for the queries ordered by
+     * it. Nothing is written if another device rolled the shards up meanwhile.
+     *
+     * @param copyRef a document keeping a copy of the counters (the summary of a post), set to the totals if it
+     *                exists, null if there is none
+     */
+    public static Task<Void> rollUp(FirebaseFirestore db, DocumentReference target, @Nullable DocumentReference copyRef) {
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot targetSnapshot = transaction.get(target);
+            if (!targetSnapshot.exists() || !isRollUpDue(targetSnapshot)) return null;
+            DocumentSnapshot copySnapshot = copyRef != null ? transaction.get(copyRef) : null;
+            int shardCount = targetSnapshot.getLong("counterShards").intValue();
+            List<DocumentSnapshot> shards = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                shards.add(transaction.get(target.collection("Shard").document(String.valueOf(i))));
+            }
+            Map<String, Object> increments = new HashMap<>();
+            Map<String, Object> reset = new HashMap<>();
+            Map<String, Long> totals = new HashMap<>();
+            for (String field : COUNTER_FIELDS) {
+                reset.put(field, 0);
+            }
+            for (DocumentSnapshot shard : shards) {
+                if (!shard.exists()) continue;
+                for (String field : COUNTER_FIELDS) {
+                    Long value = shard.getLong(field);
+                    if (value == null) continue;
+                    Long total = totals.get(field);
+                    totals.put(field, (total != null ? total : 0) + value);
+                }
+                transaction.set(shard.getReference(), reset, SetOptions.merge());
+            }
+            for (Map.Entry<String, Long> total : totals.entrySet()) {
+                increments.put(total.getKey(), FieldValue.increment(total.getValue()));
+            }
+            increments.put(ROLLED_UP_AT_FIELD, FieldValue.serverTimestamp());
+            transaction.update(target, increments);
+            if (copySnapshot != null && copySnapshot.exists()) {
+                Map<String, Object> copied = new HashMap<>();
+                for (String field : COPIED_FIELDS) {
+                    Long base = targetSnapshot.getLong(field);
+                    Long total = totals.get(field);
+                    copied.put(field, (base != null ? base : 0) + (total != null ? total : 0));
+                }
+                transaction.update(copyRef, copied);
+            }
+            return null;
+        });
+    }
+
+    private static void addTotals(PostingObject object, Map<String, Long> totals) {
+        object.setTotalUpVote(add(object.getTotalUpVote(), totals.get("totalUpVote")));
+        object.setTotalDownVote(add(object.getTotalDownVote(), totals.get("totalDownVote")));
+        object.setVoteDifference(add(object.getVoteDifference(), totals.get("voteDifference")));
+    }
+
+    private static Integer add(Integer base, Long shardTotal) {
+        if (shardTotal == null) return base;
+        return (int) ((base != null ? base : 0) + shardTotal);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.eduforum.activity.repository.shared;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the identical reads in flight: the first caller of a key starts the read, the callers of the same key that
+ * come before it completes wait for it, and every result of the read is given to all of them.
+ * <br></br>
+ * A read can give several results (see {@link CacheFirstReader}), a caller that joins late is given the last result
+ * at once, then the following ones. The key is forgotten when the read completes, the next caller reads again.
+ * <br></br>
+ * Every method must be called on the main thread, the Firestore callbacks run there too.
+ */
+public class SingleFlight<K, T> {
+    public interface Receiver<T> {
+        void onResult(T result);
+
+        void onError(@NonNull Exception e);
+    }
+
+    public interface Read<T> {
+        /**
+         * Start the read, give its results to the flight and complete it.
+         */
+        void start(Flight<T> flight);
+    }
+
+    public static class Flight<T> {
+        private final List<Receiver<T>> receivers = new ArrayList<>();
+        private final Runnable onComplete;
+        private T lastResult;
+        private boolean hasResult;
+        private boolean isComplete;
+
+        private Flight(Runnable onComplete) {
+            this.onComplete = onComplete;
+        }
+
+        public void deliver(T result) {
+            if (isComplete) return;
+            lastResult = result;
+            hasResult = true;
+            for (Receiver<T> receiver : new ArrayList<>(receivers)) {
+                receiver.onResult(result);
+            }
+        }
+
+        public void fail(@NonNull Exception e) {
+            if (isComplete) return;
+            complete();
+            for (Receiver<T> receiver : new ArrayList<>(receivers)) {
+                receiver.onError(e);
+            }
+        }
+
+        public void complete() {
+            if (isComplete) return;
+            isComplete = true;
+            onComplete.run();
+        }
+    }
+
+    private final Map<K, Flight<T>> flights = new HashMap<>();
+    private long readCount;
+    private long mergedCount;
+
+    public void run(K key, Receiver<T> receiver, Read<T> read) {
+        Flight<T> flight = flights.get(key);
+        if (flight != null) {
+            mergedCount++;
+            flight.receivers.add(receiver);
+            if (flight.hasResult) {
+                receiver.onResult(flight.lastResult);
+            }
+            return;
+        }
+        readCount++;
+        Flight<T> newFlight = new Flight<>(() -> flights.remove(key));
+        newFlight.receivers.add(receiver);
+        flights.put(key, newFlight);
+        read.start(newFlight);
+    }
+
+    /**
+     * @return the number of reads started
+     */
+    public long getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * @return the number of calls that joined a read in flight instead of starting one
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+}
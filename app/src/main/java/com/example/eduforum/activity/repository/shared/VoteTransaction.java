@@ -0,0 +1,159 @@
+package com.example.eduforum.activity.repository.shared;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sets the vote of a user on a post or a comment inside a transaction. The vote is stored in
+ * {@code {target}/Vote/{userID}} and the counters of the target are moved by the difference with the previous vote,
+ * on the target itself or on one of its shards when it is sharded (see {@link ShardedCounter}).
+ */
+public class VoteTransaction {
+    private static final String TAG = "VoteTransaction";
+
+    private VoteTransaction() {
+    }
+
+    static class Result {
+        // voteDifference of the target document, without the shards
+        final long voteDifference;
+        final boolean isSharded;
+        // the shards were not rolled up for a while, see ShardedCounter#rollUp
+        final boolean isRollUpDue;
+
+        Result(long voteDifference, boolean isSharded, boolean isRollUpDue) {
+            this.voteDifference = voteDifference;
+            this.isSharded = isSharded;
+            this.isRollUpDue = isRollUpDue;
+        }
+    }
+
+    /**
+     * Set the vote and deliver the new voteDifference of the target, shards included. When the transaction is
+     * aborted because too many users vote at once, the target is sharded and the vote is tried once more.
+     *
+     * @param targetRef the post or comment document
+     * @param voteType  1: upvote, -1: downvote, 0: no vote
+     */
+    public static void run(FirebaseFirestore db, DocumentReference targetRef, String userID, int voteType, IVoteCallback callback) {
+        run(db, targetRef, null, userID, voteType, true, callback);
+    }
+
+    /**
+     * Same as {@link #run(FirebaseFirestore, DocumentReference, String, int, IVoteCallback)}, the copy of the
+     * voteDifference kept in another document (the summary of a post) is moved in the same transaction if it exists.
+     * The copy of a sharded target is written when the shards are rolled up instead, see {@link ShardedCounter#rollUp}.
+     */
+    public static void run(FirebaseFirestore db, DocumentReference targetRef, @Nullable DocumentReference copyRef, String userID, int voteType, IVoteCallback callback) {
+        run(db, targetRef, copyRef, userID, voteType, true, callback);
+    }
+
+    private static void run(FirebaseFirestore db, DocumentReference targetRef, @Nullable DocumentReference copyRef, String userID, int voteType, boolean mayShard, IVoteCallback callback) {
+        db.runTransaction(transaction -> apply(transaction, targetRef, copyRef, userID, voteType))
+                .addOnSuccessListener(result -> {
+                    if (!result.isSharded) {
+                        callback.onVoteSuccess(voteType, result.voteDifference);
+                        return;
+                    }
+                    ShardedCounter.readShardTotals(targetRef).addOnCompleteListener(task -> {
+                        // after the read, the base read by the transaction plus the shards is the total
+                        if (result.isRollUpDue) {
+                            ShardedCounter.rollUp(db, targetRef, copyRef).addOnFailureListener(e ->
+                                    Log.d(TAG, "Shards of " + targetRef.getPath() + " not rolled up", e));
+                        }
+                        if (!task.isSuccessful()) {
+                            Log.w(TAG, "Vote saved but the shards of " + targetRef.getPath() + " could not be read", task.getException());
+                            callback.onVoteSuccess(voteType, null);
+                            return;
+                        }
+                        Long shardDifference = task.getResult().get("voteDifference");
+                        callback.onVoteSuccess(voteType, result.voteDifference + (shardDifference != null ? shardDifference : 0));
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    if (mayShard && e instanceof FirebaseFirestoreException
+                            && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.ABORTED) {
+                        Log.d(TAG, "Too much contention on " + targetRef.getPath() + ", sharding its counters");
+                        targetRef.update("counterShards", ShardedCounter.SHARD_COUNT)
+                                .addOnCompleteListener(task -> run(db, targetRef, copyRef, userID, voteType, false, callback));
+                        return;
+                    }
+                    callback.onVoteFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Unlike the toggle of {@code updateVoteCount}, the result only depends on {@code voteType}: writing the same vote
+     * twice changes nothing, so a retried or coalesced write cannot drift.
+     */
+    static Result apply(Transaction transaction, DocumentReference targetRef, @Nullable DocumentReference copyRef, String userID, int voteType) throws FirebaseFirestoreException {
+        DocumentReference voteRef = targetRef.collection("Vote").document(userID);
+        DocumentSnapshot targetSnapshot = transaction.get(targetRef);
+        DocumentSnapshot voteSnapshot = transaction.get(voteRef);
+        // every read of a transaction comes before its writes
+        DocumentSnapshot copySnapshot = copyRef != null ? transaction.get(copyRef) : null;
+
+        if (!targetSnapshot.exists()) {
+            throw new FirebaseFirestoreException(targetRef.getPath() + " does not exist", FirebaseFirestoreException.Code.NOT_FOUND);
+        }
+
+        boolean isSharded = ShardedCounter.isSharded(targetSnapshot);
+        Long storedVoteType = voteSnapshot.exists() ? voteSnapshot.getLong("voteType") : null;
+        int oldVoteType = storedVoteType != null ? storedVoteType.intValue() : 0;
+        long voteDifference = valueOf(targetSnapshot, "voteDifference");
+        if (oldVoteType == voteType) {
+            return new Result(voteDifference, isSharded, isSharded && ShardedCounter.isRollUpDue(targetSnapshot));
+        }
+
+        Map<String, Object> increments = new HashMap<>();
+        int upVoteDelta = (voteType == 1 ? 1 : 0) - (oldVoteType == 1 ? 1 : 0);
+        int downVoteDelta = (voteType == -1 ? 1 : 0) - (oldVoteType == -1 ? 1 : 0);
+        if (upVoteDelta != 0) {
+            increments.put("totalUpVote", FieldValue.increment(upVoteDelta));
+        }
+        if (downVoteDelta != 0) {
+            increments.put("totalDownVote", FieldValue.increment(downVoteDelta));
+        }
+        increments.put("voteDifference", FieldValue.increment(voteType - oldVoteType));
+
+        if (isSharded) {
+            // the target document is only read, concurrent votes write different shards
+            int shards = targetSnapshot.getLong("counterShards").intValue();
+            transaction.set(ShardedCounter.randomShard(targetRef, shards), increments, SetOptions.merge());
+        } else {
+            long totalVotes = valueOf(targetSnapshot, "totalUpVote") + valueOf(targetSnapshot, "totalDownVote");
+            if (totalVotes + 1 >= ShardedCounter.SHARDING_VOTE_THRESHOLD) {
+                // the next votes go to the shards
+                increments.put("counterShards", ShardedCounter.SHARD_COUNT);
+            }
+            transaction.update(targetRef, increments);
+            voteDifference += voteType - oldVoteType;
+            if (copySnapshot != null && copySnapshot.exists()) {
+                transaction.update(copyRef, "voteDifference", FieldValue.increment(voteType - oldVoteType));
+            }
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("userID", userID);
+        data.put("voteType", voteType);
+        transaction.set(voteRef, data);
+        return new Result(voteDifference, isSharded, isSharded && ShardedCounter.isRollUpDue(targetSnapshot));
+    }
+
+    private static long valueOf(DocumentSnapshot snapshot, String field) {
+        Long value = snapshot.getLong(field);
+        return value != null ? value : 0;
+    }
+}
@@ -7,6 +7,8 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.example.eduforum.activity.model.user_manage.User;
+import com.example.eduforum.activity.repository.shared.EntityCaches;
+import com.example.eduforum.activity.repository.shared.DocumentMappers;
 import com.example.eduforum.activity.repository.user.dto.UpdateProfileDTO;
 import com.example.eduforum.activity.util.FlagsList;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -57,6 +59,7 @@ public class UserRepository {
                                 return;
                             }
                             mAuth.signOut();
+                            EntityCaches.invalidateAll();
                             Log.d(FlagsList.DEBUG_USER_FLAG, "Unsubscribed from user topic.");
                             callback.onSuccess();
                         }
@@ -175,6 +178,7 @@ public class UserRepository {
                             .update(updateProfileDTO.toMap())
                             .addOnSuccessListener(aVoid -> {
                                 Log.d(FlagsList.DEBUG_USER_FLAG, "User successfully updated!");
+                                EntityCaches.USERS.invalidate(user.getUserId());
                                 callback.onUpdateSuccess(user);
                             }).addOnFailureListener(e -> {
                                 Log.w(FlagsList.DEBUG_USER_FLAG, "Error updating user", e);
@@ -193,9 +197,17 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Get the signed in user, from {@link EntityCaches#USERS} if it was read a short time ago
+     */
     public void getCurrentUser(IUserCallback callback) {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser != null) {
+            User cachedUser = EntityCaches.USERS.get(currentUser.getUid());
+            if (cachedUser != null) {
+                callback.onGetUserSuccess(cachedUser);
+                return;
+            }
             DocumentReference docRef = db.collection("User").document(currentUser.getUid());
             docRef.get().addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
                 @Override
@@ -203,10 +215,9 @@ public class UserRepository {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document.exists()) {
-                            Log.d(FlagsList.DEBUG_USER_FLAG, "Current user data: " + document.getData());
-                            User user = document.toObject(User.class);
-                            assert user != null;
-                            user.setUserId(document.getId());
+                            Log.d(FlagsList.DEBUG_USER_FLAG, "Fetched current user " + document.getId());
+                            User user = DocumentMappers.toUser(document, document.getId());
+                            EntityCaches.USERS.put(user.getUserId(), user);
                             callback.onGetUserSuccess(user);
                         } else {
                             Log.d(FlagsList.DEBUG_USER_FLAG, "No such user exists!");
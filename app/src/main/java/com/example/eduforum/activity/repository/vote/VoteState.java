@@ -0,0 +1,38 @@
+package com.example.eduforum.activity.repository.vote;
+
+/**
+ * What the vote buttons of a post or comment should show: the vote of the current user and the vote count,
+ * both including the taps not saved yet.
+ */
+public class VoteState {
+    private final int voteType;
+    private final int voteDifference;
+    private final boolean isSaving;
+    private final boolean isRolledBack;
+
+    VoteState(int voteType, int voteDifference, boolean isSaving, boolean isRolledBack) {
+        this.voteType = voteType;
+        this.voteDifference = voteDifference;
+        this.isSaving = isSaving;
+        this.isRolledBack = isRolledBack;
+    }
+
+    // 1: upvote, -1: downvote, 0: no vote
+    public int getVoteType() {
+        return voteType;
+    }
+
+    public int getVoteDifference() {
+        return voteDifference;
+    }
+
+    // true while a tap is waiting for the debounce or being written
+    public boolean isSaving() {
+        return isSaving;
+    }
+
+    // true when the last write failed and the state went back to the last saved vote
+    public boolean isRolledBack() {
+        return isRolledBack;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.eduforum.activity.repository.vote;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.example.eduforum.activity.repository.comment.CommentRepository;
+import com.example.eduforum.activity.repository.post.PostRepository;
+import com.example.eduforum.activity.repository.shared.IVoteCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds one optimistic vote state per post or comment. A tap updates the state at once, the taps of the next
+ * {@link #VOTE_DEBOUNCE_MS} are coalesced and only the final vote is written, with one transaction.
+ * <br></br>
+ * When the write succeeds the vote count is reconciled with the one read by the transaction (votes of the other
+ * users included). When it fails the state goes back to the last saved vote.
+ * <br></br>
+ * Every method must be called on the main thread, the Firestore callbacks run there too.
+ */
+public class VoteStateManager {
+    public static final long VOTE_DEBOUNCE_MS = 600;
+    private static final String TAG = "VoteStateManager";
+    private static VoteStateManager instance;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public interface Listener {
+        void onVoteStateChanged(String key, VoteState state);
+    }
+
+    private interface Writer {
+        void write(int voteType, IVoteCallback callback);
+    }
+
+    private static class Entry {
+        // last vote known to be saved
+        int savedVoteType;
+        int savedVoteDifference;
+        // what the user sees
+        int voteType;
+        int voteDifference;
+        Runnable pendingWrite;
+        boolean isWriting;
+    }
+
+    private VoteStateManager() {
+    }
+
+    public static synchronized VoteStateManager getInstance() {
+        if (instance == null) {
+            instance = new VoteStateManager();
+        }
+        return instance;
+    }
+
+    public static String keyOf(Post post) {
+        return "Community/" + post.getCommunityID() + "/Post/" + post.getPostID();
+    }
+
+    public static String keyOf(Comment comment) {
+        return "Community/" + comment.getCommunityID() + "/Post/" + comment.getPostID() + "/Comment/" + comment.getCommentID();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the state of the post or comment, null if it was never seeded or voted on
+     */
+    public VoteState getState(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? stateOf(entry, false) : null;
+    }
+
+    /**
+     * Record the vote and count read from the server. Ignored while a tap of the key is not saved yet, the
+     * optimistic state wins until its write completes.
+     */
+    public void seed(String key, int voteType, int voteDifference) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(key, entry);
+        } else if (entry.pendingWrite != null || entry.isWriting) {
+            return;
+        }
+        entry.savedVoteType = voteType;
+        entry.savedVoteDifference = voteDifference;
+        entry.voteType = voteType;
+        entry.voteDifference = voteDifference;
+        notifyListeners(key, stateOf(entry, false));
+    }
+
+    /**
+     * Tap the upvote ({@code direction} 1) or downvote (-1) button of a post: the same vote again removes it.
+     * @return the new optimistic state, also sent to the listeners
+     */
+    public VoteState tap(Post post, String userID, int direction) {
+        PostRepository postRepository = PostRepository.getInstance();
+        return tap(keyOf(post), direction, (voteType, callback) -> postRepository.setVote(post, userID, voteType, callback));
+    }
+
+    /**
+     * Tap the upvote ({@code direction} 1) or downvote (-1) button of a comment: the same vote again removes it.
+     * @return the new optimistic state, also sent to the listeners
+     */
+    public VoteState tap(Comment comment, String userID, int direction) {
+        CommentRepository commentRepository = CommentRepository.getInstance();
+        return tap(keyOf(comment), direction, (voteType, callback) -> commentRepository.setVote(comment, userID, voteType, callback));
+    }
+
+    private VoteState tap(String key, int direction, Writer writer) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Log.w(TAG, "Vote on " + key + " before its state was seeded, assuming no vote");
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+        int newVoteType = entry.voteType == direction ? 0 : direction;
+        entry.voteDifference += newVoteType - entry.voteType;
+        entry.voteType = newVoteType;
+
+        if (entry.pendingWrite != null) {
+            handler.removeCallbacks(entry.pendingWrite);
+        }
+        entry.pendingWrite = () -> flush(key, writer);
+        handler.postDelayed(entry.pendingWrite, VOTE_DEBOUNCE_MS);
+
+        VoteState state = stateOf(entry, false);
+        notifyListeners(key, state);
+        return state;
+    }
+
+    private void flush(String key, Writer writer) {
+        Entry entry = entries.get(key);
+        entry.pendingWrite = null;
+        if (entry.isWriting) {
+            // written when the running write completes
+            return;
+        }
+        if (entry.voteType == entry.savedVoteType) {
+            // the taps cancelled each other out
+            notifyListeners(key, stateOf(entry, false));
+            return;
+        }
+        entry.isWriting = true;
+        writer.write(entry.voteType, new IVoteCallback() {
+            @Override
+            public void onVoteSuccess(int voteType, Long voteDifference) {
+                entry.isWriting = false;
+                // without the count from the server, move the last saved count by the vote change
+                entry.savedVoteDifference = voteDifference != null
+                        ? voteDifference.intValue()
+                        : entry.savedVoteDifference + voteType - entry.savedVoteType;
+                entry.savedVoteType = voteType;
+                // keep the taps made during the write on top of the count read by the server
+                entry.voteDifference = entry.savedVoteDifference + entry.voteType - entry.savedVoteType;
+                if (entry.pendingWrite == null && entry.voteType != entry.savedVoteType) {
+                    flush(key, writer);
+                    return;
+                }
+                notifyListeners(key, stateOf(entry, false));
+            }
+
+            @Override
+            public void onVoteFailure(String errorMsg) {
+                entry.isWriting = false;
+                if (entry.pendingWrite != null) {
+                    handler.removeCallbacks(entry.pendingWrite);
+                    entry.pendingWrite = null;
+                }
+                Log.w(TAG, "Vote on " + key + " failed, rolled back: " + errorMsg);
+                entry.voteType = entry.savedVoteType;
+                entry.voteDifference = entry.savedVoteDifference;
+                notifyListeners(key, stateOf(entry, true));
+            }
+        });
+        notifyListeners(key, stateOf(entry, false));
+    }
+
+    private VoteState stateOf(Entry entry, boolean isRolledBack) {
+        return new VoteState(entry.voteType, entry.voteDifference, entry.pendingWrite != null || entry.isWriting, isRolledBack);
+    }
+
+    private void notifyListeners(String key, VoteState state) {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onVoteStateChanged(key, state);
+        }
+    }
+}
@@ -100,6 +100,15 @@ public class CommunityActivity extends AppCompatActivity {
         binding.postRecyclerView.setAdapter(postAdapter);
         binding.postRecyclerView.setNestedScrollingEnabled(false);
         binding.postRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // the post list is laid out inside the ScrollView, so the end of the feed is detected on the ScrollView
+        binding.scrollview.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            View content = binding.scrollview.getChildAt(0);
+            if (content == null || scrollY <= oldScrollY) return;
+            int distanceToEnd = content.getHeight() - (scrollY + binding.scrollview.getHeight());
+            if (distanceToEnd <= binding.scrollview.getHeight()) {
+                viewModel.loadNextPage();
+            }
+        });
 
         ActivityResultLauncher<Intent> createPostActivityResult = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
@@ -168,6 +177,8 @@ public class CommunityActivity extends AppCompatActivity {
             public boolean onQueryTextChange(String newText) {
                 if (newText.isEmpty()) {
                     viewModel.refreshPostList();
+                } else {
+                    viewModel.searchAsYouType(newText);
                 }
                 return true;
             }
@@ -202,6 +213,9 @@ public class CommunityActivity extends AppCompatActivity {
                 case MOST_VOTED:
                     filterBinding.mostVoteRadioButton.setChecked(true);
                     break;
+                case HOT:
+                    filterBinding.hotRadioButton.setChecked(true);
+                    break;
             }
             //setup RadioButtons (allow only one selection)
             List<RadioButton> radioButtons = new ArrayList<>();
@@ -209,6 +223,7 @@ public class CommunityActivity extends AppCompatActivity {
             radioButtons.add(filterBinding.oldestRadioButton);
             radioButtons.add(filterBinding.mostCommentRadioButton);
             radioButtons.add(filterBinding.mostVoteRadioButton);
+            radioButtons.add(filterBinding.hotRadioButton);
             for(RadioButton radioButton : radioButtons) {
                 radioButton.setOnClickListener(v -> {
                     for(RadioButton rb : radioButtons) {
@@ -222,6 +237,7 @@ public class CommunityActivity extends AppCompatActivity {
             TagsAdapter tagsAdapter = new TagsAdapter( viewModel.getAllCategories().getValue(), currentFilter.getTags(), true, false);
             filterBinding.categoryRecyclerView.setAdapter(tagsAdapter);
             filterBinding.categoryRecyclerView.setLayoutManager(new LinearLayoutManager(this, RecyclerView.HORIZONTAL, false));
+            filterBinding.matchAllCheckBox.setChecked(currentFilter.isMatchAll());
             filterBinding.applyButton.setOnClickListener(v -> {
                 FilterViewState filterViewState = new FilterViewState();
                 if (filterBinding.newestRadioButton.isChecked()) {
@@ -232,10 +248,13 @@ public class CommunityActivity extends AppCompatActivity {
                     filterViewState.setPostQuery(PostQuery.MOST_COMMENTED);
                 } else if (filterBinding.mostVoteRadioButton.isChecked()) {
                     filterViewState.setPostQuery(PostQuery.MOST_VOTED);
+                } else if (filterBinding.hotRadioButton.isChecked()) {
+                    filterViewState.setPostQuery(PostQuery.HOT);
                 }
                 if(tagsAdapter.getSelectedTags().size() != 0){
                     filterViewState.setTags(tagsAdapter.getSelectedTags());
                 }
+                filterViewState.setMatchAll(filterBinding.matchAllCheckBox.isChecked());
                 viewModel.setFilter(filterViewState);
                 filterDialog.dismiss();
             });
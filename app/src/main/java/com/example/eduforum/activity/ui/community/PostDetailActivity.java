@@ -9,7 +9,9 @@ import android.util.Log;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.PopupMenu;
+import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
@@ -24,6 +26,7 @@ import com.example.eduforum.R;
 import com.example.eduforum.activity.EduForum;
 import com.example.eduforum.activity.model.post_manage.Creator;
 import com.example.eduforum.activity.model.user_manage.User;
+import com.example.eduforum.activity.repository.comment.CommentQuery;
 import com.example.eduforum.activity.ui.community.adapter.CommentAdapter;
 import com.example.eduforum.activity.ui.community.adapter.MediaAdapter;
 import com.example.eduforum.activity.ui.community.viewstate.CommentViewState;
@@ -34,23 +37,26 @@ import com.example.eduforum.databinding.ActivityPostDetailBinding;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
-import java.util.ArrayList;
-import java.util.List;
 
 public class PostDetailActivity extends AppCompatActivity {
     private ActivityPostDetailBinding binding;
     private MediaAdapter mediaAdapter;
     private PostDetailsViewModel viewModel;
     private CommentAdapter commentAdapter;
-    private boolean isUpVoted = false;
-    private boolean isDownVoted = false;
+    // replies are the most common rows of a long thread, keep more of them than the default 5
+    private static final int REPLY_VIEW_POOL_SIZE = 15;
+    // load the next page of comments when fewer rows than this are left below the screen
+    private static final int COMMENT_PREFETCH_DISTANCE = 5;
     private boolean isParentComment = true;
     private MaterialAlertDialogBuilder builder;
     private UserViewModel userViewModel;
     private Creator creator;
+    // the post whose vote state was read, the vote is read once per opened post
+    private String votedPostID;
     public static final String KEY_CURRENT_POST = "currentPost";
     public static final String KEY_NOTI_POST = "noti";
     public static final String KEY_COMMUNITY_ID = "notiCommunityID";
+    public static final String KEY_POST_ID = "postId";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -92,22 +98,20 @@ public class PostDetailActivity extends AppCompatActivity {
                         binding.sendButton.setVisibility(View.GONE);
                     }
 
-                    PostViewState currentPost = (PostViewState) getIntent().getSerializableExtra(KEY_CURRENT_POST);
-                    if (currentPost != null) {
-                        viewModel.setCurrentPost(currentPost);
+                    communityName = getIntent().getStringExtra("communityName");
+                    String currentPostID = getIntent().getStringExtra(KEY_POST_ID);
+                    String currentCommunityID = getIntent().getStringExtra("communityId");
+                    if (currentPostID != null && currentCommunityID != null) {
+                        viewModel.openPost(currentPostID, currentCommunityID);
                     }
-                    assert currentPost != null;
-                    currentPost.setCommunityID((String) getIntent().getSerializableExtra("communityId"));
-                    binding.toolBarCreatePost.setTitle(currentPost.getCommunity().getName());
+                    binding.toolBarCreatePost.setTitle(communityName);
                     break;
                 case KEY_NOTI_POST:
                     communityName = (String) getIntent().getSerializableExtra("notiCommunityName");
                     String postID = (String) getIntent().getSerializableExtra("notiPost");
                     String communityID = (String) getIntent().getSerializableExtra(KEY_COMMUNITY_ID);
                     if (postID != null && communityID != null) {
-                        viewModel.loadPost(postID, communityID);
-                        viewModel.loadComments(postID, communityID);
-
+                        viewModel.openPost(postID, communityID);
                     }
                     binding.toolBarCreatePost.setTitle(communityName);
                     break;
@@ -147,146 +151,114 @@ public class PostDetailActivity extends AppCompatActivity {
                     binding.khoaTextView.setText(currentPost.getCreator().getDepartment());
                 }
 
-                viewModel.isVoted(currentPost, userViewModel.getCurrentUserLiveData().getValue().getUserId()).observe(this, voteType -> {
-                    if (voteType != null) {
-                        if (voteType == 1) {
-                            ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                            binding.upVoteButton.setIconTint(colorStateList);
-                            isUpVoted = true;
-                        } else if (voteType == -1) {
-                            ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                            binding.downVoteButton.setIconTint(colorStateList);
-                            isDownVoted = true;
-                        }
-                    }
-                });
-                binding.downVoteButton.setOnClickListener(v -> {
-                    if(!isDownVoted && !isUpVoted){
-                        viewModel.downVote();
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.downVoteButton.setIconTint(colorStateList);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference() - 1));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() - 1);
-                        isDownVoted = true;
-                        isUpVoted = false;
-                    }else if(isUpVoted && !isDownVoted){
-                        viewModel.downVote();
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.downVoteButton.setIconTint(colorStateList);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference() - 2));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() - 2);
-                        binding.upVoteButton.setIconTint(null);
-                        isDownVoted = true;
-                        isUpVoted = false;
-                    }else if(isDownVoted){
-                        binding.downVoteButton.setIconTint(null);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference() + 1));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() + 1);
-                        isDownVoted = false;
-                    }
-                });
+                // seeds the vote state rendered by the getPostVote observer below, the post is emitted again on
+                // every change (votes, comments, the full post) and the optimistic vote must not be overwritten
+                if (!currentPost.getPostId().equals(votedPostID)) {
+                    votedPostID = currentPost.getPostId();
+                    viewModel.isVoted(currentPost, userViewModel.getCurrentUserLiveData().getValue().getUserId());
+                }
+                binding.downVoteButton.setOnClickListener(v -> viewModel.downVote());
+                binding.upVoteButton.setOnClickListener(v -> viewModel.upVote());
+
+                // the post can be emitted again (e.g. cache then server), the comment list and its observers are set up once
+                if (commentAdapter == null) {
+                    commentAdapter = new CommentAdapter(this, userViewModel.getCurrentUserLiveData().getValue().getUserId(),currentPost.getPostId(), currentPost.getCommunityID(),
+                            new CommentAdapter.OnReplyClickListener() {
+                                @Override
+                                public void onReplyClick(CommentViewState comment) {
+                                    // Yêu cầu focus trên EditText
+                                    binding.commentEditText.requestFocus();
+                                    // Hiển thị bàn phím
+                                    InputMethodManager imm = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
+                                    imm.showSoftInput(binding.commentEditText, InputMethodManager.SHOW_IMPLICIT);
+                                    binding.commentEditText.setText("@" + comment.getCreator().getName() + " ");
+
+                                    binding.sendButton.setOnClickListener(v -> {
+                                        String commentText = binding.commentEditText.getText().toString();
+                                        if (!commentText.isEmpty()) {
+                                            CommentViewState commentViewState = new CommentViewState(
+                                                    null,
+                                                    commentText,
+                                                    null,
+                                                    creator,
+                                                    0,
+                                                    0,
+                                                    0,
+                                                    null,
+                                                    null,
+                                                    comment.getCommentID(),
+                                                    0
+                                            );
+
+                                            viewModel.addChildComment(comment, commentViewState);
+                                            binding.commentEditText.setText("");
+                                            binding.commentCountTextView.setText(String.valueOf(currentPost.getTotalComment() + 1));
+                                        }
+                                    });
+                                }
+                            },
+                            new CommentAdapter.OnDownVoteClickListener() {
+                                @Override
+                                public void onDownClick(CommentViewState comment) {
+                                    viewModel.downVote(comment);
+                                }
+                            },
+                            new CommentAdapter.OnUpVoteClickListener() {
+                                @Override
+                                public void onUpVote(CommentViewState comment) {
+                                    viewModel.upVote(comment);
+                                }
+                            },
+                            new CommentAdapter.OnShowUpReplies() {
+                                @Override
+                                public void onShowUpReplies(CommentViewState comment) {
+                                    viewModel.loadChildComments(comment);
+                                }
+                            }
 
-                binding.upVoteButton.setOnClickListener(v -> {
-                    if(!isUpVoted && !isDownVoted){
-                        viewModel.upVote();
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.upVoteButton.setIconTint(colorStateList);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference()+ 1));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() + 1);
-                        isUpVoted = true;
-                    }else if (isDownVoted && !isUpVoted){
-                        viewModel.upVote();
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.upVoteButton.setIconTint(colorStateList);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference() + 2));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() + 2);
-                        binding.downVoteButton.setIconTint(null);
-                        isUpVoted = true;
-                        isDownVoted = false;
-                    }else if(isUpVoted){
-                        binding.upVoteButton.setIconTint(null);
-                        binding.voteCountTextView.setText(String.valueOf(currentPost.getVoteDifference() - 1));
-                        currentPost.setVoteDifference(currentPost.getVoteDifference() - 1);
-                        isUpVoted = false;
-                    }
-                });
+                    );
 
-                commentAdapter = new CommentAdapter(this, this, userViewModel.getCurrentUserLiveData().getValue().getUserId(),currentPost.getPostId(), currentPost.getCommunityID(),
-                        viewModel.getComments().getValue(),
-                        viewModel.getCommentsChild().getValue(),
-                        new CommentAdapter.OnReplyClickListener() {
-                            @Override
-                            public void onReplyClick(CommentViewState comment) {
-                                // Yêu cầu focus trên EditText
-                                binding.commentEditText.requestFocus();
-                                // Hiển thị bàn phím
-                                InputMethodManager imm = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
-                                imm.showSoftInput(binding.commentEditText, InputMethodManager.SHOW_IMPLICIT);
-                                binding.commentEditText.setText("@" + comment.getCreator().getName() + " ");
-
-                                binding.sendButton.setOnClickListener(v -> {
-                                    String commentText = binding.commentEditText.getText().toString();
-                                    if (!commentText.isEmpty()) {
-                                        CommentViewState commentViewState = new CommentViewState(
-                                                null,
-                                                commentText,
-                                                null,
-                                                creator,
-                                                0,
-                                                0,
-                                                0,
-                                                null,
-                                                null,
-                                                comment.getCommentID(),
-                                                0
-                                        );
-
-                                        viewModel.addChildComment(comment, commentViewState);
-                                        binding.commentEditText.setText("");
-                                        binding.commentCountTextView.setText(String.valueOf(currentPost.getTotalComment() + 1));
-                                    }
-                                });
-                            }
-                        },
-                        new CommentAdapter.OnDownVoteClickListener() {
-                            @Override
-                            public void onDownClick(CommentViewState comment) {
-                                viewModel.downVote(comment);
-                            }
-                        },
-                        new CommentAdapter.OnUpVoteClickListener() {
-                            @Override
-                            public void onUpVote(CommentViewState comment) {
-                                viewModel.upVote(comment);
-                            }
-                        },
-                        new CommentAdapter.OnShowUpReplies() {
-                            @Override
-                            public void onShowUpReplies(CommentViewState comment) {
-                                viewModel.loadChildComments(comment);
-                            }
-                        }
+                    viewModel.getComments().observe(this, commentViewStates -> commentAdapter.setComments(commentViewStates));
 
-                );
+                    viewModel.getCommentVotes().observe(this, commentVotes -> commentAdapter.setCommentVotes(commentVotes));
 
-                viewModel.getComments().observe(this, commentViewStates -> {
-                    List<CommentViewState> commentChildList = new ArrayList<>();
-                    List<CommentViewState> itemsToRemove = new ArrayList<>();
+                    viewModel.getThreadsWithMoreReplies().observe(this, threads -> commentAdapter.setThreadsWithMoreReplies(threads));
 
-                    for (CommentViewState commentViewState : commentViewStates) {
-                        if (commentViewState.getReplyCommentID() != null) {
-                            commentChildList.add(commentViewState);
-                            itemsToRemove.add(commentViewState);
+                    binding.recyclecomment.getRecycledViewPool().setMaxRecycledViews(CommentAdapter.VIEW_TYPE_REPLY, REPLY_VIEW_POOL_SIZE);
+                    binding.recyclecomment.setAdapter(commentAdapter);
+                    LinearLayoutManager commentLayoutManager = new LinearLayoutManager(this);
+                    binding.recyclecomment.setLayoutManager(commentLayoutManager);
+                    binding.recyclecomment.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                        @Override
+                        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                            if (dy <= 0) return;
+                            int lastVisible = commentLayoutManager.findLastVisibleItemPosition();
+                            if (lastVisible >= commentAdapter.getItemCount() - COMMENT_PREFETCH_DISTANCE) {
+                                viewModel.loadMoreComments();
+                            }
                         }
+                    });
 
-                    }
-                    commentViewStates.removeAll(itemsToRemove);
-                    commentAdapter.setCommentList(commentViewStates);
-                    commentAdapter.setChildCommentList(commentChildList);
-                });
-
-                binding.recyclecomment.setAdapter(commentAdapter);
-                binding.recyclecomment.setLayoutManager(new LinearLayoutManager(this));
+                    binding.commentOrderTextView.setText(commentOrderTitle(viewModel.getCommentOrder()));
+                    binding.commentOrderTextView.setOnClickListener(v -> {
+                        PopupMenu popupMenu = new PopupMenu(this, v);
+                        popupMenu.getMenuInflater().inflate(R.menu.comment_order_menu, popupMenu.getMenu());
+                        popupMenu.setOnMenuItemClickListener(item -> {
+                            CommentQuery order;
+                            if (item.getItemId() == R.id.orderNewest) {
+                                order = CommentQuery.NEWEST;
+                            } else if (item.getItemId() == R.id.orderBest) {
+                                order = CommentQuery.BEST;
+                            } else {
+                                order = CommentQuery.OLDEST;
+                            }
+                            viewModel.setCommentOrder(order);
+                            binding.commentOrderTextView.setText(commentOrderTitle(order));
+                            return true;
+                        });
+                        popupMenu.show();
+                    });
+                }
 
                 binding.setLifecycleOwner(this);
                 binding.sendButton.setOnClickListener(v -> {
@@ -329,6 +301,20 @@ public class PostDetailActivity extends AppCompatActivity {
                 Log.d("PostDetailActivity", "postViewState is null");
             }
         });
+        viewModel.getPostVote().observe(this, voteState -> {
+            if (voteState == null) return;
+            ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
+            binding.upVoteButton.setIconTint(voteState.getVoteType() == 1 ? colorStateList : null);
+            binding.downVoteButton.setIconTint(voteState.getVoteType() == -1 ? colorStateList : null);
+            binding.voteCountTextView.setText(String.valueOf(voteState.getVoteDifference()));
+            PostViewState shownPost = viewModel.getPost().getValue();
+            if (shownPost != null) {
+                shownPost.setVoteDifference(voteState.getVoteDifference());
+            }
+            if (voteState.isRolledBack()) {
+                Toast.makeText(this, "Không thể lưu bình chọn", Toast.LENGTH_SHORT).show();
+            }
+        });
         binding.commentButton.setOnClickListener(v -> {
             // Yêu cầu focus trên EditText
             binding.commentEditText.requestFocus();
@@ -347,6 +333,18 @@ public class PostDetailActivity extends AppCompatActivity {
 
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        viewModel.startLiveComments();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        viewModel.stopLiveComments();
+    }
+
     public void createDeleteDialog(){
         builder = new MaterialAlertDialogBuilder(binding.getRoot().getContext());
         builder.setTitle("Thông báo");
@@ -365,6 +363,18 @@ public class PostDetailActivity extends AppCompatActivity {
         });
     }
 
+    private String commentOrderTitle(CommentQuery order) {
+        switch (order) {
+            case NEWEST:
+                return "Mới nhất";
+            case BEST:
+                return "Nhiều lượt thích nhất";
+            case OLDEST:
+            default:
+                return "Cũ nhất";
+        }
+    }
+
     private Creator mapToCreator(User user) {
         return new Creator(user.getUserId(), user.getName(), user.getDepartment(),  user.getProfilePicture());
     }
@@ -8,35 +8,87 @@ import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
-import androidx.lifecycle.LifecycleOwner;
-import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.eduforum.R;
 import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.post_manage.Creator;
 import com.example.eduforum.activity.repository.comment.CommentCallback;
 import com.example.eduforum.activity.repository.comment.CommentRepository;
 import com.example.eduforum.activity.ui.community.viewstate.CommentViewState;
-import com.example.eduforum.activity.viewmodel.community.PostDetailsViewModel;
+import com.example.eduforum.activity.util.StableIds;
+import com.example.eduforum.activity.util.TextViews;
+import com.example.eduforum.databinding.ItemChildCommentBinding;
 import com.example.eduforum.databinding.ItemListCommentBinding;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Renders a comment thread in a single RecyclerView: every comment is one row, each top-level comment is
+ * followed by its replies, indented by depth. Rows are recycled across threads instead of inflating a nested
+ * list per comment.
+ */
+public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>{
+    public static final int VIEW_TYPE_COMMENT = 0;
+    public static final int VIEW_TYPE_REPLY = 1;
+    private static final int REPLY_INDENT_DP = 35;
 
-
-public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentViewHolder>{
     private Context context;
-    private static List<CommentViewState> commentList;
-    private static List<CommentViewState> childCommentList;
+    // one row of the thread flattened in display order
+    private static class Row {
+        final CommentViewState comment;
+        // 0 for a top-level comment
+        final int depth;
+        // the row right below is a reply
+        final boolean hasNextReply;
+
+        Row(CommentViewState comment, int depth, boolean hasNextReply) {
+            this.comment = comment;
+            this.depth = depth;
+            this.hasNextReply = hasNextReply;
+        }
+    }
+
+    // only the rows of the comments that were added, removed, moved or changed are updated
+    private static final DiffUtil.ItemCallback<Row> ROW_DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            String oldID = oldRow.comment.getCommentID();
+            return oldRow.comment == newRow.comment || (oldID != null && oldID.equals(newRow.comment.getCommentID()));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.depth == newRow.depth
+                    && oldRow.hasNextReply == newRow.hasNextReply
+                    && isSameComment(oldRow.comment, newRow.comment);
+        }
+    };
+
+    // the thread is compared with the one shown on a background thread
+    private final AsyncListDiffer<Row> rows = new AsyncListDiffer<>(this, ROW_DIFF);
+    private Map<String, Integer> commentVotes = new HashMap<>();
+    // vote count of each comment when its row was bound, a vote changes the view state in place
+    private final Map<String, Integer> boundVoteDifferences = new HashMap<>();
+    // threads whose loaded replies are only the first pages, their parent keeps the show replies button
+    private Set<String> threadsWithMoreReplies = new HashSet<>();
+    private final StableIds stableIds = new StableIds();
     private MaterialAlertDialogBuilder builder;
     private CommentRepository commentRepository;
     private String userID;
-    private LifecycleOwner lifecycleOwner;
     private String postId;
     private String communityId;
+    private final int replyIndentPx;
 
 
     public interface OnReplyClickListener {
@@ -54,83 +106,185 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
     }
 
     private OnReplyClickListener onReplyClickListener;
-    private static OnUpVoteClickListener onUpVoteClickListener;
-    private static OnDownVoteClickListener onDownVoteClickListener;
-    private static OnShowUpReplies onShowUpReplies;
+    private OnUpVoteClickListener onUpVoteClickListener;
+    private OnDownVoteClickListener onDownVoteClickListener;
+    private OnShowUpReplies onShowUpReplies;
 
-    public CommentAdapter(Context context, LifecycleOwner lifecycleOwner, String userId,String postId,String communityId,
-
-                          List<CommentViewState> commentList,
-                          List<CommentViewState> childCommentList,
+    public CommentAdapter(Context context, String userId,String postId,String communityId,
                           OnReplyClickListener onReplyClickListener,
                           OnDownVoteClickListener onDownVoteClickListener,
                           OnUpVoteClickListener onUpVoteClickListener,
                           OnShowUpReplies onShowUpReplies
                           ) {
-        commentRepository = new CommentRepository();
+        commentRepository = CommentRepository.getInstance();
         this.context = context;
-        if (commentList != null) {
-            this.commentList = commentList;
-        } else {
-            this.commentList = new ArrayList<>();
-        }
-        if (childCommentList != null) {
-            this.childCommentList = childCommentList;
-        } else {
-            this.childCommentList = new ArrayList<>();
-        }
         this.onReplyClickListener = onReplyClickListener;
         this.onUpVoteClickListener = onUpVoteClickListener;
         this.onDownVoteClickListener = onDownVoteClickListener;
         this.onShowUpReplies = onShowUpReplies;
         this.userID = userId;
-        this.lifecycleOwner = lifecycleOwner;
         this.postId = postId;
         this.communityId = communityId;
+        this.replyIndentPx = Math.round(REPLY_INDENT_DP * context.getResources().getDisplayMetrics().density);
+        setHasStableIds(true);
     }
-    public void setCommentList(List<CommentViewState> commentList) {
-        if (commentList != null) {
-            this.commentList = commentList;
-            notifyDataSetChanged();
-        } else {
-            this.commentList = new ArrayList<>();
+
+    /**
+     * @param comments every comment of the post, top-level comments and replies in any order.
+     *                 Replies are placed under their parent, a reply whose parent is not in the list goes to the end.
+     */
+    public void setComments(List<CommentViewState> comments) {
+        if (comments == null) comments = new ArrayList<>();
+        List<CommentViewState> topLevelComments = new ArrayList<>();
+        Map<String, List<CommentViewState>> repliesByParent = new HashMap<>();
+        for (CommentViewState comment : comments) {
+            String parentID = comment.getReplyCommentID();
+            if (parentID == null) {
+                topLevelComments.add(comment);
+                continue;
+            }
+            List<CommentViewState> replies = repliesByParent.get(parentID);
+            if (replies == null) {
+                replies = new ArrayList<>();
+                repliesByParent.put(parentID, replies);
+            }
+            replies.add(comment);
+        }
+
+        List<CommentViewState> newRows = new ArrayList<>(comments.size());
+        List<Integer> newDepths = new ArrayList<>(comments.size());
+        Set<String> placed = new HashSet<>();
+        for (CommentViewState comment : topLevelComments) {
+            addWithReplies(comment, 0, repliesByParent, newRows, newDepths, placed);
         }
+        for (CommentViewState comment : comments) {
+            if (comment.getReplyCommentID() != null && !placed.contains(comment.getCommentID())) {
+                newRows.add(comment);
+                newDepths.add(1);
+            }
+        }
+        rows.submitList(toRows(newRows, newDepths));
     }
 
-    public  void setChildCommentList(List<CommentViewState> childCommentList) {
-        if (childCommentList != null) {
-            this.childCommentList = childCommentList;
-        } else {
-            this.childCommentList = new ArrayList<>();
+    private static List<Row> toRows(List<CommentViewState> comments, List<Integer> depths) {
+        List<Row> newRows = new ArrayList<>(comments.size());
+        for (int i = 0; i < comments.size(); i++) {
+            newRows.add(new Row(comments.get(i), depths.get(i), hasNextReply(depths, i)));
+        }
+        return newRows;
+    }
+
+    private static boolean hasNextReply(List<Integer> depths, int position) {
+        return position + 1 < depths.size() && depths.get(position + 1) > 0;
+    }
+
+    // a view state changed in place keeps its row, the view model replaces the view state of a changed comment
+    private static boolean isSameComment(CommentViewState oldComment, CommentViewState newComment) {
+        if (oldComment == newComment) return true;
+        return Objects.equals(oldComment.getContent(), newComment.getContent())
+                && Objects.equals(oldComment.getVoteDifference(), newComment.getVoteDifference())
+                && Objects.equals(oldComment.getTimeCreated(), newComment.getTimeCreated())
+                && Objects.equals(oldComment.getTotalReply(), newComment.getTotalReply())
+                && Objects.equals(oldComment.getImage(), newComment.getImage())
+                && isSameCreator(oldComment.getCreator(), newComment.getCreator());
+    }
+
+    private static boolean isSameCreator(Creator oldCreator, Creator newCreator) {
+        if (oldCreator == null || newCreator == null) return oldCreator == newCreator;
+        return Objects.equals(oldCreator.getName(), newCreator.getName())
+                && Objects.equals(oldCreator.getDepartment(), newCreator.getDepartment())
+                && Objects.equals(oldCreator.getProfilePicture(), newCreator.getProfilePicture());
+    }
+
+    private void addWithReplies(CommentViewState comment, int depth, Map<String, List<CommentViewState>> repliesByParent,
+                                List<CommentViewState> newRows, List<Integer> newDepths, Set<String> placed) {
+        // a reply cycle in corrupted data must not loop forever
+        if (comment.getCommentID() != null && !placed.add(comment.getCommentID())) return;
+        newRows.add(comment);
+        newDepths.add(depth);
+        List<CommentViewState> replies = repliesByParent.get(comment.getCommentID());
+        if (replies == null) return;
+        for (CommentViewState reply : replies) {
+            addWithReplies(reply, depth + 1, repliesByParent, newRows, newDepths, placed);
+        }
+    }
+
+    /**
+     * Only the rows whose vote, or vote count, changed are bound again.
+     * @param commentVotes vote type of the current user by comment ID, loaded once for the whole post
+     */
+    public void setCommentVotes(Map<String, Integer> commentVotes) {
+        Map<String, Integer> oldVotes = new HashMap<>(this.commentVotes);
+        this.commentVotes = commentVotes != null ? commentVotes : new HashMap<>();
+        List<Row> currentRows = rows.getCurrentList();
+        for (int i = 0; i < currentRows.size(); i++) {
+            CommentViewState comment = currentRows.get(i).comment;
+            String commentID = comment.getCommentID();
+            if (!Objects.equals(oldVotes.get(commentID), this.commentVotes.get(commentID))
+                    || !Objects.equals(boundVoteDifferences.get(commentID), comment.getVoteDifference())) {
+                notifyItemChanged(i);
+            }
+        }
+    }
+
+    public void setThreadsWithMoreReplies(Set<String> threadsWithMoreReplies) {
+        Set<String> oldThreads = this.threadsWithMoreReplies;
+        this.threadsWithMoreReplies = threadsWithMoreReplies != null ? new HashSet<>(threadsWithMoreReplies) : new HashSet<>();
+        List<Row> currentRows = rows.getCurrentList();
+        for (int i = 0; i < currentRows.size(); i++) {
+            String commentID = currentRows.get(i).comment.getCommentID();
+            if (oldThreads.contains(commentID) != this.threadsWithMoreReplies.contains(commentID)) {
+                notifyItemChanged(i);
+            }
         }
     }
 
+    @Override
+    public int getItemViewType(int position) {
+        return rows.getCurrentList().get(position).depth == 0 ? VIEW_TYPE_COMMENT : VIEW_TYPE_REPLY;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(rows.getCurrentList().get(position).comment.getCommentID());
+    }
 
     @NonNull
     @Override
-    public CommentAdapter.CommentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         LayoutInflater layoutInflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_REPLY) {
+            ItemChildCommentBinding itemChildCommentBinding = ItemChildCommentBinding.inflate(layoutInflater, parent, false);
+            return new ReplyViewHolder(itemChildCommentBinding, onDownVoteClickListener, onUpVoteClickListener);
+        }
         ItemListCommentBinding itemListCommentBinding = ItemListCommentBinding.inflate(layoutInflater, parent, false);
-        return new CommentViewHolder(itemListCommentBinding, lifecycleOwner,userID,postId,communityId);
+        return new CommentViewHolder(itemListCommentBinding, onReplyClickListener, onDownVoteClickListener, onUpVoteClickListener, onShowUpReplies);
     }
 
     @Override
-    public void onBindViewHolder(@NonNull CommentViewHolder holder, int position) {
-        CommentViewState comment = commentList.get(position);
-
-        List<CommentViewState> temp = new ArrayList<>();
-
-        for (CommentViewState commentViewState : childCommentList) {
-            if (Objects.equals(commentViewState.getReplyCommentID(), comment.getCommentID())) {
-                temp.add(commentViewState);
-            }
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Row row = rows.getCurrentList().get(position);
+        CommentViewState comment = row.comment;
+        Integer voteType = commentVotes.get(comment.getCommentID());
+        boundVoteDifferences.put(comment.getCommentID(), comment.getVoteDifference());
+        if (holder instanceof ReplyViewHolder) {
+            ((ReplyViewHolder) holder).bind(comment, voteType, row.depth * replyIndentPx);
+        } else {
+            boolean hasRepliesShown = row.hasNextReply
+                    && !threadsWithMoreReplies.contains(comment.getCommentID());
+            ((CommentViewHolder) holder).bind(comment, voteType, hasRepliesShown);
         }
-
-        holder.bind(comment, onReplyClickListener, temp, onDownVoteClickListener, onUpVoteClickListener, onShowUpReplies);
     }
     public void removeItem(int position) {
-        commentList.remove(position);
-        notifyItemRemoved(position);
+        List<CommentViewState> comments = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        for (Row row : rows.getCurrentList()) {
+            comments.add(row.comment);
+            depths.add(row.depth);
+        }
+        comments.remove(position);
+        depths.remove(position);
+        rows.submitList(toRows(comments, depths));
     }
 
     public void createDeleteDialog(int position) {
@@ -140,9 +294,11 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
         builder.setPositiveButton("Xóa", new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                removeItem(position);
                 Comment comment  = new Comment();
-                comment.setCommentID(commentList.get(position).getCommentID());
+                comment.setCommentID(rows.getCurrentList().get(position).comment.getCommentID());
+                comment.setPostID(postId);
+                comment.setCommunityID(communityId);
+                removeItem(position);
 
 
                 commentRepository.deleteComment(comment, new CommentCallback() {
@@ -194,122 +350,151 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
 
     @Override
     public int getItemCount() {
-        return commentList.size();
+        return rows.getCurrentList().size();
     }
 
+    /**
+     * The click listeners are set once, in the constructor, and act on the comment bound at the time of the click.
+     */
     public static class CommentViewHolder extends RecyclerView.ViewHolder {
         ItemListCommentBinding binding;
-        private PostDetailsViewModel viewModel;
-        private LifecycleOwner lifecycleOwner;
-        private String userID;
-        private String postId;
-        private String communityId;
-
-        public CommentViewHolder(ItemListCommentBinding binding, LifecycleOwner lifecycleOwner,String userId,String postId,String communityId){
+        private final ColorStateList votedTint;
+        private CommentViewState comment;
+        // avatar path loaded in the row, the same avatar is not loaded again
+        private String boundPicture;
+
+        public CommentViewHolder(ItemListCommentBinding binding,
+                                 OnReplyClickListener onReplyClickListener,
+                                 OnDownVoteClickListener onDownVoteClickListener,
+                                 OnUpVoteClickListener onUpVoteClickListener,
+                                 OnShowUpReplies onShowUpReplies){
             super(binding.getRoot());
             this.binding = binding;
-            this.lifecycleOwner = lifecycleOwner;
-            this.userID = userId;
-            viewModel = new PostDetailsViewModel();
-            this.postId = postId;
-            this.communityId = communityId;
-        }
-
-        public void bindingComponents(CommentViewState comment) {
-            binding.contentNotiParentTextView.setText(comment.getContent());
-            binding.voteCountParentTextView.setText(String.valueOf(comment.getVoteDifference()));
-            binding.timeParentCommentTextView.setText(comment.getTimeCreated());
-            binding.userNameParentTextView.setText(comment.getCreator().getName());
-            binding.khoaParentTextView.setText(comment.getCreator().getDepartment());
-
-
-            if(comment.getCreator().getProfilePicture()!=null){
-                StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(comment.getCreator().getProfilePicture());
-                Glide.with(binding.getRoot().getContext())
-                        .load(storageReference)
-                        .into(binding.avatarParentComment);
-            }
-
-            viewModel.isVotedComment(comment, userID,postId,communityId).observe(lifecycleOwner, voteType -> {
-                if (voteType != null) {
-                    if (voteType == 1) {
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.upVoteParentButton.setIconTint(colorStateList);
-
-                    } else if (voteType == -1) {
-                        ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
-                        binding.downVoteParentButton.setIconTint(colorStateList);
-
-                    }
-                }
-            });
-        }
-
-        public void bind(CommentViewState comment, OnReplyClickListener onReplyClickListener,List<CommentViewState> temp,OnDownVoteClickListener onDownVoteClickListener,OnUpVoteClickListener onUpVoteClickListener,OnShowUpReplies onShowUpReplies) {
-
-            bindingComponents(comment);
-
-            /*Set up RecyclerView*/
-            binding.nestedRecyclerView.setLayoutManager(new LinearLayoutManager(binding.getRoot().getContext()));
-            binding.nestedRecyclerView.setAdapter(new CommentChildAdapter(this.binding.getRoot().getContext(), lifecycleOwner, userID, postId, communityId,
-                    temp,
-                    onReplyClickListener,
-                    onDownVoteClickListener,
-                    onUpVoteClickListener
-                    ));
-
+            this.votedTint = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
 
             /*Set up click listener*/
             binding.replyParentTextView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    CommentViewState comment = commentList.get(getAdapterPosition());
-                    onReplyClickListener.onReplyClick(comment);
+                    if (comment != null) onReplyClickListener.onReplyClick(comment);
 
                 }
             });
 
-            ColorStateList colorStateList = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
+            // the row is rebound with the new vote as soon as the vote state changes, the write is debounced
             binding.upVoteParentButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    if(binding.downVoteParentButton.getIconTint().equals(colorStateList)){
-                        binding.downVoteParentButton.setIconTint(null);
-                        binding.upVoteParentButton.setIconTint(colorStateList);
-                        binding.voteCountParentTextView.setText(String.valueOf(comment.getVoteDifference() + 2));
-                        comment.setVoteDifference(comment.getVoteDifference() + 2);
-                    }else  {
-                        binding.upVoteParentButton.setIconTint(colorStateList);
-                        binding.voteCountParentTextView.setText(String.valueOf(comment.getVoteDifference() + 1));
-                        comment.setVoteDifference(comment.getVoteDifference() + 1);
-                    }
-                    onUpVoteClickListener.onUpVote(comment);
+                    if (comment != null) onUpVoteClickListener.onUpVote(comment);
                 }
             });
 
             binding.downVoteParentButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    if(binding.upVoteParentButton.getIconTint().equals(colorStateList)){
-                        binding.downVoteParentButton.setIconTint(colorStateList);
-                        binding.upVoteParentButton.setIconTint(null);
-                        binding.voteCountParentTextView.setText(String.valueOf(comment.getVoteDifference() - 2));
-                        comment.setVoteDifference(comment.getVoteDifference() - 2);
-                    }else{
-                        binding.downVoteParentButton.setIconTint(colorStateList);
-                        binding.voteCountParentTextView.setText(String.valueOf(comment.getVoteDifference() - 1));
-                        comment.setVoteDifference(comment.getVoteDifference() - 1);
-                    }
-                    onDownVoteClickListener.onDownClick(comment);
+                    if (comment != null) onDownVoteClickListener.onDownClick(comment);
                 }
             });
 
             binding.showReplyParentTextView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    onShowUpReplies.onShowUpReplies(comment);
+                    if (comment != null) onShowUpReplies.onShowUpReplies(comment);
+                }
+            });
+        }
+
+        public void bindingComponents(CommentViewState comment, Integer voteType) {
+            TextViews.setTextIfChanged(binding.contentNotiParentTextView, comment.getContent());
+            TextViews.setTextIfChanged(binding.voteCountParentTextView, comment.getVoteText());
+            TextViews.setTextIfChanged(binding.timeParentCommentTextView, comment.getTimeCreated());
+            TextViews.setTextIfChanged(binding.userNameParentTextView, comment.getCreator().getName());
+            TextViews.setTextIfChanged(binding.khoaParentTextView, comment.getCreator().getDepartment());
+
+
+            String picture = comment.getCreator().getProfilePicture();
+            if(picture!=null && !picture.equals(boundPicture)){
+                StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(picture);
+                Glide.with(binding.getRoot().getContext())
+                        .load(storageReference)
+                        .into(binding.avatarParentComment);
+                boundPicture = picture;
+            }
+
+            // the holder may be recycled from a voted comment
+            binding.upVoteParentButton.setIconTint(voteType != null && voteType == 1 ? votedTint : null);
+            binding.downVoteParentButton.setIconTint(voteType != null && voteType == -1 ? votedTint : null);
+        }
+
+        public void bind(CommentViewState comment, Integer voteType, boolean hasRepliesShown) {
+            this.comment = comment;
+            bindingComponents(comment, voteType);
+
+            // the replies are the rows right below, the button is only needed while some of them are not loaded
+            binding.showReplyParentLinearLayout.setVisibility(hasRepliesShown ? View.GONE : View.VISIBLE);
+        }
+    }
+
+    /**
+     * The click listeners are set once, in the constructor, and act on the comment bound at the time of the click.
+     */
+    public static class ReplyViewHolder extends RecyclerView.ViewHolder {
+        ItemChildCommentBinding binding;
+        private final ColorStateList votedTint;
+        private CommentViewState comment;
+        // avatar path loaded in the row, the same avatar is not loaded again
+        private String boundPicture;
+
+        public ReplyViewHolder(ItemChildCommentBinding binding,
+                               OnDownVoteClickListener onDownVoteClickListener,
+                               OnUpVoteClickListener onUpVoteClickListener) {
+            super(binding.getRoot());
+            this.binding = binding;
+            this.votedTint = ContextCompat.getColorStateList(binding.getRoot().getContext(), R.color.likedButtonColor);
+            binding.replyChildTextView.setVisibility(View.GONE);
+
+            binding.upVoteChildCommentButton.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (comment != null) onUpVoteClickListener.onUpVote(comment);
+                }
+            });
+
+            binding.downVoteChildButton.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (comment != null) onDownVoteClickListener.onDownClick(comment);
                 }
             });
         }
+
+        private void bindingComponents(CommentViewState comment, Integer voteType) {
+            TextViews.setTextIfChanged(binding.contentChildTextView, comment.getContent());
+            TextViews.setTextIfChanged(binding.voteCountChildTextView, comment.getVoteText());
+            TextViews.setTextIfChanged(binding.timeChildTextView, comment.getTimeCreated());
+            TextViews.setTextIfChanged(binding.userNameChildTextView, comment.getCreator().getName());
+            TextViews.setTextIfChanged(binding.khoaChildTextView, comment.getCreator().getDepartment());
+
+
+            String picture = comment.getCreator().getProfilePicture();
+            if(picture!=null && !picture.equals(boundPicture)){
+                StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(picture);
+                Glide.with(binding.getRoot().getContext())
+                        .load(storageReference)
+                        .into(binding.avatarChildrenComment);
+                boundPicture = picture;
+            }
+
+            // the holder may be recycled from a voted comment
+            binding.upVoteChildCommentButton.setIconTint(voteType != null && voteType == 1 ? votedTint : null);
+            binding.downVoteChildButton.setIconTint(voteType != null && voteType == -1 ? votedTint : null);
+
+        }
+
+        public void bind(CommentViewState comment, Integer voteType, int indentPx) {
+            this.comment = comment;
+            binding.getRoot().setPaddingRelative(indentPx, 0, 0, 0);
+            bindingComponents(comment, voteType);
+        }
     }
-}
\ No newline at end of file
+}
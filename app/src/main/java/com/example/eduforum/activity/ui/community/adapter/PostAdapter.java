@@ -8,41 +8,98 @@ import android.view.ViewGroup;
 import android.widget.PopupMenu;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.eduforum.R;
+import com.example.eduforum.activity.model.post_manage.Creator;
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.example.eduforum.activity.model.post_manage.PostCategory;
+import com.example.eduforum.activity.repository.post.PostStore;
 import com.example.eduforum.activity.ui.community.PostDetailActivity;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
+import com.example.eduforum.activity.util.StableIds;
+import com.example.eduforum.activity.util.TextViews;
 import com.example.eduforum.databinding.ItemCommunityBinding;
 import com.example.eduforum.databinding.ItemNotiBinding;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
-public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
+public class PostAdapter extends ListAdapter<PostViewState, PostAdapter.PostViewHolder> {
 
     private Context context;
-    private List<PostViewState> postList;
     private Boolean isUITcommunity;
     private Boolean isExploring;
+    private final StableIds stableIds = new StableIds();
+
+    /**
+     * Rows are matched by post ID. A row is bound again only when what it shows changed: a view state read again
+     * with the same title, counters, author and tags keeps its row as it is.
+     */
+    private static final DiffUtil.ItemCallback<PostViewState> DIFF_CALLBACK = new DiffUtil.ItemCallback<PostViewState>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull PostViewState oldItem, @NonNull PostViewState newItem) {
+            return oldItem == newItem || (oldItem.getPostId() != null && oldItem.getPostId().equals(newItem.getPostId()));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull PostViewState oldItem, @NonNull PostViewState newItem) {
+            if (oldItem == newItem) return true;
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && oldItem.getVoteDifference() == newItem.getVoteDifference()
+                    && oldItem.getTotalComment() == newItem.getTotalComment()
+                    && Objects.equals(oldItem.getAnonymous(), newItem.getAnonymous())
+                    && isSameCreator(oldItem.getCreator(), newItem.getCreator())
+                    && categoryIDsOf(oldItem.getTags()).equals(categoryIDsOf(newItem.getTags()));
+        }
+    };
 
     public PostAdapter(Context context, List<PostViewState> postList) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        if(postList == null) {
-            this.postList = new ArrayList<>();
-        }
-        else this.postList = postList;
         this.isUITcommunity = false;
         this.isExploring = false;
-
+        setHasStableIds(true);
+        setPostList(postList);
     }
+
+    /**
+     * The list is compared with the one shown on a background thread, only the rows that changed are bound again.
+     */
     public void setPostList(List<PostViewState> postList) {
-        this.postList = postList;
-        notifyDataSetChanged();
+        // a copy, so that a list changed in place by the view model is still compared with the one shown
+        submitList(postList == null ? new ArrayList<>() : new ArrayList<>(postList));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(getItem(position).getPostId());
+    }
+
+    private static boolean isSameCreator(Creator oldCreator, Creator newCreator) {
+        if (oldCreator == null || newCreator == null) return oldCreator == newCreator;
+        return Objects.equals(oldCreator.getName(), newCreator.getName())
+                && Objects.equals(oldCreator.getDepartment(), newCreator.getDepartment())
+                && Objects.equals(oldCreator.getProfilePicture(), newCreator.getProfilePicture());
+    }
+
+    private static List<String> categoryIDsOf(List<PostCategory> tags) {
+        List<String> categoryIDs = new ArrayList<>();
+        if (tags == null) return categoryIDs;
+        for (PostCategory tag : tags) {
+            categoryIDs.add(tag.getCategoryID());
+        }
+        return categoryIDs;
     }
     public void setIsExploring(Boolean isExploring) {
         this.isExploring = isExploring;
@@ -56,72 +113,139 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
 
         LayoutInflater layoutInflater = LayoutInflater.from(parent.getContext());
         ItemCommunityBinding itemCommunityBinding = ItemCommunityBinding.inflate(layoutInflater, parent, false);
+        PostViewHolder holder = new PostViewHolder(itemCommunityBinding);
 
-
-        return new PostViewHolder(itemCommunityBinding);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-        PostViewState post = postList.get(position);
-        holder.bind(post, isUITcommunity);
+        // set once per holder, the click opens the post bound at the time of the click
         holder.itemView.setOnClickListener(v -> {
+            PostViewState post = holder.observedPost;
+            if (post == null) return;
+            // the post screen takes the post from PostStore, only its ID goes through the Intent
             Intent intent = new Intent(context, PostDetailActivity.class);
             intent.putExtra("key", "currentPost");
-            intent.putExtra("currentPost", postList.get(position));
+            intent.putExtra(PostDetailActivity.KEY_POST_ID, post.getPostId());
             intent.putExtra("isUITcommunity", isUITcommunity);
             intent.putExtra("isExploring", isExploring);
             intent.putExtra("communityId", post.getCommunity().getCommunityID());
+            intent.putExtra("communityName", post.getCommunity().getName());
             context.startActivity(intent);
         });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
+        PostViewState post = getItem(position);
+        holder.bind(post, isUITcommunity);
+        holder.observe(post);
+    }
 
+    // a row only observes its post while it is on screen
+    @Override
+    public void onViewAttachedToWindow(@NonNull PostViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        holder.startObserving();
     }
 
     @Override
-    public int getItemCount() {
-        return postList.size();
+    public void onViewDetachedFromWindow(@NonNull PostViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        holder.stopObserving();
     }
 
-    public static class PostViewHolder extends RecyclerView.ViewHolder {
+    public static class PostViewHolder extends RecyclerView.ViewHolder implements PostStore.Observer {
         ItemCommunityBinding binding;
+        private PostViewState observedPost;
+        private boolean isObserving;
+        // the tags row keeps its adapter, a bind only gives it the tags of the post
+        private final TagsAdapter tagsAdapter = new TagsAdapter(null, null, false, false);
+        // avatar path loaded in the row, the same avatar is not loaded again
+        private String boundPicture;
+        private List<PostCategory> boundTags;
         public PostViewHolder(ItemCommunityBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            binding.tagslayout.setAdapter(tagsAdapter);
+            binding.tagslayout.setLayoutManager(new LinearLayoutManager(binding.tagslayout.getContext(), LinearLayoutManager.HORIZONTAL, false));
+        }
+
+        void observe(PostViewState post) {
+            // the row is bound again with the same post, e.g. after a diff
+            if (post == observedPost) return;
+            stopObserving();
+            observedPost = post;
+            if (itemView.isAttachedToWindow()) {
+                startObserving();
+            }
+        }
+
+        void startObserving() {
+            if (isObserving || observedPost == null || observedPost.getPostId() == null) return;
+            PostStore.getInstance().observe(observedPost.getPostId(), this);
+            isObserving = true;
+            // the post may have changed while the row was off screen
+            Post stored = PostStore.getInstance().get(observedPost.getPostId());
+            if (stored != null) onPostChanged(observedPost.getPostId(), stored);
+        }
+
+        void stopObserving() {
+            if (!isObserving) return;
+            PostStore.getInstance().removeObserver(observedPost.getPostId(), this);
+            isObserving = false;
+        }
+
+        // a vote or a comment made on the post screen, only the counters and the title are shown by the row
+        @Override
+        public void onPostChanged(String postID, @Nullable Post post) {
+            if (post == null || observedPost == null || !postID.equals(observedPost.getPostId())) return;
+            // called on every attach too, the views that show the same value are left as they are
+            if (post.getVoteDifference() != null && post.getVoteDifference() != observedPost.getVoteDifference()) {
+                observedPost.setVoteDifference(post.getVoteDifference());
+                binding.like.setText(observedPost.getVoteText());
+            }
+            if (post.getTotalComment() != null && post.getTotalComment() != observedPost.getTotalComment()) {
+                observedPost.setTotalComment(post.getTotalComment());
+                binding.comment.setText(observedPost.getCommentText());
+            }
+            if (post.getTitle() != null && !post.getTitle().equals(observedPost.getTitle())) {
+                observedPost.setTitle(post.getTitle());
+                binding.title.setText(observedPost.getTitle());
+            }
         }
         void bind(PostViewState post, Boolean isUIT) {
             if(isUIT){
-                binding.username.setText("Quản trị viên");
-                binding.falcuty.setText("");
+                TextViews.setTextIfChanged(binding.username, "Quản trị viên");
+                TextViews.setTextIfChanged(binding.falcuty, "");
             }
             else if(post.getCreator()!=null){
                 if(post.getAnonymous() != null && !post.getAnonymous())
                 {
-                    binding.username.setText(post.getCreator().getName());
-                    binding.falcuty.setText(post.getCreator().getDepartment());
-                    if(post.getCreator().getProfilePicture()!=null){
-                        StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(post.getCreator().getProfilePicture());
+                    TextViews.setTextIfChanged(binding.username, post.getCreator().getName());
+                    TextViews.setTextIfChanged(binding.falcuty, post.getCreator().getDepartment());
+                    String picture = post.getCreator().getProfilePicture();
+                    if(picture!=null && !picture.equals(boundPicture)){
+                        StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(picture);
                         Glide.with(binding.getRoot().getContext())
                                 .load(storageReference)
                                 .into(binding.avatar);
+                        boundPicture = picture;
                     }
 
                 }
                 else{
-                    binding.username.setText("Ẩn danh");
-                    binding.falcuty.setText("");
+                    TextViews.setTextIfChanged(binding.username, "Ẩn danh");
+                    TextViews.setTextIfChanged(binding.falcuty, "");
 
                 }
             }
-            binding.title.setText(post.getTitle());
-            binding.time.setText(post.getDate());
-            binding.like.setText(post.getVoteDifference()+" lượt bình chọn");
-            binding.comment.setText(post.getTotalComment()+" bình luận");
-            binding.time.setText(post.getDate());
-
-            if(post.getTags()!=null){
-                TagsAdapter tagsAdapter = new TagsAdapter(post.getTags(), null, false, false);
-                binding.tagslayout.setAdapter(tagsAdapter);
-                binding.tagslayout.setLayoutManager(new LinearLayoutManager(binding.tagslayout.getContext(), LinearLayoutManager.HORIZONTAL, false));
+            TextViews.setTextIfChanged(binding.title, post.getTitle());
+            TextViews.setTextIfChanged(binding.time, post.getDate());
+            TextViews.setTextIfChanged(binding.like, post.getVoteText());
+            TextViews.setTextIfChanged(binding.comment, post.getCommentText());
+
+            List<PostCategory> tags = post.getTags() != null ? post.getTags() : Collections.<PostCategory>emptyList();
+            if (tags != boundTags) {
+                tagsAdapter.setTagsList(tags);
+                boundTags = tags;
             }
 
 
@@ -5,6 +5,7 @@ import android.net.Uri;
 import com.example.eduforum.activity.model.post_manage.Creator;
 
 import java.util.List;
+import java.util.Objects;
 
 public class CommentViewState {
     private CommentViewState commentViewState;
@@ -20,6 +21,8 @@ public class CommentViewState {
     private List<Uri> image;
     private String replyCommentID;
     private Integer totalReply;
+    // text of the vote count, built once per value and not on every bind of the row
+    private String voteText;
 
     public CommentViewState(String commentID, String content, String timeCreated, Creator creator, Integer totalUpVote, Integer totalDownVote, Integer voteDifference, String lastModified, List<Uri> image, String replyCommentID, Integer totalReply) {
         this.commentID = commentID;
@@ -96,9 +99,15 @@ public class CommentViewState {
     }
 
     public void setVoteDifference(Integer voteDifference) {
+        if (!Objects.equals(this.voteDifference, voteDifference)) voteText = null;
         this.voteDifference = voteDifference;
     }
 
+    public String getVoteText() {
+        if (voteText == null) voteText = String.valueOf(voteDifference);
+        return voteText;
+    }
+
     public String getLastModified() {
         return lastModified;
     }
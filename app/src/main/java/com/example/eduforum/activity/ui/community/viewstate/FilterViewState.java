@@ -8,6 +8,8 @@ import java.util.List;
 public class FilterViewState {
     private PostQuery postQuery;
     private List<Category> tags;
+    // true: the posts must have every tag, false: at least one of them
+    private boolean matchAll;
     public FilterViewState(PostQuery postQuery, List<Category> tags) {
         this.postQuery = postQuery;
         this.tags = tags;
@@ -32,4 +34,10 @@ public class FilterViewState {
     public void setTags(List<Category> tags) {
         this.tags = tags;
     }
+    public boolean isMatchAll() {
+        return matchAll;
+    }
+    public void setMatchAll(boolean matchAll) {
+        this.matchAll = matchAll;
+    }
 }
@@ -30,6 +30,11 @@ public class PostViewState implements Serializable {
     private int voteDiff;
 
     private String communityID;
+    // the content is an excerpt, the post must be read in full before it is displayed
+    private boolean isSummary;
+    // texts of the counters, built once per value and not on every bind of the row
+    private transient String voteText;
+    private transient String commentText;
     public PostViewState(String postId, Creator creator, String communityID, String title, String content, Boolean isAnonymous, String date, List<Uri> image, List<String> taggedUsers,  List<PostCategory> tags, int voteDiff, int totalComment) {
         this.postId = postId;
         this.creator = creator;
@@ -154,14 +159,26 @@ public class PostViewState implements Serializable {
     }
 
     public void setVoteDifference(int i) {
+        if (this.voteDiff != i) voteText = null;
         this.voteDiff = i;
     }
 
+    public String getVoteText() {
+        if (voteText == null) voteText = voteDiff + " lượt bình chọn";
+        return voteText;
+    }
+
+    public String getCommentText() {
+        if (commentText == null) commentText = totalComment + " bình luận";
+        return commentText;
+    }
+
     public Boolean getAnonymous() {
         return isAnonymous;
     }
 
     public void setTotalComment(int totalComment) {
+        if (this.totalComment != totalComment) commentText = null;
         this.totalComment = totalComment;
     }
 
@@ -170,7 +187,7 @@ public class PostViewState implements Serializable {
     }
 
     public void setVoteDiff(int voteDiff) {
-        this.voteDiff = voteDiff;
+        setVoteDifference(voteDiff);
     }
 
     public String getCommunityID() {
@@ -180,4 +197,12 @@ public class PostViewState implements Serializable {
     public void setCommunityID(String communityID) {
         this.communityID = communityID;
     }
+
+    public boolean isSummary() {
+        return isSummary;
+    }
+
+    public void setSummary(boolean summary) {
+        isSummary = summary;
+    }
 }
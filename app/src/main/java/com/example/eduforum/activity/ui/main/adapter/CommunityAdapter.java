@@ -7,31 +7,56 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.eduforum.activity.ui.community.CommunityActivity;
 import com.example.eduforum.activity.ui.main.fragment.CreateCommunityViewState;
+import com.example.eduforum.activity.util.StableIds;
 import com.example.eduforum.databinding.ItemForumBinding;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class CommunityAdapter extends RecyclerView.Adapter<CommunityAdapter.CommunityViewHolder> {
+public class CommunityAdapter extends ListAdapter<CreateCommunityViewState, CommunityAdapter.CommunityViewHolder> {
 
     Context context;
-    List<CreateCommunityViewState> communityList;
     Boolean isAdminList;
     Boolean isGlobalList;
     FirebaseAuth currentUser;
+    private final StableIds stableIds = new StableIds();
+
+    // rows are matched by community ID, the unread post counter is what changes most often
+    private static final DiffUtil.ItemCallback<CreateCommunityViewState> DIFF_CALLBACK = new DiffUtil.ItemCallback<CreateCommunityViewState>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CreateCommunityViewState oldItem, @NonNull CreateCommunityViewState newItem) {
+            return oldItem == newItem
+                    || (oldItem.getCommunityID() != null && oldItem.getCommunityID().equals(newItem.getCommunityID()));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CreateCommunityViewState oldItem, @NonNull CreateCommunityViewState newItem) {
+            if (oldItem == newItem) return true;
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getUnReadposts(), newItem.getUnReadposts());
+        }
+    };
+
     public CommunityAdapter(Context context, List<CreateCommunityViewState> communityList, FirebaseAuth currentUser) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.communityList = communityList;
         this.currentUser = currentUser;
         isAdminList = false;
         isGlobalList = false;
+        setHasStableIds(true);
+        setCommunityList(communityList);
     }
     public void setIsAdminList(Boolean isAdminList) {
         this.isAdminList = isAdminList;
@@ -39,23 +64,30 @@ public class CommunityAdapter extends RecyclerView.Adapter<CommunityAdapter.Comm
     public void setIsGlobalList(Boolean isGlobalList) {
         this.isGlobalList = isGlobalList;
     }
+    /**
+     * The list is compared with the one shown on a background thread, only the rows that changed are bound again.
+     */
     public void setCommunityList(List<CreateCommunityViewState> communityList) {
-        this.communityList = communityList;
-        notifyDataSetChanged();
+        submitList(communityList == null ? new ArrayList<>() : new ArrayList<>(communityList));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(getItem(position).getCommunityID());
     }
     @NonNull
     @Override
     public CommunityViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemForumBinding binding = ItemForumBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
-        return new CommunityViewHolder(binding);
-    }
+        CommunityViewHolder holder = new CommunityViewHolder(binding);
 
-    @Override
-    public void onBindViewHolder(@NonNull CommunityViewHolder holder, int position) {
-        holder.bind(communityList.get(position));
+        // set once per holder, the click opens the community shown at the time of the click: a row whose contents
+        // did not change is not bound again, so the community of the last bind may be an older state
         holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
             Intent intent = new Intent(context, CommunityActivity.class);
-            intent.putExtra("currentCommunity", communityList.get(position));
+            intent.putExtra("currentCommunity", getItem(position));
             if(isAdminList) {
                 intent.putExtra("isAdmin", true);
             }
@@ -64,11 +96,12 @@ public class CommunityAdapter extends RecyclerView.Adapter<CommunityAdapter.Comm
             }
             context.startActivity(intent);
         });
+        return holder;
     }
 
     @Override
-    public int getItemCount() {
-        return communityList.size();
+    public void onBindViewHolder(@NonNull CommunityViewHolder holder, int position) {
+        holder.bind(getItem(position));
     }
 
     public class CommunityViewHolder extends RecyclerView.ViewHolder {
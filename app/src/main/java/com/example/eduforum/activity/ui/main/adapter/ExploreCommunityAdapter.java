@@ -6,30 +6,68 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.eduforum.activity.model.community_manage.Community;
 import com.example.eduforum.activity.ui.community.CommunityActivity;
 import com.example.eduforum.activity.ui.main.fragment.CreateCommunityViewState;
+import com.example.eduforum.activity.util.StableIds;
 import com.example.eduforum.databinding.ItemExploreCommunityBinding;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class ExploreCommunityAdapter extends RecyclerView.Adapter<ExploreCommunityAdapter.ExploreCommunityViewHolder>{
-    private List<Community> communityList;
+public class ExploreCommunityAdapter extends ListAdapter<Community, ExploreCommunityAdapter.ExploreCommunityViewHolder>{
     OnJoinCommunityClickListener listener;
+    private final StableIds stableIds = new StableIds();
     public interface OnJoinCommunityClickListener {
         void onJoinCommunityClick(View view, String communityId);
     }
+
+    // rows are matched by community ID, only the name, the member count and the request state are shown
+    private static final DiffUtil.ItemCallback<Community> DIFF_CALLBACK = new DiffUtil.ItemCallback<Community>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Community oldItem, @NonNull Community newItem) {
+            return oldItem == newItem
+                    || (oldItem.getCommunityId() != null && oldItem.getCommunityId().equals(newItem.getCommunityId()));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Community oldItem, @NonNull Community newItem) {
+            if (oldItem == newItem) return true;
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && memberCountOf(oldItem) == memberCountOf(newItem)
+                    && Objects.equals(oldItem.getRequestSent(), newItem.getRequestSent());
+        }
+    };
+
     public ExploreCommunityAdapter(List<Community> communityList) {
-        this.communityList = communityList;
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+        setCommunityList(communityList);
     }
     public void setOnJoinCommunityClickListener(OnJoinCommunityClickListener listener) {
         this.listener = listener;
     }
+    /**
+     * The list is compared with the one shown on a background thread, only the rows that changed are bound again.
+     */
     public void setCommunityList(List<Community> communityList) {
-        this.communityList = communityList;
-        notifyDataSetChanged();
+        submitList(communityList == null ? new ArrayList<>() : new ArrayList<>(communityList));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(getItem(position).getCommunityId());
+    }
+
+    private static int memberCountOf(Community community) {
+        int userCount = community.getUserList() != null ? community.getUserList().size() : 0;
+        int adminCount = community.getAdminList() != null ? community.getAdminList().size() : 0;
+        return userCount + adminCount;
     }
     @NonNull
     @Override
@@ -41,20 +79,16 @@ public class ExploreCommunityAdapter extends RecyclerView.Adapter<ExploreCommuni
 
     @Override
     public void onBindViewHolder(@NonNull ExploreCommunityViewHolder holder, int position) {
-        holder.bind(communityList.get(position), listener);
+        Community community = getItem(position);
+        holder.bind(community, listener);
         holder.itemView.setOnClickListener(v -> {
             Intent intent = new Intent(v.getContext(), CommunityActivity.class);
-            intent.putExtra("currentCommunity", new CreateCommunityViewState(communityList.get(position)));
+            intent.putExtra("currentCommunity", new CreateCommunityViewState(community));
             intent.putExtra("isExploring", true);
             v.getContext().startActivity(intent);
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return communityList.size();
-    }
-
     public static class ExploreCommunityViewHolder extends RecyclerView.ViewHolder {
         ItemExploreCommunityBinding binding;
         public ExploreCommunityViewHolder(@NonNull ItemExploreCommunityBinding binding) {
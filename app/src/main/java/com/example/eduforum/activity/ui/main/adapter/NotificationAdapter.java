@@ -11,51 +11,86 @@ import android.widget.PopupMenu;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.eduforum.R;
 import com.example.eduforum.activity.model.noti_manage.Notification;
+import com.example.eduforum.activity.model.noti_manage.Sender;
 import com.example.eduforum.activity.ui.community.PostDetailActivity;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
 import com.example.eduforum.activity.ui.main.fragment.NotificationViewState;
+import com.example.eduforum.activity.util.StableIds;
+import com.example.eduforum.activity.util.TextViews;
 import com.example.eduforum.databinding.ItemNotiBinding;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapter.NotificationViewHolder> {
+public class NotificationAdapter extends ListAdapter<NotificationViewState, NotificationAdapter.NotificationViewHolder> {
+    private static final int READ_COLOR = Color.parseColor("#001D3D");
     Context context;
-    private List<NotificationViewState> notificationList;
-    public NotificationAdapter(Context context, List<NotificationViewState> notificationList) {
-        this.context = context;
-        if (notificationList == null) {
-            this.notificationList = new ArrayList<>();
+    private final StableIds stableIds = new StableIds();
+
+    // rows are matched by notification ID, a notification read again with the same content keeps its row
+    private static final DiffUtil.ItemCallback<NotificationViewState> DIFF_CALLBACK = new DiffUtil.ItemCallback<NotificationViewState>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NotificationViewState oldItem, @NonNull NotificationViewState newItem) {
+            return oldItem == newItem
+                    || (oldItem.getNotificationID() != null && oldItem.getNotificationID().equals(newItem.getNotificationID()));
         }
-        else {
-            this.notificationList = notificationList;
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NotificationViewState oldItem, @NonNull NotificationViewState newItem) {
+            if (oldItem == newItem) return true;
+            return oldItem.isRead() == newItem.isRead()
+                    && oldItem.getType() == newItem.getType()
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && Objects.equals(oldItem.getCommunityName(), newItem.getCommunityName())
+                    && Objects.equals(nameOf(oldItem.getTriggerBy()), nameOf(newItem.getTriggerBy()))
+                    && Objects.equals(pictureOf(oldItem.getTriggerBy()), pictureOf(newItem.getTriggerBy()));
         }
+    };
+
+    public NotificationAdapter(Context context, List<NotificationViewState> notificationList) {
+        super(DIFF_CALLBACK);
+        this.context = context;
+        setHasStableIds(true);
+        setNotificationList(notificationList);
     }
 
+    /**
+     * The list is compared with the one shown on a background thread, only the rows that changed are bound again.
+     */
     public void setNotificationList(List<NotificationViewState> notificationList) {
-        this.notificationList = notificationList;
-        notifyDataSetChanged();
+        submitList(notificationList == null ? new ArrayList<>() : new ArrayList<>(notificationList));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idOf(getItem(position).getNotificationID());
+    }
+
+    private static String nameOf(Sender sender) {
+        return sender != null ? sender.getName() : null;
+    }
+
+    private static String pictureOf(Sender sender) {
+        return sender != null ? sender.getProfilePicture() : null;
     }
     @NonNull
     @Override
     public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         LayoutInflater layoutInflater = LayoutInflater.from(parent.getContext());
         ItemNotiBinding itemNotiBinding = ItemNotiBinding.inflate(layoutInflater, parent, false);
-        return new NotificationViewHolder(itemNotiBinding);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
-        NotificationViewState notification = notificationList.get(position);
-        holder.bind(notification);
+        NotificationViewHolder holder = new NotificationViewHolder(itemNotiBinding);
 
+        // the listeners are set once per holder and act on the notification bound at the time of the click
         holder.binding.moreOptionImageButton.setOnClickListener(v -> {
             PopupMenu popupMenu = new PopupMenu(context, v);
             popupMenu.getMenuInflater().inflate(R.menu.noti_option_menu, popupMenu.getMenu());
@@ -65,24 +100,24 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
             popupMenu.show();
         });
         holder.binding.notiCardView.setOnClickListener(v -> {
-            ColorStateList colorStateList = ColorStateList.valueOf(Color.parseColor("#001D3D"));
-            holder.binding.notiCardView.setCardBackgroundColor(colorStateList);
+            NotificationViewState notification = holder.notification;
+            if (notification == null) return;
+            holder.binding.notiCardView.setCardBackgroundColor(ColorStateList.valueOf(READ_COLOR));
             holder.binding.notiCardView.setRadius(10);
-            handleCardViewClick(notificationList.get(position));
+            handleCardViewClick(notification);
             notification.setRead(true);
         });
-
-
+        return holder;
     }
 
     @Override
-    public int getItemCount() {
-        return notificationList.size();
+    public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
+        holder.bind(getItem(position));
     }
 
     public int getUnreadCount() {
         int count = 0;
-        for (NotificationViewState notification : notificationList) {
+        for (NotificationViewState notification : getCurrentList()) {
             if (!notification.isRead()) {
                 count++;
             }
@@ -92,45 +127,34 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
 
     public static class NotificationViewHolder extends RecyclerView.ViewHolder {
         ItemNotiBinding binding;
+        private NotificationViewState notification;
+        // avatar path loaded in the row, the same avatar is not loaded again
+        private String boundPicture;
         public NotificationViewHolder(ItemNotiBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
         }
 
         private void bindingComponents(NotificationViewState notificationViewState) {
-            if(notificationViewState.getTriggerBy().getProfilePicture()!=null){
-                StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(notificationViewState.getTriggerBy().getProfilePicture());
+            String picture = notificationViewState.getTriggerBy().getProfilePicture();
+            if(picture!=null && !picture.equals(boundPicture)){
+                StorageReference storageReference = FirebaseStorage.getInstance().getReference().child(picture);
                 Glide.with(binding.getRoot().getContext())
                         .load(storageReference)
                         .into(binding.avatarCardView);
+                boundPicture = picture;
             }
             String communityName = notificationViewState.getCommunityName();
-            binding.commuNotiTextView.setText(communityName);
-            binding.timeNotiTextView.setText(notificationViewState.getDate());
-
-            if(notificationViewState.isRead()) binding.notiCardView.setBackgroundColor(Color.parseColor("#001D3D"));
-
-            switch (notificationViewState.getType()) {
-                case 1:
-                    binding.contentNotiTextView.setText(notificationViewState.getTriggerBy().getName() + " đã đăng một bình luận mới vào bài viết của bạn.");
-                    break;
-                case 2:
-                    binding.contentNotiTextView.setText(notificationViewState.getTriggerBy().getName() + " đăng một post mới trong cộng đồng.");
-                    break;
-                case 3:
-                    binding.contentNotiTextView.setText(notificationViewState.getTriggerBy().getName() + " đã trả lời bình luận của bạn.");
-                    break;
-                case 4: // new announcement
-                    binding.contentNotiTextView.setText(notificationViewState.getTriggerBy().getName() + " đã đăng một thông báo mới.");
-                    break;
-                case 5:
-                    binding.contentNotiTextView.setText(notificationViewState.getTriggerBy().getName() + " đã bình luận vào bài viết bạn quan tâm.");
-                    break;
-            }
+            TextViews.setTextIfChanged(binding.commuNotiTextView, communityName);
+            TextViews.setTextIfChanged(binding.timeNotiTextView, notificationViewState.getDate());
+
+            if(notificationViewState.isRead()) binding.notiCardView.setBackgroundColor(READ_COLOR);
 
+            TextViews.setTextIfChanged(binding.contentNotiTextView, notificationViewState.getContentText());
         }
 
         public void bind(NotificationViewState notificationViewState) {
+            this.notification = notificationViewState;
             bindingComponents(notificationViewState);
 
         }
@@ -0,0 +1,56 @@
+package com.example.eduforum.activity.ui.main.adapter;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * The title of a section of a list made of several adapters, see {@link androidx.recyclerview.widget.ConcatAdapter}.
+ * One row, a TextView inflated from the given layout.
+ */
+public class SectionTitleAdapter extends RecyclerView.Adapter<SectionTitleAdapter.TitleViewHolder> {
+    @LayoutRes
+    private final int layout;
+    private final CharSequence title;
+
+    public SectionTitleAdapter(@LayoutRes int layout, CharSequence title) {
+        this.layout = layout;
+        this.title = title;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public TitleViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView view = (TextView) LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+        return new TitleViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull TitleViewHolder holder, int position) {
+        holder.title.setText(title);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return 0;
+    }
+
+    @Override
+    public int getItemCount() {
+        return 1;
+    }
+
+    public static class TitleViewHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+
+        public TitleViewHolder(TextView title) {
+            super(title);
+            this.title = title;
+        }
+    }
+}
@@ -7,8 +7,10 @@ import androidx.activity.result.PickVisualMediaRequest;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -21,8 +23,10 @@ import android.widget.ArrayAdapter;
 import com.example.eduforum.R;
 import com.example.eduforum.activity.EduForum;
 import com.example.eduforum.activity.model.post_manage.Creator;
+import com.example.eduforum.activity.ui.community.adapter.PostAdapter;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
 import com.example.eduforum.activity.ui.main.adapter.CommunityAdapter;
+import com.example.eduforum.activity.ui.main.adapter.SectionTitleAdapter;
 
 import com.example.eduforum.activity.viewmodel.main.HomeViewModel;
 import com.example.eduforum.activity.viewmodel.shared.UserViewModel;
@@ -33,6 +37,8 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.firebase.auth.FirebaseAuth;
 
 public class HomeFragment extends Fragment {
+    // load the next page of the feed when fewer rows than this are left below the screen
+    private static final int HOME_FEED_PREFETCH_DISTANCE = 5;
 
     private FragmentHomeBinding binding;
     private HomeViewModel viewModel;
@@ -40,6 +46,8 @@ public class HomeFragment extends Fragment {
     private CommunityAdapter joinedCommunitiesAdapter;
     private CommunityAdapter myCommunitiesAdapter;
     private CommunityAdapter globalCommunitiesAdapter;
+    private PostAdapter globalSearchAdapter;
+    private PostAdapter homeFeedAdapter;
     private ActivityResultLauncher<String> mGetContent;
 
     private DialogCreateCommunityBinding dialogBinding;
@@ -107,12 +115,6 @@ public class HomeFragment extends Fragment {
         myCommunitiesAdapter.setIsAdminList(true);
         globalCommunitiesAdapter = new CommunityAdapter(getContext(), viewModel.getGlobalCommunityList().getValue(), FirebaseAuth.getInstance());
         globalCommunitiesAdapter.setIsGlobalList(true);
-        binding.joinedCommunitiesRecyclerView.setAdapter(joinedCommunitiesAdapter);
-        binding.myCommunitiesRecyclerView.setAdapter(myCommunitiesAdapter);
-        binding.joinedCommunitiesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext(), RecyclerView.VERTICAL, false));
-        binding.myCommunitiesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext(), RecyclerView.VERTICAL, false));
-        binding.UITCommunitiesRecyclerView.setAdapter(globalCommunitiesAdapter);
-        binding.UITCommunitiesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext(), RecyclerView.VERTICAL, false));
         binding.createCommuButton.setOnClickListener(v -> {
             showCreateCommunityDialog();
         });
@@ -128,6 +130,67 @@ public class HomeFragment extends Fragment {
         viewModel.getGlobalCommunityList().observe(getViewLifecycleOwner(), globalCommunities -> {
             globalCommunitiesAdapter.setCommunityList(globalCommunities);
         });
+
+        homeFeedAdapter = new PostAdapter(getContext(), viewModel.getHomeFeedPosts().getValue());
+        viewModel.getHomeFeedPosts().observe(getViewLifecycleOwner(), posts -> {
+            homeFeedAdapter.setPostList(posts);
+        });
+        globalSearchAdapter = new PostAdapter(getContext(), null);
+
+        // one scrolling list: the rows of every section are recycled, and a post row observes its post only while
+        // it is on screen. The view types of the sections are kept apart, the two post lists do not share holders
+        ConcatAdapter homeAdapter = new ConcatAdapter(
+                new ConcatAdapter.Config.Builder()
+                        .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                        .build(),
+                globalSearchAdapter,
+                new SectionTitleAdapter(R.layout.item_home_title, getString(R.string.homeFragmentTitle)),
+                new SectionTitleAdapter(R.layout.item_section_title, "Cộng đồng UIT"),
+                globalCommunitiesAdapter,
+                new SectionTitleAdapter(R.layout.item_section_title, "Cộng đồng của tôi"),
+                myCommunitiesAdapter,
+                new SectionTitleAdapter(R.layout.item_section_title, "Cộng đồng đã tham gia"),
+                joinedCommunitiesAdapter,
+                new SectionTitleAdapter(R.layout.item_section_title, "Bài viết mới"),
+                homeFeedAdapter);
+        LinearLayoutManager homeLayoutManager = new LinearLayoutManager(getContext(), RecyclerView.VERTICAL, false);
+        binding.homeRecyclerView.setLayoutManager(homeLayoutManager);
+        binding.homeRecyclerView.setAdapter(homeAdapter);
+        // the feed is the last section, load the next page when few of its rows are left below the screen
+        binding.homeRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = homeLayoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= homeAdapter.getItemCount() - HOME_FEED_PREFETCH_DISTANCE) {
+                    viewModel.loadMoreHomeFeed();
+                }
+            }
+        });
+
+        binding.globalSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                viewModel.searchAllCommunities(query);
+                binding.globalSearchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                if (newText.isEmpty()) {
+                    viewModel.searchAllCommunities(newText);
+                }
+                return true;
+            }
+        });
+        viewModel.getGlobalSearchResults().observe(getViewLifecycleOwner(), results -> {
+            globalSearchAdapter.setPostList(results);
+        });
+        viewModel.getGlobalSearchStatus().observe(getViewLifecycleOwner(), status -> {
+            binding.globalSearchStatusTextView.setVisibility(status == null ? View.GONE : View.VISIBLE);
+            binding.globalSearchStatusTextView.setText(status);
+        });
     }
     private void showCreateCommunityDialog() {
         viewModel.setNewCommunityLiveData(new CreateCommunityViewState());
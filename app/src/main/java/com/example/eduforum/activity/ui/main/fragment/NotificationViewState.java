@@ -16,6 +16,8 @@ public class NotificationViewState {
 
     private String postID;
     private String commentID;
+    // text of the row, built once and not on every bind
+    private String contentText;
 
 
     public NotificationViewState() {
@@ -61,6 +63,7 @@ public class NotificationViewState {
 
     public void setTriggerBy(Sender triggerBy) {
         this.triggerBy = triggerBy;
+        contentText = null;
     }
 
     public int getType() {
@@ -69,6 +72,7 @@ public class NotificationViewState {
 
     public void setType(int type) {
         this.type = type;
+        contentText = null;
     }
 
     public boolean isRead() {
@@ -119,6 +123,35 @@ public class NotificationViewState {
         this.commentID = commentID;
     }
 
+    /**
+     * @return what happened, e.g. "X đã trả lời bình luận của bạn.", empty for an unknown type
+     */
+    public String getContentText() {
+        if (contentText == null) {
+            String name = triggerBy != null ? triggerBy.getName() : null;
+            switch (type) {
+                case 1:
+                    contentText = name + " đã đăng một bình luận mới vào bài viết của bạn.";
+                    break;
+                case 2:
+                    contentText = name + " đăng một post mới trong cộng đồng.";
+                    break;
+                case 3:
+                    contentText = name + " đã trả lời bình luận của bạn.";
+                    break;
+                case 4: // new announcement
+                    contentText = name + " đã đăng một thông báo mới.";
+                    break;
+                case 5:
+                    contentText = name + " đã bình luận vào bài viết bạn quan tâm.";
+                    break;
+                default:
+                    contentText = "";
+            }
+        }
+        return contentText;
+    }
+
     public String getCommunityID() {
         return communityID;
     }
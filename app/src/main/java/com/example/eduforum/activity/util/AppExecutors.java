@@ -0,0 +1,52 @@
+package com.example.eduforum.activity.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The threads of the app, shared by the repositories and the view models.
+ * <br></br>
+ * The Firestore callbacks run on the main thread: the work done with a snapshot (parsing the documents, building the
+ * view states) is given to {@link #parse()} and its result comes back through {@link #mainThread()}, where the
+ * LiveData and the repository state are changed.
+ */
+public class AppExecutors {
+    private static final String TAG = "AppExecutors";
+    private static AppExecutors instance;
+
+    private final MeteredExecutor parse;
+    private final Executor mainThread;
+
+    private AppExecutors() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // CPU work only, more threads than cores would only take turns
+        parse = new MeteredExecutor("parse", Math.max(2, Math.min(cores - 1, 4)), 64);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        mainThread = mainHandler::post;
+    }
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+
+    /**
+     * Parsing snapshots and mapping models to view states.
+     */
+    public MeteredExecutor parse() {
+        return parse;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    public void logStats() {
+        Log.d(TAG, parse.toString());
+    }
+}
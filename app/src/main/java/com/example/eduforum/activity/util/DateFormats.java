@@ -0,0 +1,46 @@
+package com.example.eduforum.activity.util;
+
+import com.google.firebase.Timestamp;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * The date formats shown by the app. A SimpleDateFormat is not thread-safe and costly to create, each thread keeps
+ * its own instance of each format.
+ */
+public class DateFormats {
+    // ThreadLocal.withInitial needs API 26
+    private static final ThreadLocal<SimpleDateFormat> POST_TIME = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
+        }
+    };
+    private static final ThreadLocal<SimpleDateFormat> FULL_TIME = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd-MM-yyyy HH:mm:ss", Locale.getDefault());
+        }
+    };
+
+    private DateFormats() {
+    }
+
+    /**
+     * @return the time of a post in the feed, e.g. 17/10/2024 08:30, empty if time is null
+     */
+    public static String formatPostTime(Timestamp time) {
+        if (time == null) {
+            return "";
+        }
+        return POST_TIME.get().format(time.toDate());
+    }
+
+    /**
+     * @return the time of a comment or a notification, e.g. 17-10-2024 08:30:05
+     */
+    public static String formatFullTime(Timestamp time) {
+        return FULL_TIME.get().format(time.toDate());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.eduforum.activity.util;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded thread pool that measures its tasks: how many wait in the queue, how long they wait and how long they run.
+ * <br></br>
+ * When the queue is full the task runs on the thread that submitted it, as it did before it was moved to the pool,
+ * and is counted as rejected.
+ */
+public class MeteredExecutor implements Executor {
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param threads       number of threads, they stop after a minute without work
+     * @param queueCapacity number of tasks that can wait for a thread
+     */
+    public MeteredExecutor(String name, int threads, int queueCapacity) {
+        this.name = name;
+        AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(() -> {
+                    // below the main thread, the UI is drawn first
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, name + "-" + threadNumber.incrementAndGet()),
+                (runnable, executor) -> {
+                    rejectedCount.incrementAndGet();
+                    runnable.run();
+                });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        long queuedAt = System.nanoTime();
+        pool.execute(() -> {
+            long startedAt = System.nanoTime();
+            long waitNanos = startedAt - queuedAt;
+            totalWaitNanos.addAndGet(waitNanos);
+            long max;
+            while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+                // another task raised the maximum meanwhile, compare again
+            }
+            try {
+                task.run();
+            } finally {
+                totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+                completedCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return the number of tasks run on the submitting thread because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : totalWaitNanos.get() / 1e6 / completed;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    public double getAverageRunMillis() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : totalRunNanos.get() / 1e6 / completed;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: queued=%d active=%d completed=%d rejected=%d avgWait=%.2fms maxWait=%.2fms avgRun=%.2fms",
+                name, getQueueDepth(), getActiveCount(), getCompletedCount(), getRejectedCount(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.eduforum.activity.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs its tasks one after the other on another executor, in the order they were given.
+ * <br></br>
+ * The tasks of a list that is built in steps (a page replacing the list, then pages appended to it) share one
+ * SerialExecutor: each step is mapped after the previous one, and the results reach the main thread in the same order.
+ */
+public class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(@NonNull Runnable task) {
+        tasks.offer(() -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+        if (active != null) {
+            executor.execute(active);
+        }
+    }
+}
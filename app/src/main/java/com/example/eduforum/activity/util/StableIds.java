@@ -0,0 +1,27 @@
+package com.example.eduforum.activity.util;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stable item IDs of a RecyclerView adapter: every key (post ID, comment ID...) gets its own number the first time it
+ * is seen and keeps it for the lifetime of the adapter, so a row keeps its ID across list updates.
+ */
+public class StableIds {
+    private final Map<String, Long> itemIds = new HashMap<>();
+    private long nextItemId = 0;
+
+    public long idOf(String key) {
+        if (key == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long itemId = itemIds.get(key);
+        if (itemId == null) {
+            itemId = nextItemId++;
+            itemIds.put(key, itemId);
+        }
+        return itemId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.eduforum.activity.util;
+
+import android.text.TextUtils;
+import android.widget.TextView;
+
+/**
+ * Helpers for the TextViews of the list rows.
+ */
+public class TextViews {
+    private TextViews() {
+    }
+
+    /**
+     * Set the text only when it is not the one shown. A row bound again with the same item keeps its texts, setText
+     * would copy the text and lay the view out again even for the same value.
+     */
+    public static void setTextIfChanged(TextView view, CharSequence text) {
+        // a TextView given null shows an empty text
+        if (TextUtils.equals(view.getText(), text != null ? text : "")) return;
+        view.setText(text);
+    }
+}
@@ -13,9 +13,9 @@ import com.example.eduforum.activity.repository.category.CategoryRepository;
 import com.example.eduforum.activity.repository.post.IPostCallback;
 import com.example.eduforum.activity.repository.post.PostRepository;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
+import com.example.eduforum.activity.util.DateFormats;
 import com.google.firebase.Timestamp;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,6 +27,9 @@ public class CreatePostViewModel extends ViewModel {
     MutableLiveData<List<Category>> allCategories;
     PostRepository postRepository;
     CategoryRepository categoryRepository;
+    // receives the categories of the community, removed when the view model is cleared
+    private CategoryCallback categoryCallback;
+    private String categoryCommunityID;
     public CreatePostViewModel() {
         postViewState = new MutableLiveData<>();
         postViewState.setValue(new PostViewState());
@@ -40,9 +43,11 @@ public class CreatePostViewModel extends ViewModel {
         allCategories.setValue(new ArrayList<>());
     }
     public void updateCategories() {
+        removeCategoryCallback();
         Community community = new Community();
         community.setCommunityId(communityId.getValue());
-        categoryRepository.fetchCategory(community, new CategoryCallback() {
+        categoryCommunityID = community.getCommunityId();
+        categoryCallback = new CategoryCallback() {
             @Override
             public void onSuccess(List<Category> categories) {
                 if(categories == null) {
@@ -55,7 +60,21 @@ public class CreatePostViewModel extends ViewModel {
                 errorMessage.setValue("Không thể tải danh sách chuyên mục");
             }
 
-        });
+        };
+        categoryRepository.fetchCategory(community, categoryCallback);
+    }
+
+    private void removeCategoryCallback() {
+        if (categoryCallback != null) {
+            categoryRepository.removeCallback(categoryCommunityID, categoryCallback);
+            categoryCallback = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        removeCategoryCallback();
     }
     public LiveData<String> getErrorMessage() {
         return errorMessage;
@@ -174,10 +193,6 @@ public class CreatePostViewModel extends ViewModel {
         return true;
     }
     private String convertTimestampToReadable(Timestamp timestamp){
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-        if(timestamp == null){
-            return "";
-        }
-        return sdf.format(timestamp.toDate());
+        return DateFormats.formatPostTime(timestamp);
     }
 }
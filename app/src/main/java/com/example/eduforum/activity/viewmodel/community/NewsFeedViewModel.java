@@ -1,5 +1,8 @@
 package com.example.eduforum.activity.viewmodel.community;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
@@ -13,21 +16,32 @@ import com.example.eduforum.activity.repository.category.CategoryRepository;
 import com.example.eduforum.activity.repository.community.CommunityRepository;
 import com.example.eduforum.activity.repository.community.ICommunityCallBack_C;
 import com.example.eduforum.activity.repository.community.INotificationStatus;
+import com.example.eduforum.activity.repository.post.IHotPostsCallback;
 import com.example.eduforum.activity.repository.post.IPostCallback;
+import com.example.eduforum.activity.repository.post.IPostPageCallback;
+import com.example.eduforum.activity.repository.post.ISearchCallback;
+import com.example.eduforum.activity.repository.post.PostQuery;
 import com.example.eduforum.activity.repository.post.PostRepository;
 import com.example.eduforum.activity.ui.community.viewstate.FilterViewState;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
 import com.example.eduforum.activity.ui.main.fragment.CreateCommunityViewState;
-import com.google.firebase.Timestamp;
+import com.example.eduforum.activity.util.AppExecutors;
+import com.example.eduforum.activity.util.DateFormats;
+import com.example.eduforum.activity.util.SerialExecutor;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class NewsFeedViewModel extends ViewModel {
+    // wait for a pause in typing before searching
+    public static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int SEARCH_CACHE_SIZE = 20;
     MutableLiveData<CreateCommunityViewState> currentCommunity;
     MutableLiveData<String> communityId;
     MutableLiveData<List<PostViewState>> postList; // posts displaying in news feed, not always the same as the posts in the community
@@ -38,6 +52,29 @@ public class NewsFeedViewModel extends ViewModel {
     CommunityRepository communityRepository;
     PostRepository postRepository;
     CategoryRepository categoryRepository;
+    // paging state of the feed
+    private DocumentSnapshot lastVisiblePost;
+    private boolean hasMorePosts;
+    private boolean isLoadingPage;
+    private int feedGeneration;
+    // incremented for every list that replaces the shown posts, the lists mapped before it are not shown
+    private volatile int postListVersion;
+    // the lists are mapped one at a time, a page is appended to the list mapped before it
+    private final Executor postMapping = new SerialExecutor(AppExecutors.getInstance().parse());
+    // complete search results by normalized keyword, least recently used first
+    private final Map<String, List<Post>> searchCache = new LinkedHashMap<String, List<Post>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Post>> eldest) {
+            return size() > SEARCH_CACHE_SIZE;
+        }
+    };
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    // community whose hot ranking is listened to, null when the feed is not sorted by HOT
+    private String hotPostsCommunityID;
+    // receives the categories of the community, removed when the view model is cleared
+    private CategoryCallback categoryCallback;
+    private String categoryCommunityID;
     public NewsFeedViewModel() {
         communityRepository = CommunityRepository.getInstance();
         postRepository = PostRepository.getInstance();
@@ -54,9 +91,11 @@ public class NewsFeedViewModel extends ViewModel {
         errorMessage = new MutableLiveData<>();
     }
     public void updateCategories() {
+        removeCategoryCallback();
         Community community = new Community();
         community.setCommunityId(currentCommunity.getValue().getCommunityID());
-        categoryRepository.fetchCategory(community, new CategoryCallback() {
+        categoryCommunityID = community.getCommunityId();
+        categoryCallback = new CategoryCallback() {
             @Override
             public void onSuccess(List<Category> categories) {
                 List<PostCategory> postCategories = new ArrayList<>();
@@ -68,11 +107,32 @@ public class NewsFeedViewModel extends ViewModel {
             @Override
             public void onFailure(String errorMsg) {}
 
-        });
+        };
+        categoryRepository.fetchCategory(community, categoryCallback);
+    }
+
+    private void removeCategoryCallback() {
+        if (categoryCallback != null) {
+            categoryRepository.removeCallback(categoryCommunityID, categoryCallback);
+            categoryCallback = null;
+        }
     }
     public void setFilter(FilterViewState filter) {
         currentFilter.setValue(filter);
-        postRepository.queryPost(currentCommunity.getValue().getCommunityID(),FirebaseAuth.getInstance().getUid(), filter.getTags(),  filter.getPostQuery(), new IPostCallback() {
+        // bumps feedGeneration, a query still in flight delivers nothing once the feed was replaced
+        stopPaging();
+        final int generation = feedGeneration;
+        String communityID = currentCommunity.getValue().getCommunityID();
+        if (filter.getPostQuery() == PostQuery.HOT) {
+            observeHotPosts(communityID, filter);
+            return;
+        }
+        // the posts already read answer at once, the server result replaces them when it arrives
+        List<Post> heldPosts = postRepository.queryHeldPosts(communityID, filter.getTags(), filter.getPostQuery(), filter.isMatchAll());
+        if (!heldPosts.isEmpty()) {
+            showPosts(heldPosts);
+        }
+        postRepository.queryPost(communityID, FirebaseAuth.getInstance().getUid(), filter.getTags(), filter.getPostQuery(), filter.isMatchAll(), new IPostCallback() {
             @Override
             public void onGetPostSuccess(List<Post> posts){
             }
@@ -96,11 +156,13 @@ public class NewsFeedViewModel extends ViewModel {
             }
             @Override
             public void onQueryPostError(String errorMsg){
+                if (generation != feedGeneration || currentFilter.getValue() != filter) return;
                 errorMessage.setValue("Không thể lấy bài viết");
             }
             @Override
             public void onQueryPostSuccess(List<Post> queryPostResults){
-                postList.setValue(convertPostListToPostViewStateList(queryPostResults));
+                if (generation != feedGeneration || currentFilter.getValue() != filter) return;
+                showPosts(queryPostResults);
 
             }
             @Override
@@ -139,79 +201,129 @@ public class NewsFeedViewModel extends ViewModel {
 
         });
     }
+    /**
+     * Search while the keyword is typed: the search starts {@link #SEARCH_DEBOUNCE_MS} after the last keystroke.
+     */
+    public void searchAsYouType(String keyword) {
+        cancelPendingSearch();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            filterBySearch(keyword);
+        };
+        searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
     public void filterBySearch(String keyword) {
+        cancelPendingSearch();
         keyword = keyword.trim();
         if(keyword.isEmpty()) {
             refreshPostList();
             return;
         }
-        postRepository.searchPost(currentCommunity.getValue().getCommunityID(), keyword, new IPostCallback() {
-            @Override
-            public void onGetPostSuccess(List<Post> posts){
-            }
-            @Override
-            public void onGetPostFailure(String errorMsg){
-            }
-            @Override
-            public void onAddPostFailure(String errorMsg){
-
-            }
-            @Override
-            public void onAddPostSuccess(Post newPost){
-
-            }
+        String normalized = PostRepository.normalizeSearchKeyword(keyword);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        // bumps feedGeneration, a search still in flight delivers nothing once a newer one started
+        stopPaging();
+        final int generation = feedGeneration;
+        List<Post> cached = searchCache.get(normalized);
+        if (cached != null) {
+            showPosts(cached);
+            return;
+        }
+        List<Post> narrowed = narrowCachedSearch(normalized);
+        if (narrowed != null) {
+            searchCache.put(normalized, narrowed);
+            showPosts(narrowed);
+            return;
+        }
+        postRepository.searchPost(currentCommunity.getValue().getCommunityID(), keyword, new ISearchCallback() {
             @Override
-            public void onEditPostSuccess(){
-
+            public void onSearchResult(List<Post> posts, boolean isComplete) {
+                // the held or cached matches may miss some, only a complete result is cached and narrowed later
+                if (isComplete) searchCache.put(normalized, posts);
+                if (generation != feedGeneration) return;
+                showPosts(posts);
             }
-            @Override
-            public void onEditPostFailure(String errorMsg){
 
-            }
             @Override
-            public void onQueryPostError(String errorMsg){
+            public void onSearchFailure(String errorMsg) {
+                if (generation != feedGeneration) return;
                 errorMessage.setValue("Đã xảy ra lỗi! Không thể tìm kiếm bài viết!");
-
             }
-            @Override
-            public void onQueryPostSuccess(List<Post> queryPostResults){
-                postList.setValue(convertPostListToPostViewStateList(queryPostResults));
-
-            }
-            @Override
-            public void onDeletePostSuccess(){
+        });
+    }
 
+    // a longer keyword only removes results, filter the results of the longest cached prefix instead of searching
+    private List<Post> narrowCachedSearch(String normalized) {
+        String longestPrefix = null;
+        for (String cachedKeyword : searchCache.keySet()) {
+            if (normalized.startsWith(cachedKeyword)
+                    && (longestPrefix == null || cachedKeyword.length() > longestPrefix.length())) {
+                longestPrefix = cachedKeyword;
             }
-            @Override
-            public void onDeletePostError(String errorMsg){
+        }
+        if (longestPrefix == null) {
+            return null;
+        }
+        List<Post> narrowed = new ArrayList<>();
+        for (Post post : searchCache.get(longestPrefix)) {
+            if (PostRepository.matchesSearch(post, normalized)) {
+                narrowed.add(post);
             }
-            @Override
-            public void onSubscriptionSuccess(){
+        }
+        return narrowed;
+    }
 
+    // the ranking is kept up to date by a listener, the tags are filtered here
+    private void observeHotPosts(String communityID, FilterViewState filter) {
+        hotPostsCommunityID = communityID;
+        List<String> tagIDs = new ArrayList<>();
+        if (filter.getTags() != null) {
+            for (Category tag : filter.getTags()) {
+                tagIDs.add(tag.getCategoryID());
             }
-            @Override
-            public void onSubscriptionError(String errorMsg){
-
+        }
+        postRepository.observeHotPosts(communityID, new IHotPostsCallback() {
+            @Override
+            public void onHotPostsChanged(List<Post> hotPosts) {
+                List<Post> shown = new ArrayList<>();
+                for (Post post : hotPosts) {
+                    if (tagIDs.isEmpty() || PostRepository.matchesCategories(post, tagIDs, filter.isMatchAll())) {
+                        shown.add(post);
+                    }
+                }
+                showPosts(shown);
             }
-            @Override
-            public void onBookmarkError(String errorMsg){
 
-            }
             @Override
-            public void onBookmarkSuccess(){
-
+            public void onHotPostsFailure(String errorMsg) {
+                errorMessage.setValue("Không thể lấy bài viết");
             }
+        });
+    }
 
-            @Override
-            public void onGetVoteStatusSuccess(int voteType) {
-
-            }
+    private void stopHotPosts() {
+        if (hotPostsCommunityID != null) {
+            postRepository.removeHotPostsListener(hotPostsCommunityID);
+            hotPostsCommunityID = null;
+        }
+    }
 
-            @Override
-            public void onGetOnePostSuccess(Post post) {
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelPendingSearch();
+        stopHotPosts();
+        removeCategoryCallback();
+    }
 
-            }
-        });
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
     }
 
     public void setCurrentCommunity(CreateCommunityViewState community) {
@@ -232,73 +344,72 @@ public class NewsFeedViewModel extends ViewModel {
         refreshPostList();
     }
     public void refreshPostList(){
-        postRepository.getPosts(currentCommunity.getValue().getCommunityID(), FirebaseAuth.getInstance().getUid(), new IPostCallback() {
-            @Override
-            public void onGetPostSuccess(List<Post> posts){
-                postList.setValue(convertPostListToPostViewStateList(posts));
-            }
-            @Override
-            public void onGetPostFailure(String errorMsg){
+        cancelPendingSearch();
+        // the posts may have changed since the cached searches
+        searchCache.clear();
+        stopHotPosts();
+        // start the feed over, any page still in flight belongs to the old feed
+        feedGeneration++;
+        lastVisiblePost = null;
+        hasMorePosts = true;
+        isLoadingPage = true;
+        final int generation = feedGeneration;
+        // the repository holds the feed between visits and only reads the posts changed since then
+        postRepository.syncFeed(currentCommunity.getValue().getCommunityID(), FirebaseAuth.getInstance().getUid(), new IPostPageCallback() {
+            @Override
+            public void onGetPostPageSuccess(List<Post> posts, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != feedGeneration) return;
+                isLoadingPage = false;
+                hasMorePosts = hasMore;
+                lastVisiblePost = lastVisible;
+                showPosts(posts);
+            }
+            @Override
+            public void onGetPostPageFailure(String errorMsg) {
+                if (generation != feedGeneration) return;
+                isLoadingPage = false;
                 errorMessage.setValue("Không thể tải bài viết");
             }
-            @Override
-            public void onAddPostFailure(String errorMsg){
-
-            }
-            @Override
-            public void onAddPostSuccess(Post newPost){
-
-            }
-            @Override
-            public void onEditPostSuccess(){
-
-            }
-            @Override
-            public void onEditPostFailure(String errorMsg){
-            }
-            @Override
-            public void onQueryPostError(String errorMsg){
-
-            }
-            @Override
-            public void onQueryPostSuccess(List<Post> queryPostResults){
-
-            }
-            @Override
-            public void onDeletePostSuccess(){
-
-            }
-            @Override
-            public void onDeletePostError(String errorMsg){
-            }
-            @Override
-            public void onSubscriptionSuccess(){
-
-            }
-            @Override
-            public void onSubscriptionError(String errorMsg){
-
-            }
-            @Override
-            public void onBookmarkError(String errorMsg){
-
-            }
-            @Override
-            public void onBookmarkSuccess(){
-
-            }
-
-            @Override
-            public void onGetVoteStatusSuccess(int voteType) {
-
-            }
-
-            @Override
-            public void onGetOnePostSuccess(Post post) {
+        });
+    }
 
+    /**
+     * Load the next page of the feed, call this when the user scrolls near the end of the post list.
+     * Does nothing while a page is loading, when the feed is exhausted, or when the list shows search/filter results.
+     */
+    public void loadNextPage() {
+        if (isLoadingPage || !hasMorePosts || lastVisiblePost == null) {
+            return;
+        }
+        isLoadingPage = true;
+        // the server read of the first page may still be in flight after its cached result, it must not replace
+        // the list once this page is appended
+        final int generation = ++feedGeneration;
+        postRepository.loadMoreFeed(currentCommunity.getValue().getCommunityID(), FirebaseAuth.getInstance().getUid(), new IPostPageCallback() {
+            @Override
+            public void onGetPostPageSuccess(List<Post> posts, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != feedGeneration) return;
+                isLoadingPage = false;
+                hasMorePosts = hasMore;
+                if (lastVisible != null) lastVisiblePost = lastVisible;
+                appendPosts(posts);
+            }
+            @Override
+            public void onGetPostPageFailure(String errorMsg) {
+                if (generation != feedGeneration) return;
+                isLoadingPage = false;
+                errorMessage.setValue("Không thể tải bài viết");
             }
         });
     }
+
+    private void stopPaging() {
+        // the list now shows search or filter results, which are not part of the paged feed
+        stopHotPosts();
+        feedGeneration++;
+        isLoadingPage = false;
+        hasMorePosts = false;
+    }
     public LiveData<CreateCommunityViewState> getCurrentCommunity() {
         return currentCommunity;
     }
@@ -323,22 +434,55 @@ public class NewsFeedViewModel extends ViewModel {
     public LiveData<Boolean> getIsNotified() {
         return isNotified;
     }
-    private List<PostViewState> convertPostListToPostViewStateList(List<Post> posts) {
+    /**
+     * Replace the posts shown. The view states are built on the parse thread, the list is changed on the main thread.
+     */
+    private void showPosts(List<Post> posts) {
+        mapPosts(posts, false);
+    }
+
+    // add a page after the posts shown
+    private void appendPosts(List<Post> posts) {
+        mapPosts(posts, true);
+    }
+
+    private void mapPosts(List<Post> posts, boolean isAppended) {
+        // a replace supersedes the lists still mapping, an appended page belongs to the list mapped before it
+        final int version = isAppended ? postListVersion : ++postListVersion;
+        final CreateCommunityViewState community = currentCommunity.getValue();
+        final List<Post> snapshot = new ArrayList<>(posts);
+        AppExecutors executors = AppExecutors.getInstance();
+        postMapping.execute(() -> {
+            // a newer list replaces this one, no need to map it
+            if (version != postListVersion) return;
+            List<PostViewState> mapped = convertPostListToPostViewStateList(snapshot, community);
+            executors.mainThread().execute(() -> {
+                if (version != postListVersion) return;
+                if (!isAppended) {
+                    postList.setValue(mapped);
+                    return;
+                }
+                List<PostViewState> newPostList = new ArrayList<>();
+                if (postList.getValue() != null) {
+                    newPostList.addAll(postList.getValue());
+                }
+                newPostList.addAll(mapped);
+                postList.setValue(newPostList);
+            });
+        });
+    }
+
+    private static List<PostViewState> convertPostListToPostViewStateList(List<Post> posts, CreateCommunityViewState community) {
         List<PostViewState> postViewStateList = new ArrayList<>();
         for(Post post : posts) {
-            PostViewState state = new PostViewState(post.getPostID(), post.getCreator(), currentCommunity.getValue(), post.getTitle(), post.getContent(),post.getAnonymous(), convertTimestampToReadable(post.getTimeCreated()), post.getImage(), post.getTaggedUsers(), post.getCategory(), post.getVoteDifference(),post.getTotalComment());
+            PostViewState state = new PostViewState(post.getPostID(), post.getCreator(), community, post.getTitle(), post.getContent(),post.getAnonymous(), DateFormats.formatPostTime(post.getTimeCreated()), post.getImage(), post.getTaggedUsers(), post.getCategory(), post.getVoteDifference(),post.getTotalComment());
             state.setPictures(post.getDownloadImage());
+            state.setSummary(post.isSummary());
+            // the texts of the row are built here rather than on the main thread during the bind
+            state.getVoteText();
+            state.getCommentText();
             postViewStateList.add(state);
         }
         return postViewStateList;
     }
-
-    private String convertTimestampToReadable(Timestamp time) {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-        if(time == null) {
-            return "";
-        }
-        return sdf.format(time.toDate());
-
-    }
 }
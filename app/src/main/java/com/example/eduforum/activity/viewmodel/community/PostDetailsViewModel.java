@@ -6,16 +6,35 @@ import androidx.lifecycle.ViewModel;
 import com.example.eduforum.activity.model.post_manage.Comment;
 import com.example.eduforum.activity.model.post_manage.Post;
 import com.example.eduforum.activity.repository.comment.CommentCallback;
+import com.example.eduforum.activity.repository.comment.CommentQuery;
 import com.example.eduforum.activity.repository.comment.CommentRepository;
+import com.example.eduforum.activity.repository.comment.CommentTree;
+import com.example.eduforum.activity.repository.comment.ICommentChangesCallback;
+import com.example.eduforum.activity.repository.comment.ICommentPageCallback;
+import com.example.eduforum.activity.repository.comment.ICommentVotesCallback;
 import com.example.eduforum.activity.repository.post.IPostCallback;
 import com.example.eduforum.activity.repository.post.PostRepository;
+import com.example.eduforum.activity.repository.post.PostStore;
+import com.example.eduforum.activity.repository.vote.VoteState;
+import com.example.eduforum.activity.repository.vote.VoteStateManager;
 import com.example.eduforum.activity.ui.community.viewstate.CommentViewState;
 import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
+import com.example.eduforum.activity.util.AppExecutors;
+import com.example.eduforum.activity.util.DateFormats;
+import com.example.eduforum.activity.util.SerialExecutor;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
-import java.text.SimpleDateFormat;
+import com.google.firebase.firestore.DocumentSnapshot;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 // TODO: Nam lam cai nay ne Nam
 public class PostDetailsViewModel extends ViewModel {
@@ -25,6 +44,38 @@ public class PostDetailsViewModel extends ViewModel {
     MutableLiveData<List<CommentViewState>> cmts_child;
     MutableLiveData<PostViewState> currentPost;
     MutableLiveData<Integer> voteType;
+    // vote of the current user and vote count of the post, including the taps not saved yet
+    MutableLiveData<VoteState> postVote;
+    private final VoteStateManager voteStateManager = VoteStateManager.getInstance();
+    private final VoteStateManager.Listener voteStateListener = this::onVoteStateChanged;
+    // the post shown is kept up to date with PostStore, e.g. with the comments counted by the repositories
+    private final PostStore.Observer postStoreObserver = this::onStoredPostChanged;
+    private String observedPostID;
+    MutableLiveData<Map<String, Integer>> commentVotes;
+    // IDs of the loaded threads whose replies are not all loaded yet
+    MutableLiveData<Set<String>> threadsWithMoreReplies;
+    // posts with more comments than this are loaded page by page instead of as a whole tree
+    private static final int PAGED_COMMENTS_THRESHOLD = 50;
+    private CommentQuery commentOrder = CommentQuery.OLDEST;
+    // every comment of the post by ID when the whole tree is loaded, null when the comments are paged
+    private Map<String, Comment> heldComments;
+    // paging state of the comments, used when heldComments is null
+    private boolean isPaged;
+    private DocumentSnapshot lastVisibleComment;
+    private boolean hasMoreComments;
+    private boolean isLoadingComments;
+    private int commentGeneration;
+    // incremented for every page of top-level comments requested, the server read of the first page is dropped
+    // once the next page is requested after its cached result
+    private int commentPageGeneration;
+    // the comments are mapped one list at a time, a page is appended to the list mapped before it
+    private final Executor commentMapping = new SerialExecutor(AppExecutors.getInstance().parse());
+    private final Map<String, DocumentSnapshot> replyCursors = new HashMap<>();
+    private final Set<String> loadingReplies = new HashSet<>();
+    // paged comments are only listened to from the time the first page was read
+    private Timestamp pagedSince;
+    // set while the comments are live, the loaded paged comments are listened to by ID with it
+    private ICommentChangesCallback liveComments;
 
     public PostDetailsViewModel() {
         postRepository = PostRepository.getInstance();
@@ -34,7 +85,10 @@ public class PostDetailsViewModel extends ViewModel {
         currentPost = new MutableLiveData<>();
 
         voteType = new MutableLiveData<>();
-
+        postVote = new MutableLiveData<>();
+        voteStateManager.addListener(voteStateListener);
+        commentVotes = new MutableLiveData<>();
+        threadsWithMoreReplies = new MutableLiveData<>(new HashSet<>());
 
     }
 
@@ -48,38 +102,88 @@ public class PostDetailsViewModel extends ViewModel {
     public LiveData<List<CommentViewState>> getCommentsChild(){
         return cmts_child;
     }
+    public LiveData<Map<String, Integer>> getCommentVotes(){
+        return commentVotes;
+    }
+    public LiveData<VoteState> getPostVote(){
+        return postVote;
+    }
+    public LiveData<Set<String>> getThreadsWithMoreReplies(){
+        return threadsWithMoreReplies;
+    }
+    public CommentQuery getCommentOrder(){
+        return commentOrder;
+    }
 
 
 
     // TODO: anh nam lam cai nay ne
-    private List<CommentViewState> convertCommentListToCommentViewStateList(List<Comment> comments){
+    // called on the parse thread too, see showComments
+    private static List<CommentViewState> convertCommentListToCommentViewStateList(List<Comment> comments){
         List<CommentViewState> commentViewStates = new ArrayList<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss", Locale.getDefault());
 
         for(Comment comment: comments){
-            commentViewStates.add(new CommentViewState(
+            CommentViewState commentViewState = new CommentViewState(
                     comment.getCommentID(),
                     comment.getContent(),
-                    dateFormat.format(comment.getTimeCreated().toDate()), // Convert timestamp to string
+                    DateFormats.formatFullTime(comment.getTimeCreated()), // Convert timestamp to string
                     comment.getCreator(),
                     comment.getTotalUpVote(),
                     comment.getTotalDownVote(),
                     comment.getVoteDifference(),
-                    dateFormat.format(comment.getLastModified().toDate()), // Convert timestamp to string
+                    DateFormats.formatFullTime(comment.getLastModified()), // Convert timestamp to string
                     comment.getImage(),
                     comment.getReplyCommentID(),
                     comment.getTotalReply()
-            ));
+            );
+            // the text of the row is built here rather than during the bind
+            commentViewState.getVoteText();
+            commentViewStates.add(commentViewState);
         }
         return commentViewStates;
 
     }
 
+    /**
+     * Replace the comments shown. The view states are built on the parse thread, the list is replaced on the main
+     * thread unless the comments were loaded again meanwhile.
+     */
+    private void showComments(List<Comment> comments, int generation) {
+        mapComments(comments, generation, false);
+    }
+
+    // add a page of top-level comments after the comments shown
+    private void appendComments(List<Comment> comments, int generation) {
+        mapComments(comments, generation, true);
+    }
+
+    private void mapComments(List<Comment> comments, int generation, boolean isAppended) {
+        final List<Comment> snapshot = new ArrayList<>(comments);
+        AppExecutors executors = AppExecutors.getInstance();
+        commentMapping.execute(() -> {
+            List<CommentViewState> commentViewStates = convertCommentListToCommentViewStateList(snapshot);
+            executors.mainThread().execute(() -> {
+                if (generation != commentGeneration) return;
+                if (!isAppended) {
+                    cmts.setValue(commentViewStates);
+                } else {
+                    List<CommentViewState> newCommentViewStates = new ArrayList<>();
+                    if (cmts.getValue() != null) {
+                        newCommentViewStates.addAll(cmts.getValue());
+                    }
+                    appendMissing(newCommentViewStates, commentViewStates);
+                    cmts.setValue(newCommentViewStates);
+                }
+                observeShownComments();
+            });
+        });
+    }
+
     // TODO: anh em lam cai nay ne
     public void setCurrentPost(PostViewState postViewState) {
 
         Post post = new Post(postViewState.getPostId(),
-                postViewState.getCommunity().getCommunityID(),
+                communityIDOf(postViewState),
                 postViewState.getTitle(),
                 postViewState.getContent(),
                 postViewState.getIsAnonymous(), null, null,
@@ -91,61 +195,41 @@ public class PostDetailsViewModel extends ViewModel {
         community_id = post.getCommunityID();
 
         currentPost.setValue(postViewState);
+        observeStoredPost(pt_id);
+        if (postViewState.isSummary()) {
+            loadFullPost(postViewState);
+        }
+        loadCommentVotes(pt_id, community_id);
 
-        commentRepository.loadTopLevelComments(post, new CommentCallback() {
-
-            @Override
-            public void onCreateSuccess(Comment comments) {
-
-            }
-
-            @Override
-            public void onFailure(String errorMsg) {
-
-            }
-
-            @Override
-            public void onInitialLoadSuccess(List<Comment> comments) {
-                cmts.postValue(convertCommentListToCommentViewStateList(comments));
-            }
-
-            @Override
-            public void onLoadRepliesSuccess(List<Comment> comments) {
-
-            }
-
-            @Override
-            public void onDeleteSuccess() {
-
-            }
-
-            @Override
-            public void onUpdateSuccess(Comment comment) {
-
-            }
-
-            @Override
-            public void onGetVoteStatusSuccess(int voteType) {
-
-            }
-        });
+        if (postViewState.getTotalComment() > PAGED_COMMENTS_THRESHOLD) {
+            loadFirstCommentPage();
+        } else {
+            loadCommentTree(post);
+        }
     }
     private String pt_id;
     private String community_id;
 
 
     public void upVote() {
-        Post newPost = new Post();
-        newPost.setPostID(pt_id);
-        newPost.setCommunityID(community_id);
-        postRepository.updateVoteCount(newPost, FirebaseAuth.getInstance().getCurrentUser().getUid(), 1);
+        votePost(1);
     }
 
     public void downVote() {
+        votePost(-1);
+    }
+
+    // the vote buttons show getPostVote, which is updated at once; the write happens after the taps settle
+    private void votePost(int direction) {
         Post newPost = new Post();
         newPost.setPostID(pt_id);
         newPost.setCommunityID(community_id);
-        postRepository.updateVoteCount(newPost, FirebaseAuth.getInstance().getCurrentUser().getUid(), -1);
+        String postKey = VoteStateManager.keyOf(newPost);
+        if (voteStateManager.getState(postKey) == null && currentPost.getValue() != null) {
+            Integer knownVoteType = voteType.getValue();
+            voteStateManager.seed(postKey, knownVoteType != null ? knownVoteType : 0, currentPost.getValue().getVoteDifference());
+        }
+        voteStateManager.tap(newPost, FirebaseAuth.getInstance().getCurrentUser().getUid(), direction);
     }
 
     public void addParentComment(CommentViewState comment) {
@@ -167,18 +251,21 @@ public class PostDetailsViewModel extends ViewModel {
         commentRepository.createComment(newPost, newComment, new CommentCallback() {
             @Override
             public void onCreateSuccess(Comment comments) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss", Locale.getDefault());
                 List<CommentViewState> commentViewStates = cmts.getValue();
                 assert commentViewStates != null;
-                commentViewStates.add(new CommentViewState(
+                if (heldComments != null) heldComments.put(comments.getCommentID(), comments);
+                // the live listener may have shown it already
+                if (indexOf(commentViewStates, comments.getCommentID()) >= 0) return;
+                // the newest comment goes first when the comments are shown newest first
+                commentViewStates.add(commentOrder == CommentQuery.NEWEST ? 0 : commentViewStates.size(), new CommentViewState(
                         comments.getCommentID(),
                         comments.getContent(),
-                        dateFormat.format(comments.getTimeCreated().toDate()),
+                        DateFormats.formatFullTime(comments.getTimeCreated()),
                         comments.getCreator(),
                         comments.getTotalUpVote(),
                         comments.getTotalDownVote(),
                         0,
-                        dateFormat.format(comments.getTimeCreated().toDate()),
+                        DateFormats.formatFullTime(comments.getTimeCreated()),
                         comments.getImage(),
                         null,
                         0
@@ -236,22 +323,24 @@ public class PostDetailsViewModel extends ViewModel {
         childComment.setReplyCommentID(commentParentViewState.getCommentID());
         childComment.setCommentID(null);
         childComment.setImage(commentChildViewState.getImage());
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss", Locale.getDefault());
 
         commentRepository.createComment(parentComment, childComment, new CommentCallback() {
             @Override
             public void onCreateSuccess(Comment comments) {
                 List<CommentViewState> commentViewStates = cmts.getValue();
                 assert commentViewStates != null;
+                if (heldComments != null) heldComments.put(comments.getCommentID(), comments);
+                // the live listener may have shown it already
+                if (indexOf(commentViewStates, comments.getCommentID()) >= 0) return;
                 commentViewStates.add(new CommentViewState(
                         comments.getCommentID(),
                         comments.getContent(),
-                        dateFormat.format(comments.getTimeCreated().toDate()),
+                        DateFormats.formatFullTime(comments.getTimeCreated()),
                         comments.getCreator(),
                         comments.getTotalUpVote(),
                         comments.getTotalDownVote(),
                         0,
-                        dateFormat.format(comments.getTimeCreated().toDate()),
+                        DateFormats.formatFullTime(comments.getTimeCreated()),
                         comments.getImage(),
                         comments.getReplyCommentID(),
                         0
@@ -292,81 +381,241 @@ public class PostDetailsViewModel extends ViewModel {
         });
     }
 
+    /**
+     * Load the next page of replies of a thread. Does nothing when the whole comment tree is loaded.
+     */
     public void loadChildComments(CommentViewState commentParentViewState) {
-        Comment parentComment = new Comment(
-        );
-        parentComment.setCommentID(commentParentViewState.getCommentID());
-        parentComment.setContent(commentParentViewState.getContent());
+        String parentID = commentParentViewState.getCommentID();
+        if (!isPaged || parentID == null || loadingReplies.contains(parentID)) {
+            return;
+        }
+        DocumentSnapshot cursor = replyCursors.get(parentID);
+        if (cursor != null && !threadsWithMoreReplies.getValue().contains(parentID)) {
+            // every reply of the thread is loaded
+            return;
+        }
+        Comment parentComment = new Comment();
+        parentComment.setCommentID(parentID);
         parentComment.setCommunityID(community_id);
         parentComment.setPostID(pt_id);
-        parentComment.setCreator(commentParentViewState.getCreator());
 
+        loadingReplies.add(parentID);
+        final int generation = commentGeneration;
+        commentRepository.loadRepliesPage(parentComment, cursor, CommentRepository.REPLY_PAGE_SIZE, new ICommentPageCallback() {
+            @Override
+            public void onGetCommentPageSuccess(List<Comment> comments, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != commentGeneration) return;
+                loadingReplies.remove(parentID);
+                if (lastVisible != null) replyCursors.put(parentID, lastVisible);
+                Set<String> moreReplies = new HashSet<>(threadsWithMoreReplies.getValue());
+                if (hasMore) {
+                    moreReplies.add(parentID);
+                } else {
+                    moreReplies.remove(parentID);
+                }
+                threadsWithMoreReplies.setValue(moreReplies);
+                // the adapter places the replies under their parent, after the replies already loaded
+                List<CommentViewState> newCommentViewStates = new ArrayList<>(cmts.getValue());
+                appendMissing(newCommentViewStates, convertCommentListToCommentViewStateList(comments));
+                cmts.setValue(newCommentViewStates);
+                observeShownComments();
+            }
 
-        commentRepository.loadReplies(parentComment, new CommentCallback() {
             @Override
-            public void onCreateSuccess(Comment comments) {
+            public void onGetCommentPageFailure(String errorMsg) {
+                if (generation != commentGeneration) return;
+                loadingReplies.remove(parentID);
+            }
+        });
+    }
 
+    public void downVote(CommentViewState commentViewState){
+        voteComment(commentViewState, -1);
+    }
+
+    public void upVote(CommentViewState commentViewState){
+        voteComment(commentViewState, 1);
+    }
+
+    private void voteComment(CommentViewState commentViewState, int direction) {
+        Comment comment = new Comment();
+        comment.setCommentID(commentViewState.getCommentID());
+        comment.setContent(commentViewState.getContent());
+        comment.setCommunityID(community_id);
+        comment.setPostID(pt_id);
+
+        String commentKey = VoteStateManager.keyOf(comment);
+        Map<String, Integer> votes = commentVotes.getValue();
+        Integer knownVoteType = votes != null ? votes.get(comment.getCommentID()) : null;
+        // seed from what the row shows, ignored while an earlier tap of this comment is not saved
+        voteStateManager.seed(commentKey, knownVoteType != null ? knownVoteType : 0, commentViewState.getVoteDifference());
+        voteStateManager.tap(comment, FirebaseAuth.getInstance().getCurrentUser().getUid(), direction);
+    }
+
+    private void loadCommentVotes(String postID, String communityID) {
+        String userID = FirebaseAuth.getInstance().getUid();
+        if (userID == null) return;
+        commentRepository.loadCommentVotes(communityID, postID, userID, new ICommentVotesCallback() {
+            @Override
+            public void onGetCommentVotesSuccess(Map<String, Integer> voteTypes) {
+                // a copy, the optimistic votes must not leak into the votes memoized by the repository
+                commentVotes.setValue(new HashMap<>(voteTypes));
             }
 
             @Override
-            public void onFailure(String errorMsg) {
+            public void onGetCommentVotesFailure(String errorMsg) {
+                commentVotes.setValue(new HashMap<>());
+            }
+        });
+    }
+
+    private void observeStoredPost(String postID) {
+        if (postID == null || postID.equals(observedPostID)) return;
+        if (observedPostID != null) PostStore.getInstance().removeObserver(observedPostID, postStoreObserver);
+        observedPostID = postID;
+        PostStore.getInstance().observe(postID, postStoreObserver);
+    }
+
+    private void onStoredPostChanged(String postID, Post post) {
+        PostViewState shown = currentPost.getValue();
+        if (post == null || shown == null || !postID.equals(shown.getPostId())) return;
+        boolean isChanged = false;
+        if (post.getVoteDifference() != null && post.getVoteDifference() != shown.getVoteDifference()) {
+            shown.setVoteDifference(post.getVoteDifference());
+            isChanged = true;
+        }
+        if (post.getTotalComment() != null && post.getTotalComment() != shown.getTotalComment()) {
+            shown.setTotalComment(post.getTotalComment());
+            isChanged = true;
+        }
+        if (!post.isSummary() && post.getContent() != null && !post.getContent().equals(shown.getContent())) {
+            shown.setTitle(post.getTitle());
+            shown.setContent(post.getContent());
+            isChanged = true;
+        }
+        if (isChanged) currentPost.setValue(shown);
+    }
 
+    private void onVoteStateChanged(String key, VoteState state) {
+        if (pt_id == null || community_id == null) return;
+        Post post = new Post();
+        post.setPostID(pt_id);
+        post.setCommunityID(community_id);
+        String postKey = VoteStateManager.keyOf(post);
+        if (key.equals(postKey)) {
+            postVote.setValue(state);
+            return;
+        }
+        String commentPrefix = postKey + "/Comment/";
+        if (!key.startsWith(commentPrefix)) return;
+        String commentID = key.substring(commentPrefix.length());
+        if (cmts.getValue() != null) {
+            for (CommentViewState commentViewState : cmts.getValue()) {
+                if (commentID.equals(commentViewState.getCommentID())) {
+                    commentViewState.setVoteDifference(state.getVoteDifference());
+                }
             }
+        }
+        Map<String, Integer> votes = commentVotes.getValue() != null ? commentVotes.getValue() : new HashMap<>();
+        if (state.getVoteType() == 0) {
+            votes.remove(commentID);
+        } else {
+            votes.put(commentID, state.getVoteType());
+        }
+        commentVotes.setValue(votes);
+    }
+
+
+    public void deletePost(PostViewState postViewState) {
+        Post post = new Post(postViewState.getPostId(), communityIDOf(postViewState), postViewState.getTitle(), postViewState.getContent(), postViewState.getIsAnonymous(), null, null, postViewState.getCreator(), 0, 0, 0,0, null, null, postViewState.getTags());
+
+        postRepository.deletePost(post, new IPostCallback() {
 
             @Override
-            public void onInitialLoadSuccess(List<Comment> comments) {
+            public void onGetPostSuccess(List<Post> posts) {
 
             }
 
             @Override
-            public void onLoadRepliesSuccess(List<Comment> comments) {
-                List<CommentViewState> newCommentViewStates = new ArrayList<>(cmts.getValue());
-                newCommentViewStates.addAll(convertCommentListToCommentViewStateList(comments));
-                cmts.postValue(newCommentViewStates);
+            public void onGetPostFailure(String errorMsg) {
+
             }
 
             @Override
-            public void onDeleteSuccess() {
+            public void onAddPostFailure(String errorMsg) {
 
             }
 
             @Override
-            public void onUpdateSuccess(Comment comment) {
+            public void onAddPostSuccess(Post newPost) {
 
             }
 
             @Override
-            public void onGetVoteStatusSuccess(int voteType) {
+            public void onEditPostSuccess() {
 
             }
-        });
-    }
 
-    public void downVote(CommentViewState commentViewState){
-        Comment comment = new Comment();
-        comment.setCommentID(commentViewState.getCommentID());
-        comment.setContent(commentViewState.getContent());
-        comment.setCommunityID(community_id);
-        comment.setPostID(pt_id);
+            @Override
+            public void onEditPostFailure(String errorMsg) {
 
-        commentRepository.updateVoteCount(comment, FirebaseAuth.getInstance().getCurrentUser().getUid(), -1);
-    }
+            }
 
-    public void upVote(CommentViewState commentViewState){
-        Comment comment = new Comment();
-        comment.setCommentID(commentViewState.getCommentID());
-        comment.setContent(commentViewState.getContent());
-        comment.setCommunityID(community_id);
-        comment.setPostID(pt_id);
+            @Override
+            public void onQueryPostError(String errorMsg) {
 
-        commentRepository.updateVoteCount(comment, FirebaseAuth.getInstance().getCurrentUser().getUid(), 1);
-    }
+            }
 
+            @Override
+            public void onQueryPostSuccess(List<Post> queryPostResults) {
 
-    public void deletePost(PostViewState postViewState) {
-        Post post = new Post(postViewState.getPostId(), postViewState.getCommunity().getCommunityID(), postViewState.getTitle(), postViewState.getContent(), postViewState.getIsAnonymous(), null, null, postViewState.getCreator(), 0, 0, 0,0, null, null, postViewState.getTags());
+            }
 
-        postRepository.deletePost(post, new IPostCallback() {
+            @Override
+            public void onDeletePostSuccess() {
+            }
+
+            @Override
+            public void onDeletePostError(String errorMsg) {
+
+            }
+
+            @Override
+            public void onSubscriptionSuccess() {
+
+            }
+
+            @Override
+            public void onSubscriptionError(String errorMsg) {
+
+            }
+
+            @Override
+            public void onBookmarkError(String errorMsg) {
+
+            }
+
+            @Override
+            public void onBookmarkSuccess() {
+
+            }
+
+            @Override
+            public void onGetVoteStatusSuccess(int voteType) {
+
+            }
+
+            @Override
+            public void onGetOnePostSuccess(Post post) {
+
+            }
+        });
+    }
+
+    public void editPost(PostViewState postViewState) {
+        Post post = new Post(postViewState.getPostId(), communityIDOf(postViewState), postViewState.getTitle(), postViewState.getContent(), postViewState.getIsAnonymous(), null, null, postViewState.getCreator(), 0, 0, 0,0, null, null, postViewState.getTags());
+
+        postRepository.editPost(post, new IPostCallback() {
 
             @Override
             public void onGetPostSuccess(List<Post> posts) {
@@ -450,11 +699,10 @@ public class PostDetailsViewModel extends ViewModel {
         });
     }
 
-    public void editPost(PostViewState postViewState) {
-        Post post = new Post(postViewState.getPostId(), postViewState.getCommunity().getCommunityID(), postViewState.getTitle(), postViewState.getContent(), postViewState.getIsAnonymous(), null, null, postViewState.getCreator(), 0, 0, 0,0, null, null, postViewState.getTags());
-
-        postRepository.editPost(post, new IPostCallback() {
 
+    // the feed only read the summary of the post, read the content and the images now
+    private void loadFullPost(PostViewState postViewState) {
+        postRepository.getOnePost(communityIDOf(postViewState), postViewState.getPostId(), new IPostCallback() {
             @Override
             public void onGetPostSuccess(List<Post> posts) {
 
@@ -532,11 +780,37 @@ public class PostDetailsViewModel extends ViewModel {
 
             @Override
             public void onGetOnePostSuccess(Post post) {
-
+                if (currentPost.getValue() != postViewState) return;
+                postViewState.setContent(post.getContent());
+                postViewState.setPictures(post.getDownloadImage());
+                postViewState.setTaggedUsers(post.getTaggedUsers());
+                postViewState.setSummary(false);
+                currentPost.setValue(postViewState);
             }
         });
     }
 
+    /**
+     * Show the post from {@link PostStore} when a list already read it, read it otherwise.
+     */
+    public void openPost(String postID, String communityID) {
+        Post stored = PostStore.getInstance().get(postID);
+        if (stored != null) {
+            PostViewState postViewState = toPostViewState(stored);
+            postViewState.setCommunityID(communityID);
+            setCurrentPost(postViewState);
+            return;
+        }
+        loadPost(postID, communityID);
+        loadComments(postID, communityID);
+    }
+
+    // posts read by loadPost only know the ID of their community
+    private static String communityIDOf(PostViewState postViewState) {
+        return postViewState.getCommunity() != null
+                ? postViewState.getCommunity().getCommunityID()
+                : postViewState.getCommunityID();
+    }
 
     public void loadPost(String postID, String communityID){
         pt_id = postID;
@@ -620,33 +894,54 @@ public class PostDetailsViewModel extends ViewModel {
 
             @Override
             public void onGetOnePostSuccess(Post post) {
-                PostViewState fetPost = new PostViewState(
-                        post.getPostID(),
-                        post.getCreator(),
-                        post.getCommunityID(),
-                        post.getTitle(),
-                        post.getContent(),
-                        post.getAnonymous(),
-                        post.getTimeCreated().toDate().toString(),
-                        post.getImage(), post.getTaggedUsers(),
-                        post.getCategory(),
-                        post.getVoteDifference(),
-                        post.getTotalComment()
-                );
-                fetPost.setPictures(post.getDownloadImage());
+                PostViewState fetPost = toPostViewState(post);
                 pt_id = post.getPostID();
                 community_id = post.getCommunityID();
                 currentPost.setValue(fetPost);
+                observeStoredPost(pt_id);
             }
         });
 
     }
 
+    // a view state of its own for the screen, the stored post is shared with the lists
+    private static PostViewState toPostViewState(Post post) {
+        PostViewState postViewState = new PostViewState(
+                post.getPostID(),
+                post.getCreator(),
+                post.getCommunityID(),
+                post.getTitle(),
+                post.getContent(),
+                post.getAnonymous(),
+                DateFormats.formatPostTime(post.getTimeCreated()),
+                post.getImage(),
+                post.getTaggedUsers() != null ? new ArrayList<>(post.getTaggedUsers()) : null,
+                post.getCategory() != null ? new ArrayList<>(post.getCategory()) : null,
+                post.getVoteDifference(),
+                post.getTotalComment()
+        );
+        postViewState.setPictures(post.getDownloadImage() != null ? new ArrayList<>(post.getDownloadImage()) : null);
+        postViewState.setSummary(post.isSummary());
+        return postViewState;
+    }
+
     public void loadComments(String postID,String communityID) {
         Post postLoad = new Post();
         postLoad.setPostID(postID);
         postLoad.setCommunityID(communityID);
-        commentRepository.loadTopLevelComments(postLoad, new CommentCallback() {
+        loadCommentVotes(postID, communityID);
+        pt_id = postID;
+        community_id = communityID;
+        // the comment count is not known before the post is loaded, page in case the post is a big one
+        loadFirstCommentPage();
+    }
+
+    private void loadCommentTree(Post post) {
+        isPaged = false;
+        heldComments = new LinkedHashMap<>();
+        commentGeneration++;
+        final int generation = commentGeneration;
+        commentRepository.loadCommentTree(post, new CommentCallback() {
             @Override
             public void onCreateSuccess(Comment comments) {
 
@@ -659,7 +954,17 @@ public class PostDetailsViewModel extends ViewModel {
 
             @Override
             public void onInitialLoadSuccess(List<Comment> comments) {
-                cmts.postValue(convertCommentListToCommentViewStateList(comments));
+
+            }
+
+            @Override
+            public void onLoadTreeSuccess(CommentTree tree) {
+                if (generation != commentGeneration) return;
+                heldComments = new LinkedHashMap<>();
+                for (Comment comment : tree.flatten()) {
+                    heldComments.put(comment.getCommentID(), comment);
+                }
+                showComments(tree.flatten(commentOrder), generation);
             }
 
             @Override
@@ -684,6 +989,247 @@ public class PostDetailsViewModel extends ViewModel {
         });
     }
 
+    private void loadFirstCommentPage() {
+        isPaged = true;
+        heldComments = null;
+        if (pagedSince == null) pagedSince = Timestamp.now();
+        commentGeneration++;
+        lastVisibleComment = null;
+        hasMoreComments = true;
+        isLoadingComments = true;
+        replyCursors.clear();
+        loadingReplies.clear();
+        threadsWithMoreReplies.setValue(new HashSet<>());
+        final int generation = commentGeneration;
+        final int pageGeneration = ++commentPageGeneration;
+        commentRepository.loadTopLevelCommentsPage(postOfComments(), commentOrder, null, CommentRepository.COMMENT_PAGE_SIZE, new ICommentPageCallback() {
+            @Override
+            public void onGetCommentPageSuccess(List<Comment> comments, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != commentGeneration || pageGeneration != commentPageGeneration) return;
+                isLoadingComments = false;
+                hasMoreComments = hasMore;
+                lastVisibleComment = lastVisible;
+                showComments(comments, generation);
+            }
+
+            @Override
+            public void onGetCommentPageFailure(String errorMsg) {
+                if (generation != commentGeneration || pageGeneration != commentPageGeneration) return;
+                isLoadingComments = false;
+            }
+        });
+    }
+
+    /**
+     * Load the next page of top-level comments, call this when the user scrolls near the end of the comments.
+     * Does nothing when the whole comment tree is loaded, while a page is loading or when every comment is loaded.
+     */
+    public void loadMoreComments() {
+        if (!isPaged || isLoadingComments || !hasMoreComments || lastVisibleComment == null) {
+            return;
+        }
+        isLoadingComments = true;
+        final int generation = commentGeneration;
+        final int pageGeneration = ++commentPageGeneration;
+        commentRepository.loadTopLevelCommentsPage(postOfComments(), commentOrder, lastVisibleComment, CommentRepository.COMMENT_PAGE_SIZE, new ICommentPageCallback() {
+            @Override
+            public void onGetCommentPageSuccess(List<Comment> comments, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != commentGeneration || pageGeneration != commentPageGeneration) return;
+                isLoadingComments = false;
+                hasMoreComments = hasMore;
+                if (lastVisible != null) lastVisibleComment = lastVisible;
+                appendComments(comments, generation);
+            }
+
+            @Override
+            public void onGetCommentPageFailure(String errorMsg) {
+                if (generation != commentGeneration || pageGeneration != commentPageGeneration) return;
+                isLoadingComments = false;
+            }
+        });
+    }
+
+    /**
+     * Change the order of the top-level comments. A loaded tree is reordered in place, paged comments are
+     * loaded again from the first page.
+     */
+    public void setCommentOrder(CommentQuery order) {
+        if (order == commentOrder) return;
+        commentOrder = order;
+        if (heldComments != null) {
+            showHeldComments(new HashSet<>());
+        } else if (isPaged) {
+            loadFirstCommentPage();
+        }
+    }
+
+    /**
+     * Keep the comments up to date while the screen is visible. Changes are applied to the displayed list in place:
+     * the whole tree is listened to when it is loaded. Otherwise the comments posted since the first page are
+     * listened to, and the comments of the loaded pages by ID.
+     */
+    public void startLiveComments() {
+        if (pt_id == null || community_id == null) return;
+        liveComments = new ICommentChangesCallback() {
+            @Override
+            public void onCommentsChanged(List<Comment> added, List<Comment> modified, List<String> removedIDs) {
+                if (heldComments != null) {
+                    applyToHeldComments(added, modified, removedIDs);
+                } else {
+                    applyToPagedComments(added, modified, removedIDs);
+                }
+            }
+
+            @Override
+            public void onCommentChangesFailure(String errorMsg) {
+
+            }
+        };
+        commentRepository.observeComments(postOfComments(), heldComments != null ? null : pagedSince, liveComments);
+        observeShownComments();
+    }
+
+    public void stopLiveComments() {
+        if (pt_id == null || community_id == null) return;
+        liveComments = null;
+        commentRepository.removeCommentListener(postOfComments());
+    }
+
+    // listen to the paged comments shown, the ones listened to already are skipped by the repository
+    private void observeShownComments() {
+        if (liveComments == null || heldComments != null || cmts.getValue() == null) return;
+        List<String> commentIDs = new ArrayList<>(cmts.getValue().size());
+        for (CommentViewState commentViewState : cmts.getValue()) {
+            commentIDs.add(commentViewState.getCommentID());
+        }
+        commentRepository.observeLoadedComments(postOfComments(), commentIDs, liveComments);
+    }
+
+    private void applyToHeldComments(List<Comment> added, List<Comment> modified, List<String> removedIDs) {
+        Set<String> changedIDs = new HashSet<>();
+        List<Comment> changed = new ArrayList<>(added);
+        changed.addAll(modified);
+        for (Comment comment : changed) {
+            Comment held = heldComments.put(comment.getCommentID(), comment);
+            // the first snapshot reports the comments already loaded as added, those rows are kept as they are
+            if (held == null || !isSameVersion(held, comment)) {
+                changedIDs.add(comment.getCommentID());
+            }
+        }
+        for (String commentID : removedIDs) {
+            heldComments.remove(commentID);
+        }
+        if (changedIDs.isEmpty() && removedIDs.isEmpty()) return;
+        showHeldComments(changedIDs);
+    }
+
+    private void applyToPagedComments(List<Comment> added, List<Comment> modified, List<String> removedIDs) {
+        if (cmts.getValue() == null) return;
+        List<CommentViewState> newCommentViewStates = new ArrayList<>(cmts.getValue());
+        for (Comment comment : modified) {
+            int index = indexOf(newCommentViewStates, comment.getCommentID());
+            // the first snapshot of the loaded comments reports them as they are shown, those rows are kept
+            if (index >= 0 && !isSameVersion(newCommentViewStates.get(index), comment)) {
+                newCommentViewStates.set(index, convertCommentListToCommentViewStateList(Collections.singletonList(comment)).get(0));
+            }
+        }
+        for (String commentID : removedIDs) {
+            int index = indexOf(newCommentViewStates, commentID);
+            if (index >= 0) newCommentViewStates.remove(index);
+        }
+        for (Comment comment : added) {
+            if (indexOf(newCommentViewStates, comment.getCommentID()) >= 0) continue;
+            CommentViewState commentViewState = convertCommentListToCommentViewStateList(Collections.singletonList(comment)).get(0);
+            String parentID = comment.getReplyCommentID();
+            if (parentID == null) {
+                if (commentOrder == CommentQuery.NEWEST) {
+                    newCommentViewStates.add(0, commentViewState);
+                } else if (!hasMoreComments) {
+                    newCommentViewStates.add(commentViewState);
+                }
+                // otherwise the comment belongs to a page not loaded yet, paging will read it
+                continue;
+            }
+            int parentIndex = indexOf(newCommentViewStates, parentID);
+            if (parentIndex < 0) continue;
+            boolean isThreadLoaded = replyCursors.containsKey(parentID) && !threadsWithMoreReplies.getValue().contains(parentID);
+            Integer totalReply = newCommentViewStates.get(parentIndex).getTotalReply();
+            // a reply is only shown under a thread whose older replies are shown too
+            if (isThreadLoaded || totalReply == null || totalReply == 0) {
+                newCommentViewStates.add(commentViewState);
+            }
+        }
+        cmts.setValue(newCommentViewStates);
+    }
+
+    // rebuild the displayed tree from heldComments, rows of the comments that did not change keep their view state
+    private void showHeldComments(Set<String> changedIDs) {
+        Map<String, CommentViewState> shown = new HashMap<>();
+        if (cmts.getValue() != null) {
+            for (CommentViewState commentViewState : cmts.getValue()) {
+                shown.put(commentViewState.getCommentID(), commentViewState);
+            }
+        }
+        List<CommentViewState> newCommentViewStates = new ArrayList<>(heldComments.size());
+        for (Comment comment : new CommentTree(new ArrayList<>(heldComments.values())).flatten(commentOrder)) {
+            CommentViewState commentViewState = shown.get(comment.getCommentID());
+            if (commentViewState == null || changedIDs.contains(comment.getCommentID())) {
+                commentViewState = convertCommentListToCommentViewStateList(Collections.singletonList(comment)).get(0);
+            }
+            newCommentViewStates.add(commentViewState);
+        }
+        cmts.setValue(newCommentViewStates);
+    }
+
+    private boolean isSameVersion(Comment a, Comment b) {
+        return Objects.equals(a.getLastModified(), b.getLastModified())
+                && Objects.equals(a.getVoteDifference(), b.getVoteDifference())
+                && Objects.equals(a.getTotalReply(), b.getTotalReply());
+    }
+
+    private boolean isSameVersion(CommentViewState shown, Comment comment) {
+        return Objects.equals(shown.getContent(), comment.getContent())
+                && Objects.equals(shown.getVoteDifference(), comment.getVoteDifference())
+                && Objects.equals(shown.getTotalReply(), comment.getTotalReply())
+                && Objects.equals(shown.getLastModified(), DateFormats.formatFullTime(comment.getLastModified()));
+    }
+
+    private int indexOf(List<CommentViewState> commentViewStates, String commentID) {
+        if (commentID == null) return -1;
+        for (int i = 0; i < commentViewStates.size(); i++) {
+            if (commentID.equals(commentViewStates.get(i).getCommentID())) return i;
+        }
+        return -1;
+    }
+
+    // a page can overlap the comments the live listener already added
+    private void appendMissing(List<CommentViewState> commentViewStates, List<CommentViewState> page) {
+        Set<String> shownIDs = new HashSet<>();
+        for (CommentViewState commentViewState : commentViewStates) {
+            shownIDs.add(commentViewState.getCommentID());
+        }
+        for (CommentViewState commentViewState : page) {
+            if (!shownIDs.contains(commentViewState.getCommentID())) {
+                commentViewStates.add(commentViewState);
+            }
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        voteStateManager.removeListener(voteStateListener);
+        if (observedPostID != null) PostStore.getInstance().removeObserver(observedPostID, postStoreObserver);
+        stopLiveComments();
+    }
+
+    private Post postOfComments() {
+        Post post = new Post();
+        post.setPostID(pt_id);
+        post.setCommunityID(community_id);
+        return post;
+    }
+
     public LiveData<Integer> isVoted(PostViewState postViewState, String userID) {
         Post post = new Post();
         post.setPostID(postViewState.getPostId());
@@ -763,6 +1309,9 @@ public class PostDetailsViewModel extends ViewModel {
             @Override
             public void onGetVoteStatusSuccess(int voteTypeValue) {
                 voteType.postValue(voteTypeValue);
+                if (currentPost.getValue() != null) {
+                    voteStateManager.seed(VoteStateManager.keyOf(post), voteTypeValue, currentPost.getValue().getVoteDifference());
+                }
             }
 
             @Override
@@ -772,49 +1321,4 @@ public class PostDetailsViewModel extends ViewModel {
         });
         return voteType;
     }
-
-    public LiveData<Integer> isVotedComment(CommentViewState commentViewState, String userID, String postID, String communityID) {
-        Comment comment = new Comment();
-        comment.setCommentID(commentViewState.getCommentID());
-        comment.setCommunityID(communityID);
-        comment.setPostID(postID);
-
-        commentRepository.getVoteStatus(comment, userID, new CommentCallback() {
-            @Override
-            public void onCreateSuccess(Comment comments) {
-
-            }
-
-            @Override
-            public void onFailure(String errorMsg) {
-
-            }
-
-            @Override
-            public void onInitialLoadSuccess(List<Comment> comments) {
-
-            }
-
-            @Override
-            public void onLoadRepliesSuccess(List<Comment> comments) {
-
-            }
-
-            @Override
-            public void onDeleteSuccess() {
-
-            }
-
-            @Override
-            public void onUpdateSuccess(Comment comment) {
-
-            }
-
-            @Override
-            public void onGetVoteStatusSuccess(int voteTypeValue) {
-                voteType.postValue(voteTypeValue);
-            }
-        });
-        return voteType;
-    }
 }
@@ -21,6 +21,9 @@ public class CustomTagsViewModel extends ViewModel {
     MutableLiveData<String> communityId;
     MutableLiveData<String> errorMessage;
     CategoryRepository categoryRepository;
+    // receives the categories of the community, removed when the view model is cleared
+    private CategoryCallback categoryCallback;
+    private String categoryCommunityId;
     public CustomTagsViewModel() {
         categoryList = new MutableLiveData<>();
         categoryList.setValue(new ArrayList<>());
@@ -45,7 +48,9 @@ public class CustomTagsViewModel extends ViewModel {
         Community community = new Community();
         community.setCommunityId(communityId.getValue());
         Log.d("CustomTagsViewModel", "refreshCategories");
-        categoryRepository.fetchCategory(community, new CategoryCallback() {
+        removeCategoryCallback();
+        categoryCommunityId = community.getCommunityId();
+        categoryCallback = new CategoryCallback() {
             @Override
             public void onSuccess(List<Category> categories) {
                 List<PostCategory> postCategories = new ArrayList<>();
@@ -57,8 +62,15 @@ public class CustomTagsViewModel extends ViewModel {
             public void onFailure(String errorMsg) {
                 errorMessage.setValue(errorMsg);
             }
-      });
+      };
+        categoryRepository.fetchCategory(community, categoryCallback);
+    }
 
+    private void removeCategoryCallback() {
+        if (categoryCallback != null) {
+            categoryRepository.removeCallback(categoryCommunityId, categoryCallback);
+            categoryCallback = null;
+        }
     }
     public void addCategory(PostCategory category) {
         Category newCategory = new Category(category.getCategoryID(), category.getTitle(), false);
@@ -97,6 +109,7 @@ public class CustomTagsViewModel extends ViewModel {
     protected void onCleared() {
         super.onCleared();
         Log.d("CustomTagsViewModel", "onCleared");
-        categoryRepository.removeListener(communityId.getValue());
+        // the other screens of the community keep their own callbacks
+        removeCategoryCallback();
     }
 }
@@ -8,6 +8,7 @@ import androidx.lifecycle.ViewModel;
 import com.example.eduforum.activity.model.community_manage.Community;
 import com.example.eduforum.activity.model.community_manage.CommunityBuilder;
 import com.example.eduforum.activity.model.community_manage.CommunityConcreteBuilder;
+import com.example.eduforum.activity.model.post_manage.Post;
 import com.example.eduforum.activity.model.user_manage.User;
 import com.example.eduforum.activity.repository.community.CommunityRepository;
 import com.example.eduforum.activity.repository.community.ICommunityCallBack;
@@ -16,13 +17,25 @@ import com.example.eduforum.activity.repository.community.ICommunityCallBack_B;
 import com.example.eduforum.activity.repository.community.ICommunityCallBack_C;
 import com.example.eduforum.activity.repository.auth.LoginRepository;
 import com.example.eduforum.activity.repository.community.ICommunityChangeListener;
+import com.example.eduforum.activity.repository.post.GlobalPostSearch;
+import com.example.eduforum.activity.repository.post.HomeFeed;
+import com.example.eduforum.activity.repository.post.IGlobalSearchCallback;
+import com.example.eduforum.activity.repository.post.IPostPageCallback;
+import com.example.eduforum.activity.repository.post.PostRepository;
+import com.example.eduforum.activity.ui.community.viewstate.PostViewState;
 import com.example.eduforum.activity.ui.main.fragment.CreateCommunityViewState;
 import com.example.eduforum.activity.ui.main.fragment.JoinCommunityViewState;
+import com.example.eduforum.activity.util.DateFormats;
 import com.example.eduforum.activity.util.FlagsList;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 public class HomeViewModel extends ViewModel{
 
@@ -33,7 +46,17 @@ public class HomeViewModel extends ViewModel{
     private final MutableLiveData<List<CreateCommunityViewState>> isAdminCommunityList;
     private final MutableLiveData<List<CreateCommunityViewState>> globalCommunityList;
     private final MutableLiveData<User> currentUser;
+    // results of the search across communities, null when no search is shown
+    private final MutableLiveData<List<PostViewState>> globalSearchResults;
+    private final MutableLiveData<String> globalSearchStatus;
+    private GlobalPostSearch globalSearch;
+    // newest posts of every community of the user
+    private final MutableLiveData<List<PostViewState>> homeFeedPosts;
+    private HomeFeed homeFeed;
+    private Map<String, CreateCommunityViewState> homeFeedCommunities = new HashMap<>();
+    private int homeFeedGeneration;
     CommunityRepository communityRepository;
+    PostRepository postRepository;
     LoginRepository loginRepository;
 
     // Methods
@@ -42,6 +65,7 @@ public class HomeViewModel extends ViewModel{
         newCommunityLiveData = new MutableLiveData<>();
         newCommunityLiveData.setValue(new CreateCommunityViewState());
         communityRepository = CommunityRepository.getInstance();
+        postRepository = PostRepository.getInstance();
         loginRepository = LoginRepository.getInstance();
         currentUser = new MutableLiveData<>();
         joinCommunityLiveData = new MutableLiveData<>();
@@ -52,6 +76,10 @@ public class HomeViewModel extends ViewModel{
         joinedCommunityList.setValue(new ArrayList<>());
         isAdminCommunityList.setValue(new ArrayList<>());
         globalCommunityList.setValue(new ArrayList<>());
+        globalSearchResults = new MutableLiveData<>();
+        globalSearchStatus = new MutableLiveData<>();
+        homeFeedPosts = new MutableLiveData<>();
+        homeFeedPosts.setValue(new ArrayList<>());
     }
     public void setCurrentUser(User user){
         currentUser.setValue(user);
@@ -81,13 +109,120 @@ public class HomeViewModel extends ViewModel{
             @Override
             public void onGlobalCommunityFetch(List<Community> communities) {
                 globalCommunityList.setValue(convertToViewStateList(communities));
+                // the member and admin lists of the same snapshot were delivered just before
+                onMembershipChanged();
             }
 
 
         });
     }
+
+    // --------------------------------
+    // search across communities usecase
+    /**
+     * Search the keyword in every community the user is a member or an admin of. The results are updated each time
+     * a community answers, an empty keyword hides the search.
+     */
+    public void searchAllCommunities(String keyword) {
+        if (globalSearch != null) {
+            globalSearch.cancel();
+            globalSearch = null;
+        }
+        keyword = keyword.trim();
+        if (keyword.isEmpty()) {
+            globalSearchResults.setValue(null);
+            globalSearchStatus.setValue(null);
+            return;
+        }
+        Map<String, CreateCommunityViewState> communities = memberCommunities();
+        globalSearchStatus.setValue("Đang tìm trong " + communities.size() + " cộng đồng...");
+        globalSearch = postRepository.searchAllCommunities(new ArrayList<>(communities.keySet()), keyword, new IGlobalSearchCallback() {
+            @Override
+            public void onGlobalSearchProgress(List<Post> results, int answered, int total) {
+                globalSearchResults.setValue(convertToPostViewStateList(results, communities));
+                globalSearchStatus.setValue("Đã tìm " + answered + "/" + total + " cộng đồng...");
+            }
+
+            @Override
+            public void onGlobalSearchComplete(List<Post> results, int failed) {
+                globalSearchResults.setValue(convertToPostViewStateList(results, communities));
+                if (failed > 0) {
+                    globalSearchStatus.setValue("Không thể tìm trong " + failed + " cộng đồng");
+                } else {
+                    globalSearchStatus.setValue(results.isEmpty() ? "Không tìm thấy bài viết nào" : results.size() + " bài viết");
+                }
+            }
+        });
+    }
+
+    // --------------------------------
+    // home feed usecase
+    private Map<String, CreateCommunityViewState> memberCommunities() {
+        Map<String, CreateCommunityViewState> communities = new HashMap<>();
+        for (CreateCommunityViewState community : joinedCommunityList.getValue()) {
+            communities.put(community.getCommunityID(), community);
+        }
+        for (CreateCommunityViewState community : isAdminCommunityList.getValue()) {
+            communities.put(community.getCommunityID(), community);
+        }
+        return communities;
+    }
+
+    // the listener fires on every change of any community, only start the feed over when the membership changed
+    private void onMembershipChanged() {
+        Map<String, CreateCommunityViewState> communities = memberCommunities();
+        if (homeFeed != null && new TreeSet<>(communities.keySet()).equals(new TreeSet<>(homeFeedCommunities.keySet()))) {
+            homeFeedCommunities = communities;
+            return;
+        }
+        homeFeedCommunities = communities;
+        refreshHomeFeed();
+    }
+
+    public void refreshHomeFeed() {
+        homeFeedGeneration++;
+        homeFeed = postRepository.newHomeFeed(new ArrayList<>(homeFeedCommunities.keySet()));
+        homeFeedPosts.setValue(new ArrayList<>());
+        loadMoreHomeFeed();
+    }
+
+    public void loadMoreHomeFeed() {
+        if (homeFeed == null || !homeFeed.hasMore()) return;
+        final int generation = homeFeedGeneration;
+        postRepository.loadHomeFeedPage(homeFeed, new IPostPageCallback() {
+            @Override
+            public void onGetPostPageSuccess(List<Post> posts, DocumentSnapshot lastVisible, boolean hasMore) {
+                if (generation != homeFeedGeneration || posts.isEmpty()) return;
+                List<PostViewState> shown = new ArrayList<>(homeFeedPosts.getValue());
+                shown.addAll(convertToPostViewStateList(posts, homeFeedCommunities));
+                homeFeedPosts.setValue(shown);
+            }
+
+            @Override
+            public void onGetPostPageFailure(String errorMsg) {
+                Log.d("HomeViewModel", "Home feed page failed: " + errorMsg);
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (globalSearch != null) {
+            globalSearch.cancel();
+        }
+    }
     //-------------------------------------------------------------------------------
     // Getters and Setters
+    public LiveData<List<PostViewState>> getHomeFeedPosts() {
+        return homeFeedPosts;
+    }
+    public LiveData<List<PostViewState>> getGlobalSearchResults() {
+        return globalSearchResults;
+    }
+    public LiveData<String> getGlobalSearchStatus() {
+        return globalSearchStatus;
+    }
     public LiveData<List<CreateCommunityViewState>> getJoinedCommunityList() {
         return joinedCommunityList;
     }
@@ -210,6 +345,21 @@ public class HomeViewModel extends ViewModel{
         return viewStates;
     }
 
+    private List<PostViewState> convertToPostViewStateList(List<Post> posts, Map<String, CreateCommunityViewState> communities) {
+        List<PostViewState> postViewStateList = new ArrayList<>();
+        for (Post post : posts) {
+            PostViewState state = new PostViewState(post.getPostID(), post.getCreator(), communities.get(post.getCommunityID()), post.getTitle(), post.getContent(), post.getAnonymous(), convertTimestampToReadable(post.getTimeCreated()), post.getImage(), post.getTaggedUsers(), post.getCategory(), post.getVoteDifference(), post.getTotalComment());
+            state.setPictures(post.getDownloadImage());
+            state.setSummary(post.isSummary());
+            postViewStateList.add(state);
+        }
+        return postViewStateList;
+    }
+
+    private String convertTimestampToReadable(Timestamp time) {
+        return DateFormats.formatPostTime(time);
+    }
+
     private void closeCreateCommunityDialog() {
         CreateCommunityViewState commuState = newCommunityLiveData.getValue();
         commuState.setIsDialogClosed(true);
@@ -8,13 +8,12 @@ import com.example.eduforum.activity.model.user_manage.User;
 import com.example.eduforum.activity.repository.noti.INotificationCallback;
 import com.example.eduforum.activity.repository.noti.NotificationRepository;
 import com.example.eduforum.activity.ui.main.fragment.NotificationViewState;
+import com.example.eduforum.activity.util.DateFormats;
 import com.example.eduforum.activity.viewmodel.shared.UserViewModel;
 import com.google.firebase.Timestamp;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class NotificationViewModel extends ViewModel {
 
@@ -38,8 +37,7 @@ public class NotificationViewModel extends ViewModel {
     }
 
     private String convertTimestamp(Timestamp timestamp){
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss", Locale.getDefault());
-        return dateFormat.format(timestamp.toDate());
+        return DateFormats.formatFullTime(timestamp);
     }
 
     public void setupListener(UserViewModel userViewModel){
@@ -0,0 +1,230 @@
+package com.example.eduforum.activity.repository.shared;
+
+import com.example.eduforum.activity.model.noti_manage.Notification;
+import com.example.eduforum.activity.model.post_manage.Comment;
+import com.example.eduforum.activity.model.post_manage.Post;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The field names and types read by {@link DocumentMappers}, on documents built the way Firestore returns them:
+ * the integers are Long and the maps and lists are the ones of the document.
+ */
+public class DocumentMappersTest {
+    private static final Timestamp CREATED = new Timestamp(1729150000L, 0);
+    private static final Timestamp MODIFIED = new Timestamp(1729153600L, 0);
+
+    @Test
+    public void toPost_readsTheFieldsAndTheDocumentId() {
+        Map<String, Object> fields = postingFields();
+        fields.put("title", "Tiêu đề");
+        fields.put("isAnonymous", true);
+        fields.put("totalComment", 3L);
+        fields.put("taggedUsers", Arrays.asList("user2", "user3"));
+        fields.put("category", Collections.singletonList(categoryOf("category1", "Hỏi đáp")));
+
+        Post post = DocumentMappers.toPost(documentOf("post1", fields));
+
+        assertEquals("post1", post.getPostID());
+        assertEquals("community1", post.getCommunityID());
+        assertEquals("Tiêu đề", post.getTitle());
+        assertEquals("Nội dung", post.getContent());
+        assertEquals(CREATED, post.getTimeCreated());
+        assertEquals(MODIFIED, post.getLastModified());
+        assertEquals(Integer.valueOf(3), post.getTotalComment());
+        assertEquals(Arrays.asList("user2", "user3"), post.getTaggedUsers());
+        assertEquals(1, post.getCategory().size());
+        assertEquals("category1", post.getCategory().get(0).getCategoryID());
+        assertEquals("Hỏi đáp", post.getCategory().get(0).getTitle());
+        assertEquals(Collections.singletonList("images/post1.jpg"), post.getDownloadImage());
+        assertFalse(post.isSummary());
+    }
+
+    @Test
+    public void toPost_readsIsAnonymousIntoAnonymous() {
+        Map<String, Object> fields = postingFields();
+        fields.put("isAnonymous", true);
+        assertEquals(Boolean.TRUE, DocumentMappers.toPost(documentOf("post1", fields)).getAnonymous());
+
+        fields.put("isAnonymous", false);
+        assertEquals(Boolean.FALSE, DocumentMappers.toPost(documentOf("post1", fields)).getAnonymous());
+    }
+
+    @Test
+    public void toPost_readsTheLongsAsIntegers() {
+        Map<String, Object> fields = postingFields();
+        fields.put("totalComment", 7L);
+
+        Post post = DocumentMappers.toPost(documentOf("post1", fields));
+
+        assertEquals(Integer.valueOf(5), post.getTotalUpVote());
+        assertEquals(Integer.valueOf(1), post.getTotalDownVote());
+        assertEquals(Integer.valueOf(4), post.getVoteDifference());
+        assertEquals(Integer.valueOf(10), post.getCounterShards());
+        assertEquals(Integer.valueOf(7), post.getTotalComment());
+    }
+
+    @Test
+    public void toPost_leavesMissingAndMistypedFieldsNull() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("title", 12L);
+        fields.put("voteDifference", "4");
+        fields.put("creator", "user1");
+
+        Post post = DocumentMappers.toPost(documentOf("post1", fields));
+
+        assertEquals("post1", post.getPostID());
+        assertNull(post.getTitle());
+        assertNull(post.getVoteDifference());
+        assertNull(post.getCreator());
+        assertNull(post.getAnonymous());
+        assertNull(post.getCategory());
+        assertNull(post.getTimeCreated());
+    }
+
+    @Test
+    public void toPostFromSummary_readsTheSummaryFields() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("communityID", "community1");
+        fields.put("title", "Tiêu đề");
+        fields.put("excerpt", "Nội dung rút gọn");
+        fields.put("creator", creatorOf());
+        fields.put("anonymous", true);
+        fields.put("timeCreated", CREATED);
+        fields.put("lastModified", MODIFIED);
+        fields.put("voteDifference", 4L);
+        fields.put("totalComment", 3L);
+        fields.put("category", Collections.singletonList(categoryOf("category1", "Hỏi đáp")));
+        fields.put("thumbnail", "images/post1.jpg");
+
+        Post post = DocumentMappers.toPostFromSummary(documentOf("post1", fields));
+
+        assertEquals("post1", post.getPostID());
+        assertEquals("community1", post.getCommunityID());
+        assertEquals("Tiêu đề", post.getTitle());
+        assertEquals("Nội dung rút gọn", post.getContent());
+        assertEquals("Nguyễn Văn A", post.getCreator().getName());
+        assertEquals(Boolean.TRUE, post.getAnonymous());
+        assertEquals(CREATED, post.getTimeCreated());
+        assertEquals(MODIFIED, post.getLastModified());
+        assertEquals(Integer.valueOf(4), post.getVoteDifference());
+        assertEquals(Integer.valueOf(3), post.getTotalComment());
+        assertEquals("category1", post.getCategory().get(0).getCategoryID());
+        assertEquals(Collections.singletonList("images/post1.jpg"), post.getDownloadImage());
+        assertTrue(post.isSummary());
+    }
+
+    @Test
+    public void toPostFromSummary_withoutThumbnail_hasNoImage() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("title", "Tiêu đề");
+
+        Post post = DocumentMappers.toPostFromSummary(documentOf("post1", fields));
+
+        assertNull(post.getDownloadImage());
+        assertTrue(post.isSummary());
+    }
+
+    @Test
+    public void toComment_readsTheFieldsAndTheDocumentId() {
+        Map<String, Object> fields = postingFields();
+        fields.put("postID", "post1");
+        fields.put("replyCommentID", "comment1");
+        fields.put("totalReply", 2L);
+
+        Comment comment = DocumentMappers.toComment(documentOf("comment2", fields));
+
+        assertEquals("comment2", comment.getCommentID());
+        assertEquals("post1", comment.getPostID());
+        assertEquals("community1", comment.getCommunityID());
+        assertEquals("comment1", comment.getReplyCommentID());
+        assertEquals(Integer.valueOf(2), comment.getTotalReply());
+        assertEquals(Integer.valueOf(4), comment.getVoteDifference());
+        assertEquals("user1", comment.getCreator().getCreatorID());
+        assertEquals("Khoa học máy tính", comment.getCreator().getDepartment());
+    }
+
+    @Test
+    public void toNotification_readsIsRead() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("type", 1L);
+        fields.put("isRead", true);
+        fields.put("timestamp", CREATED);
+        Map<String, Object> triggeredBy = new HashMap<>();
+        triggeredBy.put("userID", "user1");
+        triggeredBy.put("name", "Nguyễn Văn A");
+        fields.put("triggeredBy", triggeredBy);
+        Map<String, Object> post = new HashMap<>();
+        post.put("postID", "post1");
+        post.put("title", "Tiêu đề");
+        fields.put("post", post);
+
+        Notification notification = DocumentMappers.toNotification(documentOf("notification1", fields));
+
+        assertEquals("notification1", notification.getNotificationID());
+        assertEquals(1, notification.getType());
+        assertTrue(notification.isRead());
+        assertEquals(CREATED, notification.getTimestamp());
+        assertEquals("user1", notification.getTriggeredBy().getUserID());
+        assertEquals("post1", notification.getPost().getPostID());
+        assertNull(notification.getCommunity());
+    }
+
+    @Test
+    public void toNotification_withoutIsRead_isUnread() {
+        Notification notification = DocumentMappers.toNotification(documentOf("notification1", new HashMap<>()));
+
+        assertFalse(notification.isRead());
+        assertEquals(0, notification.getType());
+    }
+
+    // the fields written for both posts and comments
+    private static Map<String, Object> postingFields() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("communityID", "community1");
+        fields.put("content", "Nội dung");
+        fields.put("timeCreated", CREATED);
+        fields.put("lastModified", MODIFIED);
+        fields.put("creator", creatorOf());
+        fields.put("totalUpVote", 5L);
+        fields.put("totalDownVote", 1L);
+        fields.put("voteDifference", 4L);
+        fields.put("counterShards", 10L);
+        fields.put("downloadImage", Collections.singletonList("images/post1.jpg"));
+        return fields;
+    }
+
+    private static Map<String, Object> creatorOf() {
+        Map<String, Object> creator = new HashMap<>();
+        creator.put("creatorID", "user1");
+        creator.put("name", "Nguyễn Văn A");
+        creator.put("department", "Khoa học máy tính");
+        return creator;
+    }
+
+    private static Map<String, Object> categoryOf(String categoryID, String title) {
+        Map<String, Object> category = new HashMap<>();
+        category.put("categoryID", categoryID);
+        category.put("title", title);
+        return category;
+    }
+
+    private static DocumentSnapshot documentOf(String id, Map<String, Object> fields) {
+        DocumentSnapshot document = mock(DocumentSnapshot.class);
+        when(document.getId()).thenReturn(id);
+        when(document.get(anyString())).thenAnswer(invocation -> fields.get(invocation.<String>getArgument(0)));
+        return document;
+    }
+}